@@ -0,0 +1,93 @@
+package fr.elevator.benchmark;
+
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import fr.elevator.model.CabinModel;
+import fr.elevator.util.ElevatorMathUtil;
+import fr.elevator.util.ScoreTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per cabin predicates and score computation, for a cabin on floors floors with
+ * queueDepth users waiting it and as many riding it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmark.xml")
+public class CabinModelBenchmark {
+
+    @Param({"20", "100"})
+    int floors;
+
+    @Param({"10", "100", "1000"})
+    int queueDepth;
+
+    private CabinModel cabin;
+    private ScoreTable scoreTable;
+
+    private User waitingUser;
+    private User ridingUser;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        cabin = new CabinModel(0, floors - 1, 2 * queueDepth);
+        cabin.setCurrentFloor(floors / 2);
+        scoreTable = ScoreTable.forFloors(0, floors - 1);
+
+        for (int i = 0; i < queueDepth; i++) {
+            User waiting = new User(random.nextInt(floors), random.nextBoolean() ? Direction.UP : Direction.DOWN);
+            cabin.getUsersWaitingCabin().add(waiting);
+
+            User riding = new User(random.nextInt(floors), Direction.UP);
+            riding.setFloorToGo(random.nextInt(floors));
+            cabin.getUsersInCabin().add(riding);
+        }
+        // Scores as after a tick
+        cabin.updateScore();
+
+        waitingUser = cabin.getUsersWaitingCabin().get(0);
+        ridingUser = cabin.getUsersInCabin().get(0);
+    }
+
+    @Benchmark
+    public void isThereUserInElevatorDirection(Blackhole blackhole) {
+        blackhole.consume(cabin.isThereUserInElevatorDirection(Direction.UP));
+        blackhole.consume(cabin.isThereUserInElevatorDirection(Direction.DOWN));
+    }
+
+    @Benchmark
+    public void calculateBestScore(Blackhole blackhole) {
+        blackhole.consume(ElevatorMathUtil.calculateBestScore(waitingUser, floors / 2));
+        blackhole.consume(ElevatorMathUtil.calculateBestScore(ridingUser, floors / 2));
+    }
+
+    @Benchmark
+    public void scoreTable(Blackhole blackhole) {
+        blackhole.consume(scoreTable.score(waitingUser, floors / 2));
+        blackhole.consume(scoreTable.score(ridingUser, floors / 2));
+    }
+
+    @Benchmark
+    public int scoreAll() {
+        return scoreTable.scoreAll(cabin.getUsersWaitingCabin(), floors / 2)
+                + scoreTable.scoreAll(cabin.getUsersInCabin(), floors / 2);
+    }
+}
@@ -0,0 +1,109 @@
+package fr.elevator.benchmark;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import fr.elevator.model.CabinModel;
+import fr.elevator.model.ElevatorModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model entry points, for a building of cabinCount cabins on floors floors with
+ * queueDepth users waiting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=log4j-benchmark.xml")
+public class ElevatorModelBenchmark {
+
+    @Param({"2", "8", "32"})
+    int cabinCount;
+
+    @Param({"20", "100"})
+    int floors;
+
+    @Param({"10", "100", "1000"})
+    int queueDepth;
+
+    private ElevatorModel model;
+    private Random random;
+
+    private int calls;
+
+    // Floor of the first cabin, where users board and exit for floorToGoAndExit
+    private int boardingFloor;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        model = ElevatorModel.newInstance();
+        model.setLowerFloor(0);
+        model.setHigherFloor(floors - 1);
+        model.setCabinSize(Math.max(10, queueDepth));
+        model.setCabinCount(cabinCount);
+        model.reset();
+
+        random = new Random(42);
+        for (int i = 0; i < queueDepth; i++) {
+            call();
+        }
+        model.findNextCommand();
+
+        calls = 0;
+        boardingFloor = model.getCabinsList().get(0).getCurrentFloor();
+    }
+
+    @Benchmark
+    public List<CabinCommand> findNextCommand() {
+        return model.findNextCommand();
+    }
+
+    /**
+     * Calls are only queued until the next tick : the model is reset every
+     * queueDepth calls to keep the queue depth bounded.
+     */
+    @Benchmark
+    public void callAtFloor() {
+        call();
+        if ( ++calls == queueDepth ){
+            calls = 0;
+            model.reset();
+        }
+    }
+
+    /**
+     * A user boards the first cabin and leaves it at once, next to queueDepth other users.
+     */
+    @Benchmark
+    public void floorToGoAndExit() {
+        CabinModel cabin = model.getCabinsList().get(0);
+        synchronized (cabin) {
+            cabin.getUsersWaitingCabin().add(new User(boardingFloor, Direction.DOWN));
+        }
+        model.floorToGo(boardingFloor, 0);
+        model.userHasExited(0);
+    }
+
+    private void call() {
+        int floor = random.nextInt(floors);
+        Direction direction = (floor == 0 || floor < floors - 1 && random.nextBoolean()) ? Direction.UP : Direction.DOWN;
+        model.callAtFloor(floor, direction);
+    }
+}
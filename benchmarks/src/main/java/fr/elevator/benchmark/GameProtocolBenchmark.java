@@ -0,0 +1,160 @@
+package fr.elevator.benchmark;
+
+import com.sun.jersey.api.core.DefaultResourceConfig;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import com.sun.jersey.spi.container.WebApplication;
+import com.sun.jersey.spi.container.WebApplicationFactory;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.ws.ElevatorRestService;
+import fr.elevator.ws.GameProtocol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Events of the game protocol served by Jersey (/rest/elevator/*) and by the
+ * {@link GameProtocol} (/elevator/*), in process : no socket, no servlet container.
+ *
+ * Jersey is given ready made URIs, which its servlet container builds for each
+ * request, so the difference is a lower bound of what the Jersey path costs.
+ * userHasEntered does nothing in the model, it measures the protocol alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// The JAXB providers of Jersey would otherwise define classes through reflection, refused by recent JVMs
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j.configuration=log4j-benchmark.xml", "-Dcom.sun.xml.bind.v2.bytecode.ClassTailor.noOptimize=true"})
+public class GameProtocolBenchmark {
+
+    private static final int FLOORS = 20;
+
+    // Calls are only queued until the next tick : the model is reset every RESET_EVERY calls
+    private static final int RESET_EVERY = 1000;
+
+    private static final URI BASE_URI = URI.create("http://localhost/rest/");
+
+    private ElevatorModel model;
+
+    private WebApplication jersey;
+    private final StatusWriter statusWriter = new StatusWriter();
+
+    private GameProtocol protocol;
+
+    private final URI[] callUris = new URI[FLOORS];
+    private final String[] callQueries = new String[FLOORS];
+    private URI enteredUri;
+
+    private int calls;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // Resources built by Jersey serve the default building
+        model = ElevatorModel.getInstance();
+        model.setLowerFloor(0);
+        model.setHigherFloor(FLOORS - 1);
+        model.setCabinCount(2);
+        model.reset();
+
+        if ( jersey == null ){
+            jersey = WebApplicationFactory.createWebApplication();
+            jersey.initiate(new DefaultResourceConfig(ElevatorRestService.class));
+        }
+        protocol = new GameProtocol(model);
+
+        for (int floor = 0; floor < FLOORS; floor++) {
+            callQueries[floor] = "atFloor=" + floor + "&to=" + (floor == FLOORS - 1 ? "DOWN" : "UP");
+            callUris[floor] = BASE_URI.resolve("elevator/call?" + callQueries[floor]);
+        }
+        enteredUri = BASE_URI.resolve("elevator/userHasEntered?cabin=0");
+        calls = 0;
+    }
+
+    @Benchmark
+    public int jerseyCall() throws IOException {
+        int status = jersey(callUris[nextFloor()]);
+        resetEveryCalls();
+        return status;
+    }
+
+    @Benchmark
+    public int directCall() {
+        int status = protocol.event("/call", callQueries[nextFloor()]);
+        resetEveryCalls();
+        return status;
+    }
+
+    @Benchmark
+    public int jerseyUserHasEntered() throws IOException {
+        return jersey(enteredUri);
+    }
+
+    @Benchmark
+    public int directUserHasEntered() {
+        return protocol.event("/userHasEntered", "cabin=0");
+    }
+
+    private int jersey(URI requestUri) throws IOException {
+        ContainerRequest request = new ContainerRequest(jersey, "GET", BASE_URI, requestUri,
+                new InBoundHeaders(), new ByteArrayInputStream(new byte[0]));
+        jersey.handleRequest(request, statusWriter);
+        return statusWriter.status;
+    }
+
+    private int nextFloor() {
+        return calls % FLOORS;
+    }
+
+    private void resetEveryCalls() {
+        if ( ++calls == RESET_EVERY ){
+            calls = 0;
+            model.reset();
+        }
+    }
+
+    /**
+     * Keeps the status, drops the body.
+     */
+    private static class StatusWriter implements ContainerResponseWriter {
+
+        private static final OutputStream DISCARD = new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+
+        int status;
+
+        @Override
+        public OutputStream writeStatusAndHeaders(long contentLength, ContainerResponse response) {
+            status = response.getStatus();
+            return DISCARD;
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+}
@@ -1,56 +1,82 @@
 package fr.elevator.common;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * User: zizou
+ *
+ * Every field is primitive so that the per tick updates (wait time, travel time,
+ * score) allocate nothing. The floor to go uses NO_FLOOR until the user enters.
  */
 public class User {
 
+    // Floor to go of a user not yet in a cabin
+    public static final int NO_FLOOR = Integer.MIN_VALUE;
+
+    private static final AtomicLong USER_ID = new AtomicLong();
+
+    // Identifies the user across snapshots, for the dashboard
+    private final long id;
+
     // For score purpose
-    private Integer waitTime;
-    private Integer travelTime;
+    private int waitTime;
+    private int travelTime;
 
     // When user call elevator
-    private Integer comingFrom;
+    private int comingFrom;
     private Direction direction;
 
     // When user enter elevator
-    private Integer floorToGo;
+    private int floorToGo = NO_FLOOR;
 
     // best score that user can still score
-    private Double stillCanScore;
+    private double stillCanScore;
 
     // User request taken into Account
     private boolean hasElevator;
 
-    public User(Integer commingFrom, Direction direction) {
+    public User(int commingFrom, Direction direction) {
+        this.id = USER_ID.incrementAndGet();
         this.comingFrom = commingFrom;
         this.direction = direction;
-        this.waitTime = 0;
-        this.travelTime = 0;
-        this.stillCanScore = 0D;
     }
 
-    public Integer getWaitTime() {
+    public User(User user) {
+        this.id = user.id;
+        this.waitTime = user.waitTime;
+        this.travelTime = user.travelTime;
+        this.comingFrom = user.comingFrom;
+        this.direction = user.direction;
+        this.floorToGo = user.floorToGo;
+        this.stillCanScore = user.stillCanScore;
+        this.hasElevator = user.hasElevator;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getWaitTime() {
         return waitTime;
     }
 
-    public void setWaitTime(Integer waitTime) {
+    public void setWaitTime(int waitTime) {
         this.waitTime = waitTime;
     }
 
-    public Integer getTravelTime() {
+    public int getTravelTime() {
         return travelTime;
     }
 
-    public void setTravelTime(Integer travelTime) {
+    public void setTravelTime(int travelTime) {
         this.travelTime = travelTime;
     }
 
-    public Integer getComingFrom() {
+    public int getComingFrom() {
         return comingFrom;
     }
 
-    public void setComingFrom(Integer comingFrom) {
+    public void setComingFrom(int comingFrom) {
         this.comingFrom = comingFrom;
     }
 
@@ -62,23 +88,39 @@ public class User {
         this.direction = direction;
     }
 
+    /**
+     * @return floor to go, null until the user enters a cabin
+     */
     public Integer getFloorToGo() {
-        return floorToGo;
+        return hasFloorToGo() ? floorToGo : null;
     }
 
     public void setFloorToGo(Integer floorToGo) {
-        this.floorToGo = floorToGo;
+        this.floorToGo = (floorToGo == null) ? NO_FLOOR : floorToGo;
+    }
+
+    public boolean hasFloorToGo() {
+        return floorToGo != NO_FLOOR;
+    }
+
+    /**
+     * Unboxed floor to go, for the hot path.
+     *
+     * @return floor to go, NO_FLOOR until the user enters a cabin
+     */
+    public int floorToGo() {
+        return floorToGo;
     }
 
     public UserStatus getUserStatus() {
-        return (floorToGo == null) ? UserStatus.WAITING : UserStatus.IN_ELEVATOR ;
+        return hasFloorToGo() ? UserStatus.IN_ELEVATOR : UserStatus.WAITING;
     }
 
-    public Double getStillCanScore() {
+    public double getStillCanScore() {
         return stillCanScore;
     }
 
-    public void setStillCanScore(Double stillCanScore) {
+    public void setStillCanScore(double stillCanScore) {
         this.stillCanScore = stillCanScore;
     }
 
@@ -95,7 +137,7 @@ public class User {
         return "User{" +
                 "stillCanScore=" + stillCanScore +
                 ", comingFrom="+ comingFrom +
-                ", floorToGo=" + floorToGo +
+                ", floorToGo=" + getFloorToGo() +
                 '}';
     }
 }
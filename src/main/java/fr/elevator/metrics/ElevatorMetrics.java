@@ -0,0 +1,86 @@
+package fr.elevator.metrics;
+
+import com.google.common.util.concurrent.AtomicDouble;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics recorded by the model and the web layer :
+ * - duration of findNextCommand and of each REST endpoint,
+ * - wait and travel time of the users, recorded when they exit,
+ * - score accrued between two ticks.
+ *
+ * Recording never takes a lock. Gauges (cabin occupancy, queue lengths) are not
+ * kept here : they are read from the model when the metrics are exported.
+ */
+public class ElevatorMetrics {
+
+    // From 1 micro second to 10 seconds, in nanos
+    private static final long[] LATENCY_BOUNDS = Histogram.oneTwoFive(TimeUnit.MICROSECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(10));
+
+    // In ticks
+    private static final long[] TIME_BOUNDS = Histogram.oneTwoFive(1, 500);
+
+    private static final long[] SCORE_BOUNDS = Histogram.oneTwoFive(1, 1000);
+
+    private final Histogram tickDuration = new Histogram(LATENCY_BOUNDS);
+
+    private final ConcurrentMap<String, Histogram> endpointDurations = new ConcurrentHashMap<>();
+
+    private final Histogram waitTime = new Histogram(TIME_BOUNDS);
+    private final Histogram travelTime = new Histogram(TIME_BOUNDS);
+
+    private final Histogram scorePerTick = new Histogram(SCORE_BOUNDS);
+    private final AtomicDouble scoreAtLastTick = new AtomicDouble();
+
+    /**
+     * @param totalScore score of the model at the end of the tick
+     */
+    public void tickEnded(long durationNanos, double totalScore) {
+        tickDuration.record(durationNanos);
+
+        double previous = scoreAtLastTick.getAndSet(totalScore);
+        // The score went back to 0 on a reset
+        double accrued = (totalScore >= previous) ? totalScore - previous : totalScore;
+        scorePerTick.record(Math.round(accrued));
+    }
+
+    public void userExited(int waitTime, int travelTime) {
+        this.waitTime.record(waitTime);
+        this.travelTime.record(travelTime);
+    }
+
+    public void endpointCalled(String endpoint, long durationNanos) {
+        Histogram histogram = endpointDurations.get(endpoint);
+        if ( histogram == null ){
+            Histogram created = new Histogram(LATENCY_BOUNDS);
+            histogram = endpointDurations.putIfAbsent(endpoint, created);
+            if ( histogram == null ) histogram = created;
+        }
+        histogram.record(durationNanos);
+    }
+
+    public Histogram getTickDuration() {
+        return tickDuration;
+    }
+
+    public Map<String, Histogram> getEndpointDurations() {
+        return Collections.unmodifiableMap(endpointDurations);
+    }
+
+    public Histogram getWaitTime() {
+        return waitTime;
+    }
+
+    public Histogram getTravelTime() {
+        return travelTime;
+    }
+
+    public Histogram getScorePerTick() {
+        return scorePerTick;
+    }
+}
@@ -0,0 +1,141 @@
+package fr.elevator.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram with fixed buckets, striped like {@link StripedCounter} : recording
+ * a value is a bucket lookup and two additions in the cell of the current thread.
+ *
+ * Bucket i counts the values lower or equal to upperBounds[i] and greater than
+ * the previous bound, the last bucket counts the values above every bound.
+ */
+public final class Histogram {
+
+    private final long[] upperBounds;
+
+    // Per stripe : one count per bucket, the sum, then padding up to the next stripe
+    private final int stride;
+    private final AtomicLongArray cells;
+
+    public Histogram(long... upperBounds) {
+        this.upperBounds = upperBounds.clone();
+        this.stride = upperBounds.length + 2 + StripedCounter.PADDING;
+        this.cells = new AtomicLongArray(StripedCounter.STRIPES * stride);
+    }
+
+    /**
+     * Bounds 1, 2, 5, 10, 20, 50... from first up to last.
+     */
+    public static long[] oneTwoFive(long first, long last) {
+        long[] bounds = new long[64];
+        int count = 0;
+        for (long decade = first; decade <= last; decade *= 10) {
+            for (long factor : new long[]{1, 2, 5}) {
+                if ( decade * factor <= last ) bounds[count++] = decade * factor;
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    public void record(long value) {
+        int base = StripedCounter.stripe() * stride;
+        cells.getAndIncrement(base + bucketOf(value));
+        cells.getAndAdd(base + upperBounds.length + 1, value);
+    }
+
+    private int bucketOf(long value) {
+        int low = 0;
+        int high = upperBounds.length;
+        while ( low < high ){
+            int middle = (low + high) >>> 1;
+            if ( upperBounds[middle] < value ){
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    long[] upperBounds() {
+        return upperBounds;
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[upperBounds.length + 1];
+        long sum = 0;
+        for (int stripe = 0; stripe < StripedCounter.STRIPES; stripe++) {
+            int base = stripe * stride;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                counts[bucket] += cells.get(base + bucket);
+            }
+            sum += cells.get(base + counts.length);
+        }
+        return new Snapshot(upperBounds, counts, sum);
+    }
+
+    /**
+     * Counts read at one point in time, only roughly consistent with each other
+     * when values are recorded while reading.
+     */
+    public static final class Snapshot {
+
+        private final long[] upperBounds;
+        private final long[] counts;
+        private final long sum;
+        private final long count;
+
+        private Snapshot(long[] upperBounds, long[] counts, long sum) {
+            this.upperBounds = upperBounds;
+            this.counts = counts;
+            this.sum = sum;
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.count = total;
+        }
+
+        public int bucketCount() {
+            return counts.length;
+        }
+
+        /**
+         * @return upper bound of the bucket, Long.MAX_VALUE for the last one
+         */
+        public long upperBound(int bucket) {
+            return bucket < upperBounds.length ? upperBounds[bucket] : Long.MAX_VALUE;
+        }
+
+        public long countAt(int bucket) {
+            return counts[bucket];
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return upper bound of the bucket holding the quantile, 0 when empty
+         */
+        public long quantile(double quantile) {
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length; bucket++) {
+                seen += counts[bucket];
+                if ( seen >= rank && seen > 0 ) return upperBound(bucket);
+            }
+            return 0;
+        }
+    }
+}
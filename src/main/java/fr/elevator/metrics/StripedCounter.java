@@ -0,0 +1,58 @@
+package fr.elevator.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter spread over several cells, each thread adding to its own cell, so
+ * that threads counting at the same time do not fight for one cache line.
+ * Reading sums the cells : cheap to update, a bit more expensive to read.
+ */
+public final class StripedCounter {
+
+    // Longs per cell, so that two cells never share a 64 bytes cache line
+    static final int PADDING = 8;
+
+    static final int STRIPES = stripeCount();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(stripe() * PADDING, delta);
+    }
+
+    /**
+     * Replaces the sum, as on reset : adds of other threads at the same time may be lost.
+     */
+    public void set(long value) {
+        for (int i = 1; i < STRIPES; i++) {
+            cells.set(i * PADDING, 0);
+        }
+        cells.set(0, value);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * @return the cell of the current thread, in [0, STRIPES)
+     */
+    static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) (id ^ (id >>> 16)) & (STRIPES - 1);
+    }
+
+    private static int stripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = Integer.highestOneBit(Math.max(2, processors - 1) << 1);
+        return Math.min(stripes, 64);
+    }
+}
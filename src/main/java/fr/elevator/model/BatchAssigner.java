@@ -0,0 +1,200 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import fr.elevator.common.User;
+import fr.elevator.util.ElevatorMathUtil;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Per tick re-optimisation of the users not yet in a cabin.
+ *
+ * Every waiting user (assigned to a cabin or not) and every cabin form an
+ * assignment problem : a user is worth the score expected from the cabin time of
+ * arrival, and a cabin takes at most as many users as it has spare seats. It is
+ * solved with an auction : users bid for their best cabin, a full cabin gives its
+ * lowest bidder back, until everybody is placed or the time budget is spent.
+ *
+ * A user only moves when the new cabin is strictly better than the current one.
+ * Called with the dispatch lock held.
+ */
+class BatchAssigner {
+
+    // Minimal bid increment, makes the auction terminate
+    private static final double EPSILON = 0.1;
+
+    private final EtaCostDispatcher estimator = new EtaCostDispatcher();
+
+    private final long budgetNanos;
+
+    BatchAssigner(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * @return users still without cabin
+     */
+    List<User> reassign(List<CabinModel> cabins, List<User> waitingUsers) {
+        long deadline = System.nanoTime() + budgetNanos;
+        int cabinCount = cabins.size();
+
+        // Users and their current cabin (-1 for none)
+        List<User> users = Lists.newArrayList();
+        List<Integer> currentCabins = Lists.newArrayList();
+        int[] capacities = new int[cabinCount];
+        for (int c = 0; c < cabinCount; c++) {
+            CabinModel cabin = cabins.get(c);
+            synchronized (cabin) {
+                capacities[c] = cabin.isFull() ? 0 : cabin.spareSeats();
+                for (User user : cabin.getUsersWaitingCabin()) {
+                    users.add(user);
+                    currentCabins.add(c);
+                }
+            }
+        }
+        for (User user : waitingUsers) {
+            users.add(user);
+            currentCabins.add(-1);
+        }
+        if ( users.isEmpty() ) return waitingUsers;
+
+        double[][] gains = new double[users.size()][cabinCount];
+        for (int c = 0; c < cabinCount; c++) {
+            CabinModel cabin = cabins.get(c);
+            synchronized (cabin) {
+                for (int u = 0; u < users.size(); u++) {
+                    gains[u][c] = (capacities[c] == 0) ? Double.NEGATIVE_INFINITY : gain(cabin, users.get(u));
+                }
+            }
+            if ( System.nanoTime() > deadline ) return waitingUsers;
+        }
+
+        int[] won = auction(gains, capacities, deadline);
+
+        return move(cabins, users, currentCabins, gains, won);
+    }
+
+    private double gain(CabinModel cabin, User user) {
+        int ticks = estimator.estimatePickUp(cabin, user.getComingFrom(), user.getDirection()).ticks;
+        return ElevatorMathUtil.waitingScore(user.getWaitTime() + ticks);
+    }
+
+    /**
+     * @return for each user the cabin won, -1 when none
+     */
+    private int[] auction(double[][] gains, int[] capacities, long deadline) {
+        int userCount = gains.length;
+        int cabinCount = capacities.length;
+
+        int[] won = new int[userCount];
+        List<PriorityQueue<Bid>> holders = Lists.newArrayListWithCapacity(cabinCount);
+        for (int c = 0; c < cabinCount; c++) {
+            holders.add(new PriorityQueue<Bid>());
+        }
+
+        Deque<Integer> bidders = new ArrayDeque<>();
+        for (int u = 0; u < userCount; u++) {
+            won[u] = -1;
+            bidders.add(u);
+        }
+
+        while ( !bidders.isEmpty() && System.nanoTime() < deadline ){
+            int u = bidders.poll();
+
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double secondValue = Double.NEGATIVE_INFINITY;
+            for (int c = 0; c < cabinCount; c++) {
+                double value = gains[u][c] - price(holders.get(c), capacities[c]);
+                if ( value > bestValue ){
+                    secondValue = bestValue;
+                    bestValue = value;
+                    best = c;
+                } else if ( value > secondValue ){
+                    secondValue = value;
+                }
+            }
+            // Nothing worth it left, the user keeps its current cabin
+            if ( best < 0 || bestValue < 0 ) continue;
+
+            double increment = Double.isInfinite(secondValue) ? EPSILON : bestValue - secondValue + EPSILON;
+            PriorityQueue<Bid> cabinHolders = holders.get(best);
+            cabinHolders.add(new Bid(u, price(cabinHolders, capacities[best]) + increment));
+            won[u] = best;
+
+            if ( cabinHolders.size() > capacities[best] ){
+                Bid outbid = cabinHolders.poll();
+                won[outbid.user] = -1;
+                bidders.add(outbid.user);
+            }
+        }
+        return won;
+    }
+
+    private static double price(PriorityQueue<Bid> holders, int capacity) {
+        if ( capacity == 0 ) return Double.POSITIVE_INFINITY;
+        return (holders.size() < capacity) ? 0 : holders.peek().amount;
+    }
+
+    private List<User> move(List<CabinModel> cabins, List<User> users, List<Integer> currentCabins, double[][] gains, int[] won) {
+        Map<User, Boolean> placed = new IdentityHashMap<>();
+
+        for (int u = 0; u < users.size(); u++) {
+            int from = currentCabins.get(u);
+            int to = won[u];
+            if ( to < 0 || to == from ) continue;
+            if ( from >= 0 && gains[u][to] <= gains[u][from] ) continue;
+
+            User user = users.get(u);
+            if ( from >= 0 ){
+                CabinModel previous = cabins.get(from);
+                synchronized (previous) {
+                    // The user may have entered meanwhile
+                    if ( !previous.removeUserFromWaitingList(user) ) continue;
+                }
+            }
+            CabinModel next = cabins.get(to);
+            synchronized (next) {
+                next.getUsersWaitingCabin().add(user);
+            }
+            TransitionLog.assigned(user, next);
+            placed.put(user, Boolean.TRUE);
+        }
+
+        return usersStillWithoutCabin(users, currentCabins, placed);
+    }
+
+    private static List<User> usersStillWithoutCabin(List<User> users, List<Integer> currentCabins, Map<User, Boolean> placed) {
+        List<User> stillWaiting = Lists.newArrayList();
+        for (int u = 0; u < users.size(); u++) {
+            if ( currentCabins.get(u) < 0 && !placed.containsKey(users.get(u)) ){
+                stillWaiting.add(users.get(u));
+            }
+        }
+        return stillWaiting;
+    }
+
+    private static class Bid implements Comparable<Bid> {
+        final int user;
+        final double amount;
+
+        Bid(int user, double amount) {
+            this.user = user;
+            this.amount = amount;
+        }
+
+        @Override
+        public int compareTo(Bid other) {
+            return Double.compare(amount, other.amount);
+        }
+    }
+}
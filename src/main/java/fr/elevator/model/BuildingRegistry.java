@@ -0,0 +1,76 @@
+package fr.elevator.model;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Independent elevator models, one per building, so that one server can host
+ * several games at once.
+ *
+ * A building is created by {@link #getOrCreate(String)}, on the reset of its game,
+ * up to MAX_BUILDINGS, and forgotten by {@link #remove(String)}. Other lookups of an
+ * unknown id find nothing. The DEFAULT_BUILDING is the model of
+ * {@link ElevatorModel#getInstance()}, served by the routes without building id.
+ *
+ * Each building keeps its own locks, so ticks of different buildings, asked by their
+ * own game servers, never wait for each other. The REST routes and the metrics serve
+ * every building ; the dashboard stream, JMX, /elevator/*, the journal and the capture
+ * only serve the default one.
+ */
+public class BuildingRegistry {
+
+    public static final String DEFAULT_BUILDING = "default";
+
+    public static final int MAX_BUILDINGS = 64;
+
+    private final ConcurrentMap<String, ElevatorModel> buildings = new ConcurrentHashMap<>();
+
+    private final int maxBuildings;
+
+    BuildingRegistry(ElevatorModel defaultBuilding, int maxBuildings) {
+        buildings.put(DEFAULT_BUILDING, defaultBuilding);
+        this.maxBuildings = maxBuildings;
+    }
+
+    private static class InstanceHolder {
+        private static final BuildingRegistry INSTANCE = new BuildingRegistry(ElevatorModel.getInstance(), MAX_BUILDINGS);
+    }
+
+    public static BuildingRegistry getInstance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * @return the model of the building, null when it has not been created
+     */
+    public ElevatorModel get(String buildingId) {
+        return buildings.get(buildingId);
+    }
+
+    /**
+     * @return the model of the building, created when it does not exist yet,
+     *         null when the registry already holds its maximum of buildings
+     */
+    public synchronized ElevatorModel getOrCreate(String buildingId) {
+        ElevatorModel model = buildings.get(buildingId);
+        if ( model == null && buildings.size() < maxBuildings ){
+            model = ElevatorModel.newInstance();
+            buildings.put(buildingId, model);
+        }
+        return model;
+    }
+
+    /**
+     * Forget a building, the default one is never removed.
+     */
+    public boolean remove(String buildingId) {
+        return !DEFAULT_BUILDING.equals(buildingId) && buildings.remove(buildingId) != null;
+    }
+
+    public Map<String, ElevatorModel> getBuildings() {
+        return ImmutableMap.copyOf(buildings);
+    }
+}
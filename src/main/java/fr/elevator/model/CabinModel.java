@@ -1,14 +1,10 @@
 package fr.elevator.model;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import fr.elevator.common.CabinCommand;
 import fr.elevator.common.Direction;
 import fr.elevator.common.User;
-import fr.elevator.util.ElevatorMathUtil;
+import fr.elevator.util.ScoreTable;
 
 import java.util.List;
 
@@ -19,6 +15,13 @@ public class CabinModel {
 
     public static final double THREESHOLD = 0.8;
 
+    static final int NO_PARKING = Integer.MIN_VALUE;
+
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    // Time a search may take when the cabin is not given one by its model
+    static final long DEFAULT_SEARCH_SLICE_NANOS = 1000000L;
+
     // Cabin id
     private int id;
 
@@ -28,6 +31,13 @@ public class CabinModel {
     // All users waiting this cabin
     private List<User> usersWaitingCabin;
 
+    // Users waiting this cabin, by floor they are calling from
+    private final UserFloorIndex usersWaitingUp;
+    private final UserFloorIndex usersWaitingDown;
+
+    // Users in this cabin, by floor they are going to
+    private final UserFloorIndex usersInCabinByFloorToGo;
+
     private int currentFloor;
 
     private boolean doorOpened;
@@ -35,28 +45,90 @@ public class CabinModel {
 
     private Direction elevatorDirection;
 
+    // Floor where to wait for the next call when empty, set at each tick by the ParkingPlanner
+    private int parkingFloor = NO_PARKING;
+
+    // Stops of the users in or waiting this cabin, maintained on add and remove
+    private final CabinRoute route;
+
+    private CommandPolicy commandPolicy = CommandPolicy.SCORE;
+
+    // Bounds of the next command search, set at each tick by the model
+    private long searchDeadline = NO_DEADLINE;
+    private long searchSliceNanos = DEFAULT_SEARCH_SLICE_NANOS;
+
     private int lowerFloor;
 
     private int higherFloor;
     private int cabinSize;
-    static int CABIN_ID = 0;
+    private int cabinThreeshold;
 
-    private static final Predicate<User> USER_WITH_SCORE_PREDICATE = new Predicate<User>() {
-        @Override
-        public boolean apply(User input) {
-            return input.getStillCanScore() > 0;
-        }
-    };
+    // Thresholds of the score policy
+    private CabinTuning tuning = CabinTuning.DEFAULT;
+
+    // Users in or waiting this cabin that can still score, maintained on add, remove and score update
+    private int usersWithScore;
+
+    // Indexes that hold a floor to reach, walked by farthestPendingFloor
+    private final UserFloorIndex[] pendingFloorIndexes;
+
+    // Score lookup tables of the floor range
+    private final ScoreTable scoreTable;
+
+    // Facts gathered by the last score update, read by findNextCommand
+    private final CabinTickFacts tickFacts = new CabinTickFacts();
 
     public CabinModel(int lowerFloor, int higherFloor, int cabinSize) {
+        this(0, lowerFloor, higherFloor, cabinSize);
+    }
+
+    /**
+     * @param id index of the cabin in its building, as used by the game server
+     */
+    public CabinModel(int id, int lowerFloor, int higherFloor, int cabinSize) {
+        this.id = id;
         this.lowerFloor = lowerFloor;
         this.higherFloor = higherFloor;
         this.cabinSize = cabinSize;
+        this.cabinThreeshold = tuning.almostFullThreshold(cabinSize);
+        this.scoreTable = ScoreTable.forFloors(lowerFloor, higherFloor);
         elevatorDirection = Direction.UP;
         currentFloor = 0;
-        usersInCabin = Lists.newArrayList();
-        usersWaitingCabin = Lists.newArrayList();
-        setId(CABIN_ID++);
+        usersWaitingUp = new UserFloorIndex(lowerFloor, higherFloor);
+        usersWaitingDown = new UserFloorIndex(lowerFloor, higherFloor);
+        usersInCabinByFloorToGo = new UserFloorIndex(lowerFloor, higherFloor);
+        pendingFloorIndexes = new UserFloorIndex[]{usersInCabinByFloorToGo, usersWaitingUp, usersWaitingDown};
+        route = new CabinRoute(lowerFloor, higherFloor);
+        usersInCabin = new IndexedUserList(new IndexedUserList.Listener() {
+            @Override
+            public void userAdded(User user) {
+                usersInCabinByFloorToGo.add(user.floorToGo(), user);
+                route.riderAdded(user.floorToGo());
+                if ( canScore(user) ) usersWithScore++;
+            }
+
+            @Override
+            public void userRemoved(User user) {
+                usersInCabinByFloorToGo.remove(user.floorToGo(), user);
+                route.riderRemoved(user.floorToGo());
+                if ( canScore(user) ) usersWithScore--;
+            }
+        });
+        usersWaitingCabin = new IndexedUserList(new IndexedUserList.Listener() {
+            @Override
+            public void userAdded(User user) {
+                waitingIndex(user.getDirection()).add(user.getComingFrom(), user);
+                route.waitingAdded(user.getComingFrom(), user.getDirection());
+                if ( canScore(user) ) usersWithScore++;
+            }
+
+            @Override
+            public void userRemoved(User user) {
+                waitingIndex(user.getDirection()).remove(user.getComingFrom(), user);
+                route.waitingRemoved(user.getComingFrom(), user.getDirection());
+                if ( canScore(user) ) usersWithScore--;
+            }
+        });
     }
 
     public List<User> getUsersInCabin() {
@@ -64,7 +136,8 @@ public class CabinModel {
     }
 
     public void setUsersInCabin(List<User> usersInCabin) {
-        this.usersInCabin = usersInCabin;
+        this.usersInCabin.clear();
+        this.usersInCabin.addAll(usersInCabin);
     }
 
     public int getCurrentFloor() {
@@ -107,6 +180,14 @@ public class CabinModel {
 
         updateScore();
 
+        if ( commandPolicy == CommandPolicy.LOOK ){
+            return nextCommandOfRoute();
+        }
+
+        if ( commandPolicy == CommandPolicy.SEARCH ){
+            return nextCommandOfSearch();
+        }
+
         if ( doorOpened ){
             closeElevatorDoor();
             return CabinCommand.CLOSE;
@@ -128,10 +209,10 @@ public class CabinModel {
                     ? CabinCommand.OPEN_UP : CabinCommand.OPEN_DOWN;
         }
 
-        boolean thereUserInElevatorDirection = isThereUserInElevatorDirection(elevatorDirection);
+        boolean thereUserInElevatorDirection = isThereUserInElevatorDirectionThisTick(elevatorDirection);
 
         if ( lastCommand != CabinCommand.CLOSE &&
-                (isThereUserWithScoreThatCanLeaveElevator() || ( isThereUserWithPositiveThatCanTakeTheElevator() && usersInCabin.size() < cabinSize)))
+                (tickFacts.scoringUserCanLeave || ( tickFacts.scoringUserCanEnter && usersInCabin.size() < cabinSize)))
         {
             openElevatorDoor();
 
@@ -148,6 +229,14 @@ public class CabinModel {
         }
 
         if ( isCabinEmpty()){
+            if ( parkingFloor != NO_PARKING && parkingFloor != currentFloor ){
+                if ( parkingFloor > currentFloor ){
+                    up();
+                    return CabinCommand.UP;
+                }
+                down();
+                return CabinCommand.DOWN;
+            }
             lastCommand = CabinCommand.NOTHING;
             return CabinCommand.NOTHING;
         }
@@ -180,8 +269,87 @@ public class CabinModel {
         return command;
     }
 
+    /**
+     * LOOK : open where the route stops, else go on to the next stop, turning back
+     * when there is none left ahead.
+     */
+    private CabinCommand nextCommandOfRoute() {
+        if ( doorOpened ){
+            closeElevatorDoor();
+            return CabinCommand.CLOSE;
+        }
+
+        boolean full = usersInCabin.size() >= cabinSize;
+
+        // Users that did not board when the door was just closed are left for the next pass
+        if ( lastCommand != CabinCommand.CLOSE && route.stopsAt(currentFloor, elevatorDirection, full) ){
+            openElevatorDoor();
+            return openCommand(elevatorDirection);
+        }
+
+        Direction next = route.nextDirection(currentFloor, elevatorDirection, full);
+        if ( next == null ){
+            if ( isCabinEmpty() && parkingFloor != NO_PARKING && parkingFloor != currentFloor ){
+                next = (parkingFloor > currentFloor) ? Direction.UP : Direction.DOWN;
+            } else {
+                lastCommand = CabinCommand.NOTHING;
+                return CabinCommand.NOTHING;
+            }
+        }
+
+        if ( next != elevatorDirection ){
+            elevatorDirection = next;
+            if ( lastCommand != CabinCommand.CLOSE && route.stopsAt(currentFloor, next, full) ){
+                openElevatorDoor();
+                return openCommand(next);
+            }
+        }
+
+        if ( next == Direction.UP ){
+            up();
+            return CabinCommand.UP;
+        }
+        down();
+        return CabinCommand.DOWN;
+    }
+
+    /**
+     * First command of the best sequence found by a {@link CommandSearch}, the route
+     * command when there was nothing to search or no time left.
+     */
+    private CabinCommand nextCommandOfSearch() {
+        long deadline = System.nanoTime() + searchSliceNanos;
+        if ( searchDeadline != NO_DEADLINE && searchDeadline - deadline < 0 ) deadline = searchDeadline;
+
+        CabinCommand command = CommandSearch.firstCommand(this, lowerFloor, higherFloor, cabinSize, deadline);
+        if ( command == null ) return nextCommandOfRoute();
+
+        switch (command) {
+            case UP:
+                up();
+                break;
+            case DOWN:
+                down();
+                break;
+            case CLOSE:
+                closeElevatorDoor();
+                break;
+            default:
+                elevatorDirection = (command == CabinCommand.OPEN_UP) ? Direction.UP : Direction.DOWN;
+                openElevatorDoor();
+                break;
+        }
+        return command;
+    }
+
+    private CabinCommand openCommand(Direction direction) {
+        if ( currentFloor == lowerFloor ) return CabinCommand.OPEN_UP;
+        if ( currentFloor == higherFloor ) return CabinCommand.OPEN_DOWN;
+        return (direction == Direction.UP) ? CabinCommand.OPEN_UP : CabinCommand.OPEN_DOWN;
+    }
+
     private boolean isCabinEmpty() {
-        return usersInCabin.size() == 0 && usersWaitingCabin.size() == 0;
+        return isEmpty();
     }
 
     public void openElevatorDoor() {
@@ -208,23 +376,13 @@ public class CabinModel {
 
     @VisibleForTesting
     boolean isThereUserWithScoreThatCanLeaveElevator() {
-        for (User user : getUsersInCabin()) {
-            if ( user.getFloorToGo() == getCurrentFloor() && user.getStillCanScore() > 0){
-                return true;
-            }
-        }
-        return false;
+        return isThereUserWithScoreAbove(usersInCabinByFloorToGo.usersAt(currentFloor), 0);
     }
 
     @VisibleForTesting
     boolean isThereUserWithPositiveThatCanTakeTheElevator(){
-        for (User userAsk : getUsersWaitingCabin()) {
-            if (userWaitingInThisFloor(userAsk) && userAsk.getStillCanScore() > 0){
-                return true;
-            }
-        }
-
-        return false;
+        return isThereUserWithScoreAbove(usersWaitingUp.usersAt(currentFloor), 0)
+                || isThereUserWithScoreAbove(usersWaitingDown.usersAt(currentFloor), 0);
     }
 
     @VisibleForTesting
@@ -233,12 +391,7 @@ public class CabinModel {
     }
 
     protected boolean thereIsUserThatCanLeaveTheElevator() {
-        for (User user : getUsersInCabin()) {
-            if ( user.getFloorToGo() == getCurrentFloor()){
-                return true;
-            }
-        }
-        return false;
+        return usersInCabinByFloorToGo.countAt(currentFloor) > 0;
     }
 
     public void addUserInCabin(User user){
@@ -250,80 +403,159 @@ public class CabinModel {
     }
 
     public boolean isThereUserInElevatorDirection(final Direction direction){
+        UserFloorIndex waitingSameDirection = waitingIndex(direction);
+
         if ( !isThereUsersWithScore() || cabinAlmostFull()){
-            Predicate<User> USER_IN_CABIN_DIRECTION_PREDICATE = new Predicate<User>() {
-                @Override
-                public boolean apply(User user) {
-                    if (direction == Direction.UP) {
-                        return currentFloor < user.getFloorToGo();
-                    } else if (direction == Direction.DOWN) {
-                        return currentFloor > user.getFloorToGo();
-                    } else return false;
-                }
-            };
-            Iterable<User> elevatorUsers = Iterables.filter(usersInCabin, USER_IN_CABIN_DIRECTION_PREDICATE);
-            Iterable<User> elevatorUserWaiting = Iterables.filter(usersWaitingCabin, new Predicate<User>() {
-                @Override
-                public boolean apply(User user) {
-                    if (direction == Direction.UP) {
-                        return  (currentFloor < user.getComingFrom()  || currentFloor == user.getComingFrom() && user.getDirection() == Direction.UP);
-                    } else if (direction == Direction.DOWN) {
-                        return  (currentFloor > user.getComingFrom()  || currentFloor == user.getComingFrom() && user.getDirection() == Direction.DOWN);
-                    } else return false;
-                }
-            });
+            if ( waitingSameDirection.countAt(currentFloor) > 0 ) return true;
+
+            Integer farthestFloor = farthestPendingFloor(direction);
+            if ( farthestFloor == null ) return false;
 
-            return Iterables.size(elevatorUsers) > 0 ||
-                    Iterables.size(elevatorUserWaiting) > 0;
+            return (direction == Direction.UP) ? farthestFloor > currentFloor : farthestFloor < currentFloor;
         }
 
-        Iterable<User> elevatorUsers = Iterables.filter(usersInCabin, new Predicate<User>() {
-            @Override
-            public boolean apply(User input) {
-                if (direction == Direction.UP) {
-                    return currentFloor < input.getFloorToGo() && input.getStillCanScore() > 2;
-                } else if (direction == Direction.DOWN) {
-                    return currentFloor > input.getFloorToGo() && input.getStillCanScore() > 2;
-                } else return false;
+        double waitingMinScore = tuning.getWaitingMinScore();
+        return isThereUserWithScoreAbove(usersInCabinByFloorToGo, direction, tuning.getRiderMinScore())
+                || isThereUserWithScoreAbove(usersWaitingUp, direction, waitingMinScore)
+                || isThereUserWithScoreAbove(usersWaitingDown, direction, waitingMinScore)
+                || isThereUserWithScoreAbove(waitingSameDirection.usersAt(currentFloor), waitingMinScore);
+    }
+
+    /**
+     * Same answer as isThereUserInElevatorDirection, using the facts gathered by
+     * the score update of the current tick instead of walking the users again.
+     */
+    private boolean isThereUserInElevatorDirectionThisTick(Direction direction) {
+        if ( !isThereUsersWithScore() || cabinAlmostFull()){
+            return isThereUserInElevatorDirection(direction);
+        }
+        return tickFacts.scoringUserIn(direction);
+    }
+
+    /**
+     * Look for a user with a score strictly greater than minScore on the floors
+     * strictly after the current one in the given direction.
+     */
+    private boolean isThereUserWithScoreAbove(UserFloorIndex index, Direction direction, double minScore) {
+        if ( index.isEmpty() ) return false;
+
+        if (direction == Direction.UP) {
+            for (int floor = currentFloor + 1; floor <= index.highestFloor(); floor++) {
+                if ( isThereUserWithScoreAbove(index.usersAt(floor), minScore) ) return true;
             }
-        });
-        Iterable<User> elevatorUserWaiting = Iterables.filter(usersWaitingCabin, new Predicate<User>() {
-            @Override
-            public boolean apply(User input) {
-                if (direction == Direction.UP) {
-                    return input.getStillCanScore() > 4
-                            && (currentFloor < input.getComingFrom()  || currentFloor == input.getComingFrom() && input.getDirection() == Direction.UP);
-                } else if (direction == Direction.DOWN) {
-                    return input.getStillCanScore() > 4
-                            && (currentFloor > input.getComingFrom()  || currentFloor == input.getComingFrom() && input.getDirection() == Direction.DOWN);
-                } else return false;
+        } else {
+            for (int floor = currentFloor - 1; floor >= index.lowestFloor(); floor--) {
+                if ( isThereUserWithScoreAbove(index.usersAt(floor), minScore) ) return true;
             }
-        });
-
-        return Iterables.size(elevatorUsers) > 0 ||
-                Iterables.size(elevatorUserWaiting) > 0;
+        }
+        return false;
     }
 
-    private boolean cabinAlmostFull() {
-        return usersInCabin.size() > cabinThreeshold();
+    private static boolean isThereUserWithScoreAbove(List<User> users, double minScore) {
+        for (int i = 0; i < users.size(); i++) {
+            if ( users.get(i).getStillCanScore() > minScore ) return true;
+        }
+        return false;
     }
 
-    private int cabinThreeshold() {
-        return Double.valueOf(cabinSize * THREESHOLD).intValue();
+    private boolean cabinAlmostFull() {
+        return usersInCabin.size() > cabinThreeshold;
     }
 
     public boolean isThereUsersWithScore(){
-        Iterable<User> elevatorUsers = Iterables.filter(usersInCabin, USER_WITH_SCORE_PREDICATE);
-        if ( Iterables.size(elevatorUsers) > 0 )
-        {
-            return true;
-        }
-        Iterable<User> elevatorUserWaiting = Iterables.filter(usersWaitingCabin, USER_WITH_SCORE_PREDICATE);
-        if ( Iterables.size(elevatorUserWaiting) > 0 )
-        {
-            return true;
+        return usersWithScore > 0;
+    }
+
+    /**
+     * Farthest floor, in the given direction, where a user of this cabin has to
+     * be picked up or dropped off.
+     *
+     * @return the floor, or null when nobody is in or waiting this cabin
+     */
+    public Integer farthestPendingFloor(Direction direction) {
+        Integer farthestFloor = null;
+        for (UserFloorIndex index : pendingFloorIndexes) {
+            if ( index.isEmpty() ) continue;
+
+            int floor = (direction == Direction.UP) ? index.highestFloor() : index.lowestFloor();
+            if ( farthestFloor == null
+                    || (direction == Direction.UP && floor > farthestFloor)
+                    || (direction == Direction.DOWN && floor < farthestFloor) ){
+                farthestFloor = floor;
+            }
         }
-        return false;
+        return farthestFloor;
+    }
+
+    public CommandPolicy getCommandPolicy() {
+        return commandPolicy;
+    }
+
+    public void setCommandPolicy(CommandPolicy commandPolicy) {
+        this.commandPolicy = commandPolicy;
+    }
+
+    public synchronized CabinTuning getTuning() {
+        return tuning;
+    }
+
+    public synchronized void setTuning(CabinTuning tuning) {
+        this.tuning = tuning;
+        this.cabinThreeshold = tuning.almostFullThreshold(cabinSize);
+    }
+
+    /**
+     * Stops served going in the direction, in the order of a sweep.
+     */
+    public List<Integer> plannedStops(Direction direction) {
+        return route.stops(direction);
+    }
+
+    /**
+     * Ticks before the cabin reaches the floor ready to go the direction, if it follows
+     * its route and nobody else is assigned to it meanwhile.
+     */
+    public int estimatedArrival(int floor, Direction direction) {
+        return route.eta(currentFloor, elevatorDirection, doorOpened, floor, direction);
+    }
+
+    /**
+     * @param deadline   System.nanoTime() at which every search of the tick must be over
+     * @param sliceNanos time the search of this cabin may take
+     */
+    synchronized void searchWithin(long deadline, long sliceNanos) {
+        this.searchDeadline = deadline;
+        this.searchSliceNanos = sliceNanos;
+    }
+
+    void parkAt(int floor) {
+        this.parkingFloor = floor;
+    }
+
+    /**
+     * @return floor where the cabin goes while empty, {@link #NO_PARKING} when it stays
+     */
+    int getParkingFloor() {
+        return parkingFloor;
+    }
+
+    /**
+     * @return seats left for users waiting this cabin
+     */
+    int spareSeats() {
+        return Math.max(0, cabinSize - usersInCabin.size());
+    }
+
+    int countUsersGoingTo(int floor) {
+        return usersInCabinByFloorToGo.countAt(floor);
+    }
+
+    int countUsersWaitingAt(int floor) {
+        return usersWaitingUp.countAt(floor) + usersWaitingDown.countAt(floor);
+    }
+
+    private static boolean canScore(User user) {
+        return user.getStillCanScore() > 0;
     }
 
     public boolean isUserEligibleForCabin(User user){
@@ -344,26 +576,60 @@ public class CabinModel {
     }
 
     public User findUserCallingFromWithDirection(final Direction direction){
-        Iterable<User> userShouldEnter = Iterables.filter(getUsersWaitingCabin(), new Predicate<User>() {
-
-            @Override
-            public boolean apply(User user) {
-                return user.getComingFrom().equals(getCurrentFloor()) && user.getDirection() == direction;
-            }
-        });
+        return waitingIndex(direction).firstAt(currentFloor);
+    }
 
-        return Iterables.getFirst(userShouldEnter, null);
+    private UserFloorIndex waitingIndex(Direction direction) {
+        return (direction == Direction.UP) ? usersWaitingUp : usersWaitingDown;
     }
 
+    /**
+     * Update wait / travel time and score of every user, and gather in the same
+     * pass everything findNextCommand needs to know about them.
+     * Indexed loops, primitive user fields and table scores: nothing is allocated here.
+     */
     public synchronized void updateScore(){
-        for (User user : getUsersWaitingCabin()) {
+        tickFacts.reset();
+
+        // Every score is recomputed here, so recount rather than patch the counter
+        int withScore = 0;
+        for (int i = 0; i < usersWaitingCabin.size(); i++) {
+            User user = usersWaitingCabin.get(i);
             user.setWaitTime(user.getWaitTime() + 1);
-            user.setStillCanScore(ElevatorMathUtil.calculateBestScore(user, getCurrentFloor()));
+            double score = scoreTable.score(user, currentFloor);
+            user.setStillCanScore(score);
+            if ( score <= 0 ) continue;
+
+            withScore++;
+            int comingFrom = user.getComingFrom();
+            if ( comingFrom == currentFloor ) tickFacts.scoringUserCanEnter = true;
+            if ( score > tuning.getWaitingMinScore() ){
+                if ( comingFrom > currentFloor || comingFrom == currentFloor && user.getDirection() == Direction.UP ){
+                    tickFacts.scoringUserUp = true;
+                }
+                if ( comingFrom < currentFloor || comingFrom == currentFloor && user.getDirection() == Direction.DOWN ){
+                    tickFacts.scoringUserDown = true;
+                }
+            }
         }
-        for (User user : usersInCabin) {
+        for (int i = 0; i < usersInCabin.size(); i++) {
+            User user = usersInCabin.get(i);
             user.setTravelTime(user.getTravelTime() + 1);
-            user.setStillCanScore(ElevatorMathUtil.calculateBestScore(user, getCurrentFloor()));
+            double score = scoreTable.score(user, currentFloor);
+            user.setStillCanScore(score);
+            if ( score <= 0 ) continue;
+
+            withScore++;
+            if ( !user.hasFloorToGo() ) continue;
+
+            int floorToGo = user.floorToGo();
+            if ( floorToGo == currentFloor ) tickFacts.scoringUserCanLeave = true;
+            if ( score > tuning.getRiderMinScore() ){
+                if ( floorToGo > currentFloor ) tickFacts.scoringUserUp = true;
+                if ( floorToGo < currentFloor ) tickFacts.scoringUserDown = true;
+            }
         }
+        usersWithScore = withScore;
     }
 
     @Override
@@ -396,23 +662,15 @@ public class CabinModel {
     }
 
     public User findUserThatCanLeave(){
-        Optional<User> user = Iterables.tryFind(getUsersInCabin(), new Predicate<User>() {
-
-            @Override
-            public boolean apply(User user) {
-                if ( user.getFloorToGo() == null ) return false;
-                return user.getFloorToGo().equals(getCurrentFloor());
-            }
-        });
-        return user.orNull();
+        return usersInCabinByFloorToGo.firstAt(currentFloor);
     }
 
     public boolean isEmpty(){
-        return Iterables.isEmpty(getUsersInCabin()) && Iterables.isEmpty(getUsersWaitingCabin());
+        return usersInCabin.isEmpty() && usersWaitingCabin.isEmpty();
     }
 
     public boolean isFull(){
-        return Iterables.size(getUsersInCabin()) == cabinSize;
+        return usersInCabin.size() == cabinSize;
     }
 
 }
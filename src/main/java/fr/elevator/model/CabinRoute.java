@@ -0,0 +1,175 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import fr.elevator.common.Direction;
+
+import java.util.List;
+
+/**
+ * Stops of a cabin, as the LOOK algorithm serves them : the cabin goes on in its
+ * direction while a stop is ahead, stopping where a rider gets off or a user waits
+ * to go the same way, then turns back.
+ *
+ * The stops are counted per floor, riders by the floor they go to and waiting users
+ * by the floor they call from and their direction. Counts are updated as users are
+ * assigned, board and exit (see the user lists of {@link CabinModel}), so that
+ * the stop lists and the route are read without walking the users.
+ *
+ * Guarded by the monitor of the cabin.
+ */
+class CabinRoute {
+
+    // Ticks lost at each stop : open then close
+    static final int STOP_TICKS = EtaCostDispatcher.STOP_TICKS;
+
+    private final int lowerFloor;
+    private final int higherFloor;
+
+    // Number of riders going to, and of users waiting at, each floor
+    private final int[] dropOffs;
+    private final int[] pickUpsUp;
+    private final int[] pickUpsDown;
+
+    CabinRoute(int lowerFloor, int higherFloor) {
+        this.lowerFloor = lowerFloor;
+        this.higherFloor = higherFloor;
+        int floors = Math.max(1, higherFloor - lowerFloor + 1);
+        this.dropOffs = new int[floors];
+        this.pickUpsUp = new int[floors];
+        this.pickUpsDown = new int[floors];
+    }
+
+    void riderAdded(int floor) {
+        update(dropOffs, floor, 1);
+    }
+
+    void riderRemoved(int floor) {
+        update(dropOffs, floor, -1);
+    }
+
+    void waitingAdded(int floor, Direction direction) {
+        update(pickUps(direction), floor, 1);
+    }
+
+    void waitingRemoved(int floor, Direction direction) {
+        update(pickUps(direction), floor, -1);
+    }
+
+    private void update(int[] counts, int floor, int delta) {
+        if ( floor < lowerFloor || floor > higherFloor ) return;
+        counts[floor - lowerFloor] += delta;
+    }
+
+    private int[] pickUps(Direction direction) {
+        return (direction == Direction.UP) ? pickUpsUp : pickUpsDown;
+    }
+
+    /**
+     * @param full true when nobody can board, waiting users are then not worth a stop
+     */
+    boolean stopsAt(int floor, Direction direction, boolean full) {
+        if ( floor < lowerFloor || floor > higherFloor ) return false;
+        int slot = floor - lowerFloor;
+        return dropOffs[slot] > 0 || (!full && pickUps(direction)[slot] > 0);
+    }
+
+    /**
+     * @return true when the cabin has a stop strictly after the floor in the direction, whatever the stop direction
+     */
+    boolean hasStopAfter(int floor, Direction direction, boolean full) {
+        int step = (direction == Direction.UP) ? 1 : -1;
+        for (int f = floor + step; f >= lowerFloor && f <= higherFloor; f += step) {
+            if ( stopsAt(f, Direction.UP, full) || stopsAt(f, Direction.DOWN, full) ) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Direction in which the cabin serves its next stop, the current one if it still
+     * has stops ahead, null when it has nothing to do.
+     */
+    Direction nextDirection(int floor, Direction direction, boolean full) {
+        if ( hasStopAfter(floor, direction, full) ) return direction;
+
+        Direction opposite = opposite(direction);
+        if ( hasStopAfter(floor, opposite, full) || stopsAt(floor, opposite, full) ) return opposite;
+        return null;
+    }
+
+    /**
+     * Stops served while going in the direction, in the order they are reached on a sweep.
+     */
+    List<Integer> stops(Direction direction) {
+        List<Integer> stops = Lists.newArrayList();
+        if ( direction == Direction.UP ){
+            for (int floor = lowerFloor; floor <= higherFloor; floor++) {
+                if ( stopsAt(floor, Direction.UP, false) ) stops.add(floor);
+            }
+        } else {
+            for (int floor = higherFloor; floor >= lowerFloor; floor--) {
+                if ( stopsAt(floor, Direction.DOWN, false) ) stops.add(floor);
+            }
+        }
+        return stops;
+    }
+
+    /**
+     * Ticks before a cabin at the floor, going in the direction, reaches the target
+     * floor ready to go the target direction, when it keeps following its route.
+     */
+    int eta(int floor, Direction direction, boolean doorOpened, int target, Direction targetDirection) {
+        int[] dropOffsLeft = dropOffs.clone();
+        int[] upLeft = pickUpsUp.clone();
+        int[] downLeft = pickUpsDown.clone();
+
+        int ticks = doorOpened ? 1 : 0;
+
+        // Enough for a cabin to reach any floor in any direction
+        for (int sweep = 0; sweep < 3; sweep++) {
+            int step = (direction == Direction.UP) ? 1 : -1;
+            int end = sweepEnd(floor, direction, target, dropOffsLeft, upLeft, downLeft);
+
+            // The turning floor of the previous sweep has already been served
+            for (int f = (sweep == 0) ? floor : floor + step; step * (end - f) >= 0; f += step) {
+                if ( f != floor ) ticks++;
+
+                if ( f == target && (direction == targetDirection || f == end) ) return ticks;
+
+                int slot = f - lowerFloor;
+                if ( slot < 0 || slot >= dropOffsLeft.length ) continue;
+                int[] sameWay = (direction == Direction.UP) ? upLeft : downLeft;
+                int[] otherWay = (direction == Direction.UP) ? downLeft : upLeft;
+                boolean stop = dropOffsLeft[slot] > 0 || sameWay[slot] > 0 || (f == end && otherWay[slot] > 0);
+                if ( stop ){
+                    ticks += STOP_TICKS;
+                    dropOffsLeft[slot] = 0;
+                    sameWay[slot] = 0;
+                    if ( f == end ) otherWay[slot] = 0;
+                }
+            }
+
+            floor = end;
+            direction = opposite(direction);
+        }
+
+        // Not reachable with the known stops, should not happen
+        return ticks + Math.abs(floor - target);
+    }
+
+    /**
+     * Farthest floor with a stop left in the direction, the target included.
+     */
+    private int sweepEnd(int floor, Direction direction, int target, int[] dropOffsLeft, int[] upLeft, int[] downLeft) {
+        int end = floor;
+        for (int f = lowerFloor; f <= higherFloor; f++) {
+            int slot = f - lowerFloor;
+            if ( dropOffsLeft[slot] + upLeft[slot] + downLeft[slot] == 0 ) continue;
+            end = (direction == Direction.UP) ? Math.max(end, f) : Math.min(end, f);
+        }
+        return (direction == Direction.UP) ? Math.max(end, target) : Math.min(end, target);
+    }
+
+    static Direction opposite(Direction direction) {
+        return (direction == Direction.UP) ? Direction.DOWN : Direction.UP;
+    }
+}
@@ -0,0 +1,61 @@
+package fr.elevator.model;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+
+import java.util.List;
+
+/**
+ * Read only copy of a cabin, see {@link ElevatorModelSnapshot}.
+ */
+public class CabinSnapshot {
+
+    private final int id;
+
+    private final List<User> usersInCabin;
+    private final List<User> usersWaitingCabin;
+
+    private final int currentFloor;
+    private final boolean doorOpened;
+    private final CabinCommand lastCommand;
+    private final Direction elevatorDirection;
+
+    CabinSnapshot(CabinModel cabin, List<User> usersInCabin, List<User> usersWaitingCabin) {
+        this.id = cabin.getId();
+        this.usersInCabin = usersInCabin;
+        this.usersWaitingCabin = usersWaitingCabin;
+        this.currentFloor = cabin.getCurrentFloor();
+        this.doorOpened = cabin.isDoorOpened();
+        this.lastCommand = cabin.getLastCommand();
+        this.elevatorDirection = cabin.getElevatorDirection();
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<User> getUsersInCabin() {
+        return usersInCabin;
+    }
+
+    public List<User> getUsersWaitingCabin() {
+        return usersWaitingCabin;
+    }
+
+    public int getCurrentFloor() {
+        return currentFloor;
+    }
+
+    public boolean isDoorOpened() {
+        return doorOpened;
+    }
+
+    public CabinCommand getLastCommand() {
+        return lastCommand;
+    }
+
+    public Direction getElevatorDirection() {
+        return elevatorDirection;
+    }
+}
@@ -0,0 +1,34 @@
+package fr.elevator.model;
+
+import fr.elevator.common.Direction;
+
+/**
+ * What a cabin needs to know about its users to decide its next command,
+ * gathered while the scores are updated so that the decision does not walk
+ * the user lists again.
+ *
+ * Only valid for the floor the cabin was on when the tick started.
+ */
+class CabinTickFacts {
+
+    // A user in the cabin, still scoring, goes to the current floor
+    boolean scoringUserCanLeave;
+
+    // A user waiting at the current floor can still score
+    boolean scoringUserCanEnter;
+
+    // Users worth moving for, in each direction (same thresholds as isThereUserInElevatorDirection)
+    boolean scoringUserUp;
+    boolean scoringUserDown;
+
+    void reset() {
+        scoringUserCanLeave = false;
+        scoringUserCanEnter = false;
+        scoringUserUp = false;
+        scoringUserDown = false;
+    }
+
+    boolean scoringUserIn(Direction direction) {
+        return (direction == Direction.UP) ? scoringUserUp : scoringUserDown;
+    }
+}
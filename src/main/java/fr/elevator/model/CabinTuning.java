@@ -0,0 +1,96 @@
+package fr.elevator.model;
+
+/**
+ * Thresholds of the SCORE command policy, can be chosen on reset.
+ *
+ * Immutable : the cabins of a game share the tuning given by their model at reset.
+ */
+public final class CabinTuning {
+
+    public static final CabinTuning DEFAULT = new CabinTuning(CabinModel.THREESHOLD, 2, 4);
+
+    // Part of the cabin size past which the cabin only serves its riders
+    private final double almostFullRatio;
+
+    // Score a rider, or a waiting user, must still be able to earn for the cabin to move towards it
+    private final double riderMinScore;
+    private final double waitingMinScore;
+
+    public CabinTuning(double almostFullRatio, double riderMinScore, double waitingMinScore) {
+        if ( almostFullRatio < 0 || almostFullRatio > 1 ){
+            throw new IllegalArgumentException("almostFullRatio must be between 0 and 1 : " + almostFullRatio);
+        }
+        if ( riderMinScore < 0 || waitingMinScore < 0 ){
+            throw new IllegalArgumentException("min scores must be positive : " + riderMinScore + ", " + waitingMinScore);
+        }
+        this.almostFullRatio = almostFullRatio;
+        this.riderMinScore = riderMinScore;
+        this.waitingMinScore = waitingMinScore;
+    }
+
+    public double getAlmostFullRatio() {
+        return almostFullRatio;
+    }
+
+    public double getRiderMinScore() {
+        return riderMinScore;
+    }
+
+    public double getWaitingMinScore() {
+        return waitingMinScore;
+    }
+
+    public CabinTuning withAlmostFullRatio(double almostFullRatio) {
+        return new CabinTuning(almostFullRatio, riderMinScore, waitingMinScore);
+    }
+
+    public CabinTuning withRiderMinScore(double riderMinScore) {
+        return new CabinTuning(almostFullRatio, riderMinScore, waitingMinScore);
+    }
+
+    public CabinTuning withWaitingMinScore(double waitingMinScore) {
+        return new CabinTuning(almostFullRatio, riderMinScore, waitingMinScore);
+    }
+
+    /**
+     * Number of riders past which a cabin of the given size is almost full.
+     */
+    int almostFullThreshold(int cabinSize) {
+        return Double.valueOf(cabinSize * almostFullRatio).intValue();
+    }
+
+    /**
+     * @return the query parameters of /reset that apply this tuning
+     */
+    public String toQuery() {
+        return "almostFullRatio=" + almostFullRatio + "&riderMinScore=" + riderMinScore + "&waitingMinScore=" + waitingMinScore;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if ( this == o ) return true;
+        if ( !(o instanceof CabinTuning) ) return false;
+
+        CabinTuning that = (CabinTuning) o;
+        return Double.compare(that.almostFullRatio, almostFullRatio) == 0
+                && Double.compare(that.riderMinScore, riderMinScore) == 0
+                && Double.compare(that.waitingMinScore, waitingMinScore) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        long bits = Double.doubleToLongBits(almostFullRatio);
+        bits = 31 * bits + Double.doubleToLongBits(riderMinScore);
+        bits = 31 * bits + Double.doubleToLongBits(waitingMinScore);
+        return (int) (bits ^ (bits >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "CabinTuning{" +
+                "almostFullRatio=" + almostFullRatio +
+                ", riderMinScore=" + riderMinScore +
+                ", waitingMinScore=" + waitingMinScore +
+                '}';
+    }
+}
@@ -0,0 +1,137 @@
+package fr.elevator.model;
+
+import fr.elevator.common.Direction;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Calls expected per tick at each floor, in each direction, for each time of the day.
+ *
+ * The day is cut in slots of slotTicks ticks, counted from the last reset : a game
+ * starts at the beginning of the day, and the time of the day only depends on the
+ * events, so that journal and capture replays stay exact.
+ * The calls of a tick are folded into the rates of the current slot with an
+ * exponential moving average, a slot keeps what was learnt the previous days.
+ *
+ * Fed and read with the dispatch lock held.
+ */
+class CallDemand {
+
+    // 15 minutes at one tick per second, a day of 96 slots
+    static final int DEFAULT_SLOT_TICKS = 900;
+    static final int DEFAULT_SLOTS = 96;
+
+    // Weight of the last tick in the rates, about the last 50 ticks of the slot count
+    private static final double ALPHA = 0.02;
+
+    private final int lowerFloor;
+    private final int floorCount;
+    private final int slotTicks;
+    private final int slots;
+
+    // [slot][(floor - lowerFloor) * 2 + direction]
+    private final double[][] rates;
+
+    // Calls of the current tick, same layout as a slot
+    private final int[] calls;
+
+    private long ticks;
+
+    CallDemand(int lowerFloor, int higherFloor) {
+        this(lowerFloor, higherFloor, DEFAULT_SLOT_TICKS, DEFAULT_SLOTS);
+    }
+
+    CallDemand(int lowerFloor, int higherFloor, int slotTicks, int slots) {
+        this.lowerFloor = lowerFloor;
+        this.floorCount = higherFloor - lowerFloor + 1;
+        this.slotTicks = slotTicks;
+        this.slots = slots;
+        this.rates = new double[slots][floorCount * 2];
+        this.calls = new int[floorCount * 2];
+    }
+
+    boolean covers(int lowerFloor, int higherFloor) {
+        return this.lowerFloor == lowerFloor && this.floorCount == higherFloor - lowerFloor + 1;
+    }
+
+    void called(int floor, Direction direction) {
+        int index = index(floor, direction);
+        if ( index >= 0 ) calls[index]++;
+    }
+
+    void tickEnded() {
+        double[] slotRates = rates[slot()];
+        for (int i = 0; i < calls.length; i++) {
+            slotRates[i] += ALPHA * (calls[i] - slotRates[i]);
+            calls[i] = 0;
+        }
+        ticks++;
+    }
+
+    /**
+     * A new game starts at the beginning of the day, what was learnt is kept.
+     */
+    void restartDay() {
+        ticks = 0;
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = 0;
+        }
+    }
+
+    int slot() {
+        return (int) ((ticks / slotTicks) % slots);
+    }
+
+    /**
+     * @return calls expected per tick at the floor, both directions, at the current time of the day
+     */
+    double expectedCalls(int floor) {
+        return rate(floor, Direction.UP) + rate(floor, Direction.DOWN);
+    }
+
+    double rate(int floor, Direction direction) {
+        int index = index(floor, direction);
+        return index < 0 ? 0 : rates[slot()][index];
+    }
+
+    int lowerFloor() {
+        return lowerFloor;
+    }
+
+    int higherFloor() {
+        return lowerFloor + floorCount - 1;
+    }
+
+    private int index(int floor, Direction direction) {
+        int slot = floor - lowerFloor;
+        if ( slot < 0 || slot >= floorCount ) return -1;
+        return slot * 2 + direction.ordinal();
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(slotTicks);
+        out.writeInt(slots);
+        out.writeLong(ticks);
+        for (double[] slotRates : rates) {
+            for (double rate : slotRates) {
+                out.writeDouble(rate);
+            }
+        }
+    }
+
+    /**
+     * Read what {@link #write(DataOutput)} wrote for a building of the same floors.
+     */
+    static CallDemand read(DataInput in, int lowerFloor, int higherFloor) throws IOException {
+        CallDemand demand = new CallDemand(lowerFloor, higherFloor, in.readInt(), in.readInt());
+        demand.ticks = in.readLong();
+        for (double[] slotRates : demand.rates) {
+            for (int i = 0; i < slotRates.length; i++) {
+                slotRates[i] = in.readDouble();
+            }
+        }
+        return demand;
+    }
+}
@@ -0,0 +1,23 @@
+package fr.elevator.model;
+
+/**
+ * How a cabin decides its next command, can be chosen on reset.
+ */
+public enum CommandPolicy {
+
+    /**
+     * Historical decision, one step at a time, driven by the score the users can still earn.
+     */
+    SCORE,
+
+    /**
+     * Command read off the route of the cabin, see {@link CabinRoute}.
+     */
+    LOOK,
+
+    /**
+     * First command of the best sequence of next commands, searched within a time budget,
+     * see {@link CommandSearch}.
+     */
+    SEARCH
+}
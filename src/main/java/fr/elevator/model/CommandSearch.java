@@ -0,0 +1,471 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import fr.elevator.util.ElevatorMathUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Beam search over the next commands of a cabin, keeping at each depth the
+ * sequences that can still earn the most from the users the cabin knows.
+ *
+ * A sequence earns the score of the riders it drops at their floor, computed as the
+ * game server does (see {@link #score(int, int, int)}). Users it picks up do not tell
+ * their floor before boarding : they are taken as riders going to the middle of the
+ * floors they can go to. A sequence is valued with what it earned plus, for every
+ * user not dropped yet, the score it would get if the cabin swept on from where the
+ * sequence ends, as LOOK does, losing the ticks of each stop on the way : sequences
+ * are compared on everything they leave to do, and turning back is only worth it
+ * when it earns more than the sweep.
+ *
+ * The search stops at the deadline, the first command of the best sequence of the
+ * last complete depth is played. It only reads the cabin, guarded by its monitor.
+ */
+final class CommandSearch {
+
+    // Commands looked ahead
+    static final int DEPTH = 12;
+
+    // Sequences kept at each depth
+    static final int BEAM_WIDTH = 24;
+
+    // Riders and waiting users followed by a sequence, one bit each
+    static final int MAX_USERS = 64;
+
+    // Past the score, each tick still costs a little, so that users who cannot score are not left behind
+    static final double STARVED_WEIGHT = 0.01;
+
+    private static final byte NOT_BOARDED = -1;
+
+    private static final CabinCommand[] COMMANDS = {
+            CabinCommand.UP, CabinCommand.DOWN, CabinCommand.OPEN_UP, CabinCommand.OPEN_DOWN, CabinCommand.CLOSE};
+
+    private static final Comparator<Node> BEST_FIRST = new Comparator<Node>() {
+        @Override
+        public int compare(Node first, Node second) {
+            return Double.compare(second.value, first.value);
+        }
+    };
+
+    private final int lowerFloor;
+    private final int higherFloor;
+    private final int cabinSize;
+
+    // Riders : floor to go, wait time, travel time, trip length
+    private final int[] riderTo;
+    private final int[] riderWait;
+    private final int[] riderTravel;
+    private final int[] riderTrip;
+
+    // Riders with a floor to go, the others are left to the route
+    private long riding;
+
+    // Users waiting the cabin : floor, direction, wait time, expected floor to go
+    private final int[] waitingFrom;
+    private final boolean[] waitingUp;
+    private final int[] waitingWait;
+    private final int[] waitingTo;
+
+    // Ticks to each stop left by a sequence and number of distinct stops before, reused by every valuation
+    private final int[] stopTicks;
+    private final int[] stopsBefore;
+
+    private CommandSearch(CabinModel cabin, int lowerFloor, int higherFloor, int cabinSize) {
+        this.lowerFloor = lowerFloor;
+        this.higherFloor = higherFloor;
+        this.cabinSize = cabinSize;
+
+        List<User> riders = cabin.getUsersInCabin();
+        riderTo = new int[riders.size()];
+        riderWait = new int[riders.size()];
+        riderTravel = new int[riders.size()];
+        riderTrip = new int[riders.size()];
+        for (int i = 0; i < riders.size(); i++) {
+            User rider = riders.get(i);
+            if ( !rider.hasFloorToGo() ) continue;
+            riding |= 1L << i;
+            riderTo[i] = rider.floorToGo();
+            riderWait[i] = rider.getWaitTime();
+            riderTravel[i] = rider.getTravelTime();
+            riderTrip[i] = Math.abs(rider.getComingFrom() - riderTo[i]);
+        }
+
+        List<User> waiting = cabin.getUsersWaitingCabin();
+        stopTicks = new int[riders.size() + 2 * waiting.size()];
+        stopsBefore = new int[stopTicks.length];
+        waitingFrom = new int[waiting.size()];
+        waitingUp = new boolean[waiting.size()];
+        waitingWait = new int[waiting.size()];
+        waitingTo = new int[waiting.size()];
+        for (int i = 0; i < waiting.size(); i++) {
+            User user = waiting.get(i);
+            waitingFrom[i] = user.getComingFrom();
+            waitingUp[i] = user.getDirection() == Direction.UP;
+            waitingWait[i] = user.getWaitTime();
+            waitingTo[i] = waitingUp[i] ? (waitingFrom[i] + 1 + higherFloor + 1) / 2 : (lowerFloor + waitingFrom[i] - 1) / 2;
+        }
+    }
+
+    /**
+     * @return first command of the best sequence found before the deadline, null when the cabin
+     *         has nobody to serve, too many users to follow, or no time left
+     */
+    static CabinCommand firstCommand(CabinModel cabin, int lowerFloor, int higherFloor, int cabinSize, long deadline) {
+        List<User> riders = cabin.getUsersInCabin();
+        List<User> waiting = cabin.getUsersWaitingCabin();
+        if ( riders.isEmpty() && waiting.isEmpty() ) return null;
+        if ( riders.size() > MAX_USERS || waiting.size() > MAX_USERS ) return null;
+        if ( System.nanoTime() - deadline >= 0 ) return null;
+
+        return new CommandSearch(cabin, lowerFloor, higherFloor, cabinSize).search(cabin, deadline);
+    }
+
+    private CabinCommand search(CabinModel cabin, long deadline) {
+        byte[] boardedAt = new byte[waitingFrom.length];
+        Arrays.fill(boardedAt, NOT_BOARDED);
+        Node root = new Node(null, cabin.getCurrentFloor(), cabin.isDoorOpened(),
+                cabin.getElevatorDirection() == Direction.UP, cabin.getLastCommand() == CabinCommand.CLOSE,
+                riding, 0L, 0L, boardedAt, riderTo.length, 0D);
+
+        List<Node> beam = Collections.singletonList(root);
+        // Sequence the route would play, always kept so that the search never does worse by its own measure
+        Node route = root;
+        for (int depth = 1; depth <= DEPTH; depth++) {
+            // Insertion order, so that ties go to the first sequence found
+            Map<Node, Node> next = Maps.newLinkedHashMap();
+            for (Node node : beam) {
+                if ( System.nanoTime() - deadline >= 0 ) return best(beam, depth - 1);
+
+                for (CabinCommand command : COMMANDS) {
+                    Node child = play(node, command, depth);
+                    if ( child == null ) continue;
+
+                    // Same cabin state reached by two sequences, the most valued is kept
+                    Node known = next.get(child);
+                    if ( known == null || known.value < child.value ) next.put(child, child);
+                }
+            }
+            if ( next.isEmpty() ) return best(beam, depth - 1);
+
+            List<Node> candidates = Lists.newArrayList(next.values());
+            Collections.sort(candidates, BEST_FIRST);
+            beam = candidates.subList(0, Math.min(BEAM_WIDTH, candidates.size()));
+
+            CabinCommand routeCommand = (route == null) ? null : routeCommand(route);
+            Node routeChild = (routeCommand == null) ? null : play(route, routeCommand, depth);
+            route = (routeChild == null) ? null : next.get(routeChild);
+            if ( route != null && !beam.contains(route) ){
+                beam = Lists.newArrayList(beam.subList(0, beam.size() - 1));
+                beam.add(route);
+            }
+        }
+        return best(beam, DEPTH);
+    }
+
+    private static CabinCommand best(List<Node> beam, int depth) {
+        // Not even the first command was searched
+        if ( depth == 0 ) return null;
+
+        Node best = null;
+        for (Node node : beam) {
+            if ( best == null || node.value > best.value ) best = node;
+        }
+        return (best == null) ? null : best.first;
+    }
+
+    /**
+     * @return the node reached when the command is played at the depth, null when it cannot be played
+     *         or is of no use
+     */
+    private Node play(Node node, CabinCommand command, int depth) {
+        CabinCommand first = (node.first == null) ? command : node.first;
+
+        if ( node.doorOpened ){
+            if ( command != CabinCommand.CLOSE ) return null;
+            return valued(node.moved(first, node.floor, false, node.up, true), depth);
+        }
+
+        switch (command) {
+            case UP:
+                if ( node.floor >= higherFloor ) return null;
+                return valued(arrive(node.moved(first, node.floor + 1, false, true, false), depth), depth);
+            case DOWN:
+                if ( node.floor <= lowerFloor ) return null;
+                return valued(arrive(node.moved(first, node.floor - 1, false, false, false), depth), depth);
+            case OPEN_UP:
+            case OPEN_DOWN:
+                // Users that did not board when the door was just closed are left for the next pass
+                if ( node.closed ) return null;
+                boolean up = command == CabinCommand.OPEN_UP;
+                if ( node.floor == lowerFloor && !up || node.floor == higherFloor && up ) return null;
+                return open(node, first, up, depth);
+            default:
+                return null;
+        }
+    }
+
+    private Node open(Node node, CabinCommand first, boolean up, int depth) {
+        double earned = node.earned;
+        long riding = node.riding;
+        int load = node.load;
+        for (int i = 0; i < riderTo.length; i++) {
+            if ( (riding & (1L << i)) == 0 || riderTo[i] != node.floor ) continue;
+            riding &= ~(1L << i);
+            load--;
+            earned += score(riderWait[i], riderTravel[i] + depth, riderTrip[i]);
+        }
+
+        long boarded = node.boarded;
+        byte[] boardedAt = node.boardedAt;
+        for (int i = 0; i < waitingFrom.length && load < cabinSize; i++) {
+            if ( (boarded & (1L << i)) != 0 || waitingFrom[i] != node.floor || waitingUp[i] != up ) continue;
+            if ( boardedAt == node.boardedAt ) boardedAt = boardedAt.clone();
+            boarded |= 1L << i;
+            boardedAt[i] = (byte) depth;
+            load++;
+        }
+
+        // An open that serves nobody only loses ticks
+        if ( riding == node.riding && boarded == node.boarded ) return null;
+        return valued(new Node(first, node.floor, true, up, false, riding, boarded, node.arrived, boardedAt, load, earned), depth);
+    }
+
+    /**
+     * Users picked up are dropped when the cabin reaches the floor they are expected to go to.
+     */
+    private Node arrive(Node node, int depth) {
+        long arrived = node.arrived;
+        int load = node.load;
+        double earned = node.earned;
+        for (int i = 0; i < waitingFrom.length; i++) {
+            long bit = 1L << i;
+            if ( (node.boarded & bit) == 0 || (arrived & bit) != 0 || waitingTo[i] != node.floor ) continue;
+            arrived |= bit;
+            load--;
+            int boardedAt = node.boardedAt[i];
+            earned += score(waitingWait[i] + boardedAt, depth - boardedAt + 1, Math.abs(waitingTo[i] - waitingFrom[i]));
+        }
+        if ( arrived == node.arrived ) return node;
+        return new Node(node.first, node.floor, node.doorOpened, node.up, node.closed,
+                node.riding, node.boarded, arrived, node.boardedAt, load, earned);
+    }
+
+    private Node valued(Node node, int depth) {
+        int ahead = sweepEnd(node, node.up, node.floor);
+        int back = sweepEnd(node, !node.up, ahead);
+
+        // Ticks to each stop left, as the sweep passes them
+        int stops = 0;
+        for (int i = 0; i < riderTo.length; i++) {
+            if ( (node.riding & (1L << i)) == 0 ) continue;
+            stopTicks[stops++] = ticksTo(node, ahead, back, riderTo[i], null);
+        }
+        for (int i = 0; i < waitingFrom.length; i++) {
+            if ( (node.arrived & (1L << i)) != 0 ) continue;
+            if ( (node.boarded & (1L << i)) == 0 ){
+                int pickUp = ticksTo(node, ahead, back, waitingFrom[i], waitingUp[i]);
+                stopTicks[stops++] = pickUp;
+                stopTicks[stops++] = pickUp + Math.abs(waitingTo[i] - waitingFrom[i]);
+            } else {
+                stopTicks[stops++] = ticksTo(node, ahead, back, waitingTo[i], null);
+            }
+        }
+        Arrays.sort(stopTicks, 0, stops);
+
+        for (int i = 0, distinct = 0; i < stops; i++) {
+            // Stops reached at the same tick are at the same floor
+            stopsBefore[i] = distinct;
+            if ( i + 1 < stops && stopTicks[i + 1] != stopTicks[i] ) distinct++;
+        }
+
+        double value = node.earned;
+        for (int i = 0; i < riderTo.length; i++) {
+            if ( (node.riding & (1L << i)) == 0 ) continue;
+            int drop = depth + delayed(ticksTo(node, ahead, back, riderTo[i], null), stops);
+            value += score(riderWait[i], riderTravel[i] + drop + 1, riderTrip[i]);
+        }
+        for (int i = 0; i < waitingFrom.length; i++) {
+            if ( (node.arrived & (1L << i)) != 0 ) continue;
+
+            int trip = Math.abs(waitingTo[i] - waitingFrom[i]);
+            if ( (node.boarded & (1L << i)) == 0 ){
+                int pickUp = ticksTo(node, ahead, back, waitingFrom[i], waitingUp[i]);
+                int drop = delayed(pickUp + trip, stops);
+                pickUp = delayed(pickUp, stops);
+                value += score(waitingWait[i] + depth + pickUp, drop - pickUp + 1, trip);
+            } else {
+                int boardedAt = node.boardedAt[i];
+                int drop = depth + delayed(ticksTo(node, ahead, back, waitingTo[i], null), stops);
+                value += score(waitingWait[i] + boardedAt, drop - boardedAt + 1, trip);
+            }
+        }
+        node.value = value;
+        return node;
+    }
+
+    /**
+     * @return the ticks to a stop, plus the time lost at each stop reached before it
+     */
+    private int delayed(int ticks, int stops) {
+        int index = Arrays.binarySearch(stopTicks, 0, stops, ticks);
+        // Any of the stops reached at that tick, they share the same count
+        return ticks + stopsBefore[index] * CabinRoute.STOP_TICKS;
+    }
+
+    /**
+     * Farthest floor the cabin has to reach going in the direction from the floor, the floor when there is none.
+     */
+    private int sweepEnd(Node node, boolean up, int floor) {
+        int end = floor;
+        for (int i = 0; i < riderTo.length; i++) {
+            if ( (node.riding & (1L << i)) != 0 ) end = farther(up, end, riderTo[i]);
+        }
+        for (int i = 0; i < waitingFrom.length; i++) {
+            if ( (node.arrived & (1L << i)) != 0 ) continue;
+            if ( (node.boarded & (1L << i)) == 0 ) end = farther(up, end, waitingFrom[i]);
+            end = farther(up, end, waitingTo[i]);
+        }
+        return end;
+    }
+
+    private static int farther(boolean up, int floor, int other) {
+        return up ? Math.max(floor, other) : Math.min(floor, other);
+    }
+
+    /**
+     * Ticks before the cabin passes the floor going the direction, when it sweeps to the end
+     * ahead, turns back to the end behind and turns again.
+     *
+     * @param up direction the cabin must be going, null for any
+     */
+    private static int ticksTo(Node node, int ahead, int back, int floor, Boolean up) {
+        boolean before = node.up ? floor >= node.floor : floor <= node.floor;
+        if ( before && (up == null || up == node.up) ) return Math.abs(floor - node.floor);
+
+        int turn = Math.abs(ahead - node.floor);
+        if ( up == null || up != node.up ) return turn + Math.abs(ahead - floor);
+        return turn + Math.abs(ahead - back) + Math.abs(floor - back);
+    }
+
+    /**
+     * Command the route of the cabin would play, see {@link CabinModel}, null when it has nothing to do.
+     */
+    private CabinCommand routeCommand(Node node) {
+        if ( node.doorOpened ) return CabinCommand.CLOSE;
+        if ( !node.closed && stopsAt(node, node.up) ) return openCommand(node.floor, node.up);
+
+        boolean next;
+        if ( hasTargetAfter(node, node.up) ){
+            next = node.up;
+        } else if ( hasTargetAfter(node, !node.up) || stopsAt(node, !node.up) ){
+            next = !node.up;
+        } else {
+            return null;
+        }
+
+        if ( next != node.up && !node.closed && stopsAt(node, next) ) return openCommand(node.floor, next);
+        return next ? CabinCommand.UP : CabinCommand.DOWN;
+    }
+
+    private CabinCommand openCommand(int floor, boolean up) {
+        if ( floor == lowerFloor ) return CabinCommand.OPEN_UP;
+        if ( floor == higherFloor ) return CabinCommand.OPEN_DOWN;
+        return up ? CabinCommand.OPEN_UP : CabinCommand.OPEN_DOWN;
+    }
+
+    private boolean stopsAt(Node node, boolean up) {
+        for (int i = 0; i < riderTo.length; i++) {
+            if ( (node.riding & (1L << i)) != 0 && riderTo[i] == node.floor ) return true;
+        }
+        if ( node.load >= cabinSize ) return false;
+        for (int i = 0; i < waitingFrom.length; i++) {
+            if ( (node.boarded & (1L << i)) == 0 && waitingFrom[i] == node.floor && waitingUp[i] == up ) return true;
+        }
+        return false;
+    }
+
+    private boolean hasTargetAfter(Node node, boolean up) {
+        return up ? sweepEnd(node, true, node.floor) > node.floor : sweepEnd(node, false, node.floor) < node.floor;
+    }
+
+    /**
+     * Score of a user dropped after waiting and travelling the ticks, as the game server
+     * gives it. Waiting ticks count for a half each where the server rounds, so that every
+     * tick saved is worth something.
+     */
+    private static double score(int waitTime, int travelTime, int trip) {
+        double score = ElevatorMathUtil.INITIAL_SCORE - waitTime/2d - travelTime + trip;
+        return (score > 0) ? score : score * STARVED_WEIGHT;
+    }
+
+    /**
+     * Cabin state at the end of a sequence. Equal when the cabin is in the same state,
+     * whatever the sequence that led there, what it earned and when users boarded.
+     */
+    private static final class Node {
+
+        private final CabinCommand first;
+        private final int floor;
+        private final boolean doorOpened;
+        private final boolean up;
+        // Door closed by the last command
+        private final boolean closed;
+        private final long riding;
+        private final long boarded;
+        // Users picked up who reached their expected floor
+        private final long arrived;
+        // Depth at which each waiting user boarded, shared between nodes until somebody boards
+        private final byte[] boardedAt;
+        private final int load;
+        private final double earned;
+        private double value;
+
+        Node(CabinCommand first, int floor, boolean doorOpened, boolean up, boolean closed,
+             long riding, long boarded, long arrived, byte[] boardedAt, int load, double earned) {
+            this.first = first;
+            this.floor = floor;
+            this.doorOpened = doorOpened;
+            this.up = up;
+            this.closed = closed;
+            this.riding = riding;
+            this.boarded = boarded;
+            this.arrived = arrived;
+            this.boardedAt = boardedAt;
+            this.load = load;
+            this.earned = earned;
+        }
+
+        Node moved(CabinCommand first, int floor, boolean doorOpened, boolean up, boolean closed) {
+            return new Node(first, floor, doorOpened, up, closed, riding, boarded, arrived, boardedAt, load, earned);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if ( this == o ) return true;
+            if ( !(o instanceof Node) ) return false;
+            Node node = (Node) o;
+            return floor == node.floor && doorOpened == node.doorOpened && up == node.up && closed == node.closed
+                    && riding == node.riding && boarded == node.boarded && arrived == node.arrived;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = floor;
+            result = 31 * result + (doorOpened ? 1 : 0);
+            result = 31 * result + (up ? 1 : 0);
+            result = 31 * result + (closed ? 1 : 0);
+            result = 31 * result + (int) (riding ^ (riding >>> 32));
+            result = 31 * result + (int) (boarded ^ (boarded >>> 32));
+            result = 31 * result + (int) (arrived ^ (arrived >>> 32));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package fr.elevator.model;
+
+import fr.elevator.common.User;
+
+import java.util.List;
+
+/**
+ * Strategy choosing the cabin a calling user should wait.
+ *
+ * Called with the dispatch lock of the model held. Implementations must read
+ * each cabin under its own monitor.
+ */
+public interface Dispatcher {
+
+    /**
+     * @return the cabin the user should wait, or null to keep the user without cabin until next tick
+     */
+    CabinModel findCabinForUser(User user, List<CabinModel> cabins, ElevatorModel model);
+
+}
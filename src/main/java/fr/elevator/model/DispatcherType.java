@@ -0,0 +1,31 @@
+package fr.elevator.model;
+
+/**
+ * Dispatchers that can be chosen on reset.
+ */
+public enum DispatcherType {
+
+    NEAREST {
+        @Override
+        public Dispatcher create() {
+            return new NearestCabinDispatcher();
+        }
+    },
+    ETA {
+        @Override
+        public Dispatcher create() {
+            return new EtaCostDispatcher();
+        }
+    };
+
+    public abstract Dispatcher create();
+
+    /**
+     * @return the type of the dispatcher, null when it is none of these
+     */
+    public static DispatcherType of(Dispatcher dispatcher) {
+        if ( dispatcher instanceof EtaCostDispatcher ) return ETA;
+        if ( dispatcher instanceof NearestCabinDispatcher ) return NEAREST;
+        return null;
+    }
+}
@@ -4,23 +4,98 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AtomicDouble;
 import fr.elevator.common.CabinCommand;
 import fr.elevator.common.Direction;
 import fr.elevator.common.User;
-import org.apache.log4j.Logger;
+import fr.elevator.metrics.ElevatorMetrics;
+import fr.elevator.metrics.StripedCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
-
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Locking :
+ * - calls are pushed on a lock free queue and only assigned by the next findNextCommand,
+ * - in queued ingestion mode, every inbound event waits in the ingestion queue
+ *   for the next findNextCommand (see {@link EventIngestion}),
+ * - dispatchLock guards the users without cabin and the assignment to cabins,
+ * - each cabin is guarded by its own monitor, so that users entering / exiting
+ *   different cabins do not wait for each other.
+ * When both are needed, dispatchLock is taken first, and a thread never holds
+ * two cabin monitors at once.
+ */
 public class ElevatorModel {
 
-    private static Logger logger = Logger.getLogger(ElevatorModel.class);
+    private static final Logger logger = LoggerFactory.getLogger(ElevatorModel.class);
+
+    private final Object dispatchLock = new Object();
+
+    private final EventIngestion ingestion = new EventIngestion(this, dispatchLock);
+
+    private static final NearestCabinDispatcher NEAREST_CABIN_DISPATCHER = new NearestCabinDispatcher();
+
+    private volatile Dispatcher dispatcher = NEAREST_CABIN_DISPATCHER;
 
+    // Null when users are only assigned once, when they call
+    private volatile BatchAssigner batchAssigner;
+
+    // Guarded by dispatchLock
     private List<User> usersWaitingElevator;
 
-    private List<CabinModel> cabinsList;
+    // Calls learnt per floor and time of the day, guarded by dispatchLock
+    private CallDemand callDemand;
+
+    // Idle cabins are sent where calls are expected
+    private volatile boolean parking;
+
+    // Given to the cabins on reset
+    private volatile CommandPolicy commandPolicy = CommandPolicy.SCORE;
+    private volatile CabinTuning tuning = CabinTuning.DEFAULT;
+
+    // Cabins of the last reset search their command, guarded by dispatchLock
+    private boolean searching;
+
+    public static final long DEFAULT_SEARCH_BUDGET_MICROS = 2000;
+
+    // Time the cabins may spend searching their command at each tick
+    private volatile long searchBudgetNanos = TimeUnit.MICROSECONDS.toNanos(DEFAULT_SEARCH_BUDGET_MICROS);
+
+    // Calls not yet taken into account by findNextCommand
+    private final Queue<User> pendingCalls = new ConcurrentLinkedQueue<>();
+
+    // Replaced as a whole on reset
+    private volatile List<CabinModel> cabinsList;
+
+    private final List<TickListener> tickListeners = new CopyOnWriteArrayList<>();
+
+    // Null unless the inbound events are written to a journal
+    private volatile EventJournal journal;
+
+    // Null unless the inbound events and the commands are captured
+    private volatile EventCapture capture;
+
+    // Snapshot of the last tick, replaced as a whole at the end of each tick and on reset
+    private final AtomicReference<ElevatorModelSnapshot> publishedSnapshot = new AtomicReference<>();
+    private final AtomicLong snapshotVersion = new AtomicLong();
+
+    private final ElevatorMetrics metrics = new ElevatorMetrics();
 
-    private Double score;
+    public static final int DEFAULT_PARALLEL_CABIN_THRESHOLD = 16;
+
+    // From this number of cabins, their commands are computed concurrently
+    private volatile int parallelCabinThreshold = DEFAULT_PARALLEL_CABIN_THRESHOLD;
+
+    private final AtomicDouble score = new AtomicDouble();
 
     private int lowerFloor = 0;
     private int higherFloor = 5;
@@ -29,39 +104,50 @@ public class ElevatorModel {
     private int cabinCount = 2;
     private int resetNumber = 0;
 
-    private static ElevatorModel INSTANCE;
-
-    private List<User> userToRemove = Lists.newArrayList();
+    // Counted by request threads and the ticking thread at once
+    private final StripedCounter abnormalUserEntring = new StripedCounter();
+    private final StripedCounter abnormalUserExiting = new StripedCounter();
 
-    private int abnormalUserEntring;
-    private int abnormalUserExiting;
-
-    private int allUsers;
-    private int happyUsers;
+    private final StripedCounter allUsers = new StripedCounter();
+    private final StripedCounter happyUsers = new StripedCounter();
 
     private ElevatorModel() {
         reset();
     }
 
+    private static class InstanceHolder {
+        private static final ElevatorModel INSTANCE = new ElevatorModel();
+    }
+
     public static ElevatorModel getInstance(){
-        if ( INSTANCE == null ) INSTANCE = new ElevatorModel();
-        return INSTANCE;
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Model independent from the one served by the REST services (simulation, tests).
+     */
+    public static ElevatorModel newInstance(){
+        return new ElevatorModel();
     }
 
     public List<User> getUsersWaitingElevator() {
-        return usersWaitingElevator;
+        synchronized (dispatchLock) {
+            return usersWaitingElevator;
+        }
     }
 
     public void setUsersWaitingElevator(List<User> usersWaitingElevator) {
-        this.usersWaitingElevator = usersWaitingElevator;
+        synchronized (dispatchLock) {
+            this.usersWaitingElevator = usersWaitingElevator;
+        }
     }
 
     public Double getScore() {
-        return score;
+        return score.get();
     }
 
     public void setScore(Double score) {
-        this.score = score;
+        this.score.set(score);
     }
 
     public int getLowerFloor() {
@@ -100,206 +186,585 @@ public class ElevatorModel {
         return cabinCount;
     }
 
+    /**
+     * @param cabinCount cabins of the building from the next reset, which builds them
+     */
     public void setCabinCount(int cabinCount) {
         this.cabinCount = cabinCount;
     }
 
-    public void updateCabinCount(int cabinCount){
-        setCabinCount(cabinCount);
-        cabinsList = Lists.newArrayListWithExpectedSize(cabinCount);
-    }
+    /**
+     * @return true when the floor is one of the building
+     */
+    public boolean hasFloor(int floor) {
+        return floor >= lowerFloor && floor <= higherFloor;
+    }
+
+    /**
+     * @return true when the cabin is one of the last reset
+     */
+    public boolean hasCabin(int cabin) {
+        return cabin >= 0 && cabin < cabinsList.size();
+    }
+
+    public List<CabinCommand> findNextCommand() {
+        long start = System.nanoTime();
+        List<CabinModel> cabins;
+        boolean searchingCabins;
+        EventCapture eventCapture;
+        int capturedTick = 0;
+
+        synchronized (dispatchLock) {
+            cabins = cabinsList;
+            searchingCabins = searching;
+
+            ingestion.drain();
+            assignPendingCalls(cabins);
+
+            // After the drain and the calls, so that they are replayed before the tick they were applied in
+            EventJournal eventJournal = journal;
+            if ( eventJournal != null ) eventJournal.tick();
+            eventCapture = capture;
+            if ( eventCapture != null ) capturedTick = eventCapture.tick();
+
+            // Single pass on users without cabin : wait time update and new assignment
+            List<User> stillWaiting = Lists.newArrayListWithExpectedSize(usersWaitingElevator.size());
+            for (User user : usersWaitingElevator) {
+                user.setWaitTime(user.getWaitTime() + 1);
+                CabinModel cabinModel = findCabinForUser(user, cabins);
+                if ( cabinModel == null ){
+                    stillWaiting.add(user);
+                } else {
+                    addUserWaitingCabin(cabinModel, user);
+                }
+            }
+            usersWaitingElevator = stillWaiting;
 
-    public synchronized List<CabinCommand> findNextCommand() {
-        updateScore();
+            BatchAssigner assigner = batchAssigner;
+            if ( assigner != null ){
+                usersWaitingElevator = assigner.reassign(cabins, usersWaitingElevator);
+            }
 
-        for (User user : usersWaitingElevator) {
-            assignCabinToUser(user);
+            callDemand.tickEnded();
+            if ( parking ){
+                ParkingPlanner.plan(cabins, callDemand);
+            }
         }
 
-        usersWaitingElevator.removeAll(userToRemove);
-        userToRemove.clear();
+        List<CabinCommand> CabinCommands;
+        if ( searchingCabins ){
+            CabinCommands = searchNextCommands(cabins);
+        } else if ( cabins.size() >= parallelCabinThreshold ){
+            CabinCommands = ParallelCabinTick.nextCommands(cabins);
+        } else {
+            CabinCommands = Lists.newArrayListWithExpectedSize(cabins.size());
+            for (CabinModel cabinModel : cabins) {
+                CabinCommands.add(ParallelCabinTick.nextCommand(cabinModel));
+            }
+        }
 
-        List<CabinCommand> CabinCommands = Lists.newArrayList();
-        for (CabinModel cabinModel : cabinsList) {
-            CabinCommand nextCommand = cabinModel.findNextCommand();
-            CabinCommands.add(nextCommand);
+        // To the capture that numbered the tick
+        if ( eventCapture != null ) eventCapture.commands(capturedTick, CabinCommands);
+
+        metrics.tickEnded(System.nanoTime() - start, score.get());
+        ElevatorModelSnapshot snapshot = publishSnapshot();
+        TransitionLog.tick(snapshot.getVersion(), CabinCommands);
+
+        for (TickListener listener : tickListeners) {
+            listener.tickEnded(this);
         }
 
         return CabinCommands;
     }
 
-    public synchronized void callAtFloor(Integer floor,final Direction direction) {
+    public void addTickListener(TickListener listener) {
+        tickListeners.add(listener);
+    }
+
+    public void removeTickListener(TickListener listener) {
+        tickListeners.remove(listener);
+    }
+
+    /**
+     * Calls received since they were last taken, as if they were assigned when received.
+     * Journaled here rather than when received, so that they are replayed before the event that took them.
+     * Called with the dispatch lock held, with the cabins of the game.
+     */
+    private void assignPendingCalls(List<CabinModel> cabins) {
+        User call;
+        while ( (call = pendingCalls.poll()) != null ){
+            journal(ModelEvent.call(call.getComingFrom(), call.getDirection()));
+            callDemand.called(call.getComingFrom(), call.getDirection());
+            assignCabinToUser(call, cabins);
+        }
+    }
+
+    /**
+     * The call is only queued, without waiting for the dispatch lock : it is assigned a cabin
+     * by the next tick, or by the next user going to a floor, whichever comes first.
+     */
+    public void callAtFloor(Integer floor,final Direction direction) {
+        if ( !hasFloor(floor) ){
+            logger.error("Call from floor {} out of the building", floor);
+            return;
+        }
         updateAllUsersCount();
-        assignCabinToUser(new User(floor,direction));
+        User user = new User(floor, direction);
+        TransitionLog.called(user, direction);
+        pendingCalls.offer(user);
     }
 
-    @VisibleForTesting
-    void assignCabinToUser(final User user) {
-        // First find eligible cabin
-        Iterable<CabinModel> cabinInSameUserDirection = findEligibleCabins(user);
+    /**
+     * Call taken into account at once, with the dispatch lock held (queued ingestion).
+     */
+    void assignCall(int floor, Direction direction) {
+        journal(ModelEvent.assign(floor, direction));
+        callDemand.called(floor, direction);
+        updateAllUsersCount();
+        User user = new User(floor, direction);
+        TransitionLog.called(user, direction);
+        assignCabinToUser(user, cabinsList);
+    }
+
+    private void journal(long event) {
+        EventJournal eventJournal = journal;
+        if ( eventJournal != null ) eventJournal.append(event);
+        EventCapture eventCapture = capture;
+        if ( eventCapture != null ) eventCapture.append(event);
+    }
+
+    /**
+     * Every event applied from now on is written to the journal, null to stop.
+     */
+    void setJournal(EventJournal journal) {
+        this.journal = journal;
+    }
 
-        int cabin = Iterables.size(cabinInSameUserDirection);
+    /**
+     * Every event applied and every command answered from now on is captured, null to stop.
+     */
+    void setCapture(EventCapture capture) {
+        this.capture = capture;
+    }
+
+    public EventIngestion getIngestion() {
+        return ingestion;
+    }
+
+    public ElevatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    @VisibleForTesting
+    void assignCabinToUser(final User user, List<CabinModel> cabins) {
+        CabinModel cabinModel = findCabinForUser(user, cabins);
 
         // If no cabin eligible, user should wait next assignement
-        if ( cabin == 0 ){
+        if ( cabinModel == null ){
             if (!getUsersWaitingElevator().contains(user)) {
                 getUsersWaitingElevator().add(user);
             }
         }
-
-        // Only one cabin, good, will assign this cabin to the user
-        else if ( cabin == 1) {
-            userToRemove.add(user);
-            Iterables.getOnlyElement(cabinInSameUserDirection).getUsersWaitingCabin().add(user);
+        else {
+            addUserWaitingCabin(cabinModel, user);
         }
+    }
 
-        // Ok, we have to find the nearest one...
-        else {
-            CabinModel cabinModel = findNearestCabinForUser(user, cabinInSameUserDirection);
-            userToRemove.add(user);
+    private void addUserWaitingCabin(CabinModel cabinModel, User user) {
+        synchronized (cabinModel) {
             cabinModel.getUsersWaitingCabin().add(user);
         }
+        TransitionLog.assigned(user, cabinModel);
+    }
+
+    /**
+     * @return the cabin the user should wait, or null when no cabin is eligible yet
+     */
+    private CabinModel findCabinForUser(User user, List<CabinModel> cabins) {
+        return dispatcher.findCabinForUser(user, cabins, this);
     }
 
     @VisibleForTesting
     Iterable<CabinModel> findEligibleCabins(final User user) {
-        return Iterables.filter(cabinsList, new Predicate<CabinModel>() {
-
-            public boolean apply(CabinModel cabinModel) {
-                // For full cabin...
-                if (cabinModel.isFull()) {
-                    return false;
-                }
-                // For empty cabin or cabin with only users with null score
-                if (cabinModel.isEmpty() || !cabinModel.isThereUsersWithScore()) {
-                    return true;
-                }
-                return cabinModel.isUserEligibleForCabin(user);
-            }
-        });
+        return NEAREST_CABIN_DISPATCHER.findEligibleCabins(user, cabinsList);
     }
 
     @VisibleForTesting
     CabinModel findNearestCabinForUser(User user, Iterable<CabinModel> cabinInSameUserDirection) {
-        CabinModel nearestCabin = null;
+        return NEAREST_CABIN_DISPATCHER.findNearestCabinForUser(user, cabinInSameUserDirection, higherFloor - lowerFloor);
+    }
+
+    public int getParallelCabinThreshold() {
+        return parallelCabinThreshold;
+    }
+
+    /**
+     * @param parallelCabinThreshold number of cabins from which the commands are computed concurrently,
+     *                               0 or less to always stay sequential
+     */
+    public void setParallelCabinThreshold(int parallelCabinThreshold) {
+        this.parallelCabinThreshold = parallelCabinThreshold <= 0 ? Integer.MAX_VALUE : parallelCabinThreshold;
+    }
+
+    public boolean isParking() {
+        return parking;
+    }
+
+    /**
+     * @param parking true to send idle cabins where calls are expected at this time of the day
+     */
+    public void setParking(boolean parking) {
+        this.parking = parking;
+    }
 
-        Integer userComingFrom = user.getComingFrom();
-        int minDistance =  higherFloor - lowerFloor;
+    public CommandPolicy getCommandPolicy() {
+        return commandPolicy;
+    }
+
+    /**
+     * @param commandPolicy how the cabins decide their command, from the next reset
+     */
+    public void setCommandPolicy(CommandPolicy commandPolicy) {
+        this.commandPolicy = commandPolicy;
+    }
+
+    public CabinTuning getTuning() {
+        return tuning;
+    }
+
+    /**
+     * @param tuning thresholds of the score policy of the cabins, from the next reset
+     */
+    public void setTuning(CabinTuning tuning) {
+        this.tuning = tuning;
+    }
+
+    /**
+     * Commands of cabins that search them : the tick budget is shared between the cabins,
+     * computed a cabin per task on every core available.
+     */
+    private List<CabinCommand> searchNextCommands(List<CabinModel> cabins) {
+        long budget = searchBudgetNanos;
+        int lanes = Math.max(1, Math.min(cabins.size(), ParallelCabinTick.parallelism()));
+        long slice = budget * lanes / Math.max(1, cabins.size());
+        long deadline = System.nanoTime() + budget;
+        for (CabinModel cabin : cabins) {
+            cabin.searchWithin(deadline, slice);
+        }
 
-        for (CabinModel cabin : cabinInSameUserDirection) {
-            int distance = Math.abs(cabin.getCurrentFloor() - userComingFrom);
-            if ( distance < minDistance){
-                minDistance = distance;
-                nearestCabin = cabin;
+        if ( lanes > 1 ){
+            return ParallelCabinTick.nextCommands(cabins, 1);
+        }
+        List<CabinCommand> commands = Lists.newArrayListWithExpectedSize(cabins.size());
+        for (CabinModel cabin : cabins) {
+            commands.add(ParallelCabinTick.nextCommand(cabin));
+        }
+        return commands;
+    }
+
+    public long getSearchBudgetMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(searchBudgetNanos);
+    }
+
+    /**
+     * @param budgetMicros time the cabins may spend searching their command at each tick,
+     *                     past it they follow their route, see {@link CommandPolicy#SEARCH}
+     */
+    public void setSearchBudgetMicros(long budgetMicros) {
+        this.searchBudgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, budgetMicros));
+    }
+
+    /**
+     * @return for each cabin, ticks before it reaches the floor ready to go the direction,
+     *         if it follows its route (see {@link CabinModel#estimatedArrival(int, Direction)})
+     */
+    public List<Integer> estimatedArrivals(int floor, Direction direction) {
+        List<CabinModel> cabins = cabinsList;
+        List<Integer> arrivals = Lists.newArrayListWithExpectedSize(cabins.size());
+        for (CabinModel cabin : cabins) {
+            synchronized (cabin) {
+                arrivals.add(cabin.estimatedArrival(floor, direction));
             }
         }
+        return arrivals;
+    }
 
-        return nearestCabin;
+    CallDemand getCallDemand() {
+        synchronized (dispatchLock) {
+            return callDemand;
+        }
+    }
+
+    void setCallDemand(CallDemand callDemand) {
+        synchronized (dispatchLock) {
+            this.callDemand = callDemand;
+        }
     }
 
+    public Dispatcher getDispatcher() {
+        return dispatcher;
+    }
 
-    public synchronized void floorToGo(Integer floor, int cabin) {
-        final CabinModel cabinModel = cabinsList.get(cabin);
+    public void setDispatcher(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
 
-        logger.info("User going to "+ floor+ " from "+cabinModel.getCurrentFloor()+ " on cabin "+cabin);
+    /**
+     * @return time budget of the batch re-assignment of waiting users at each tick, 0 when disabled
+     */
+    public long getBatchAssignmentBudgetMicros() {
+        BatchAssigner assigner = batchAssigner;
+        return assigner == null ? 0 : TimeUnit.NANOSECONDS.toMicros(assigner.getBudgetNanos());
+    }
+
+    public void setBatchAssignmentBudgetMicros(long budgetMicros) {
+        this.batchAssigner = (budgetMicros <= 0) ? null : new BatchAssigner(TimeUnit.MICROSECONDS.toNanos(budgetMicros));
+    }
+
+    public void floorToGo(Integer floor, int cabin) {
+        List<CabinModel> cabins = cabinsList;
+        if ( cabin < 0 || cabin >= cabins.size() || !hasFloor(floor) ){
+            // Not journaled : a replay would only meet the same error
+            abnormalUserEntring.increment();
+            logger.error("User going to {} on cabin {}, out of the building", floor, cabin);
+            return;
+        }
+        // The user may have called since the last tick, as when the cabin is already open at the floor
+        if ( !pendingCalls.isEmpty() ){
+            synchronized (dispatchLock) {
+                // Unless a reset started another game meanwhile, whose tick will take its calls
+                if ( cabinsList == cabins ) assignPendingCalls(cabins);
+            }
+        }
+        journal(ModelEvent.go(floor, cabin));
+        final CabinModel cabinModel = cabins.get(cabin);
+
+        final int cabinFloor;
+        Direction userDirection;
 
         // Try to find the user from cabin
-        User user = cabinModel.findUserCallingFromWithDirection(cabinModel.calculateUserDirection(floor));
+        synchronized (cabinModel) {
+            cabinFloor = cabinModel.getCurrentFloor();
+            if ( logger.isDebugEnabled() ){
+                logger.debug("User going to {} from {} on cabin {}", new Object[]{floor, cabinFloor, cabin});
+            }
 
-        if ( user != null ){
+            userDirection = cabinModel.calculateUserDirection(floor);
+            User user = cabinModel.findUserCallingFromWithDirection(userDirection);
 
-            user.setFloorToGo(floor);
-            cabinModel.addUserInCabin(user);
-            if ( !cabinModel.removeUserFromWaitingList(user)){
-                abnormalUserEntring++;
-                logger.error("User Removed from user waiting ERROR");
+            if ( user != null ){
+                user.setFloorToGo(floor);
+                cabinModel.addUserInCabin(user);
+                if ( !cabinModel.removeUserFromWaitingList(user)){
+                    abnormalUserEntring.increment();
+                    logger.error("User Removed from user waiting ERROR");
+                }
+                TransitionLog.entered(user, cabin);
+                return;
             }
         }
 
-        else {
-            Optional<User> userOptional = Iterables.tryFind(getUsersWaitingElevator(), new Predicate<User>() {
+        synchronized (dispatchLock) {
+            // Users without cabin of another game, reset meanwhile, cannot enter a cabin of this one
+            Iterable<User> withoutCabin = (cabinsList == cabins) ? usersWaitingElevator : ImmutableList.<User>of();
+            Optional<User> userOptional = Iterables.tryFind(withoutCabin, new Predicate<User>() {
 
                 public boolean apply(User user) {
-                    return user.getComingFrom().equals(cabinModel.getCurrentFloor());
+                    return user.getComingFrom() == cabinFloor;
                 }
             });
 
             if ( userOptional.isPresent()){
                 User usr = userOptional.get();
+                usersWaitingElevator.remove(usr);
                 usr.setFloorToGo(floor);
-                cabinModel.addUserInCabin(usr);
-                if ( !cabinModel.removeUserFromWaitingList(usr)){
-                    abnormalUserEntring++;
-                    logger.error("User Removed from user waiting ERROR");
+                synchronized (cabinModel) {
+                    cabinModel.addUserInCabin(usr);
                 }
+                TransitionLog.entered(usr, cabin);
+                return;
             }
-            else
-            {
-                boolean userFoundWaitingOtherElevator = false;
-                for (CabinModel model : cabinsList) {
-                    User userToGoFromCabin = model.findUserCallingFromWithDirection(cabinModel.calculateUserDirection(floor));
-                    if ( userToGoFromCabin != null ){
-                        model.getUsersWaitingCabin().remove(userToGoFromCabin);
-                        userToGoFromCabin.setFloorToGo(floor);
-                        cabinModel.getUsersInCabin().add(userToGoFromCabin);
-                        userFoundWaitingOtherElevator = true;
-                        break;
-                    }
-                }
+        }
 
-                if ( !userFoundWaitingOtherElevator){
-                    abnormalUserEntring++;
-                    logger.error("No User Found going To "+floor+ " from "+ cabinModel.getCurrentFloor()+ " [il est montee cabin "+cabin+" ]");
+        User userToGoFromCabin = null;
+        for (CabinModel model : cabins) {
+            synchronized (model) {
+                userToGoFromCabin = model.findUserCallingFromWithDirection(userDirection);
+                if ( userToGoFromCabin != null ){
+                    model.getUsersWaitingCabin().remove(userToGoFromCabin);
+                    break;
                 }
             }
         }
-    }
 
-    public synchronized void userHasExited(int cabin) {
-        final CabinModel cabinModel = cabinsList.get(cabin);
+        if ( userToGoFromCabin != null ){
+            userToGoFromCabin.setFloorToGo(floor);
+            synchronized (cabinModel) {
+                cabinModel.addUserInCabin(userToGoFromCabin);
+            }
+            TransitionLog.entered(userToGoFromCabin, cabin);
+        }
+        else {
+            abnormalUserEntring.increment();
+            logger.error("No User Found going To {} from {} [il est montee cabin {} ]", new Object[]{floor, cabinFloor, cabin});
+        }
+    }
 
-        logger.info("User exited cabin "+cabin+ " on floor "+ cabinModel.getCurrentFloor());
+    public void userHasExited(int cabin) {
+        List<CabinModel> cabins = cabinsList;
+        if ( cabin < 0 || cabin >= cabins.size() ){
+            // Not journaled : a replay would only meet the same error
+            abnormalUserExiting.increment();
+            logger.error("User exited cabin {}, out of the building", cabin);
+            return;
+        }
+        journal(ModelEvent.exited(cabin));
+        final CabinModel cabinModel = cabins.get(cabin);
 
         updateHappyUsersCount();
 
-        User user = cabinModel.findUserThatCanLeave();
+        User user;
+        int cabinFloor;
+        synchronized (cabinModel) {
+            cabinFloor = cabinModel.getCurrentFloor();
+            logger.debug("User exited cabin {} on floor {}", cabin, cabinFloor);
+
+            user = cabinModel.findUserThatCanLeave();
+            if ( user != null ){
+                cabinModel.getUsersInCabin().remove(user);
+            }
+        }
 
         if ( user == null ){
-            abnormalUserExiting++;
-            logger.error("no user can exit from cabin : "+cabin+ " on floor "+cabinModel.getCurrentFloor());
+            abnormalUserExiting.increment();
+            logger.error("no user can exit from cabin : {} on floor {}", cabin, cabinFloor);
         }else {
-            score = score + user.getStillCanScore();
-            cabinModel.getUsersInCabin().remove(user);
+            score.addAndGet(user.getStillCanScore());
+            metrics.userExited(user.getWaitTime(), user.getTravelTime());
+            TransitionLog.exited(user, cabin, cabinFloor);
         }
     }
 
-    public synchronized void reset() {
-        score = 0D;
-        setUsersWaitingElevator(Lists.<User>newArrayList());
-        cabinsList = Lists.newArrayListWithExpectedSize(cabinCount);
-        CabinModel.CABIN_ID = 0;
-        resetNumber++;
-        abnormalUserEntring = 0;
-        abnormalUserExiting = 0;
-        allUsers = 0;
-        happyUsers = 0;
-        for ( int i=0 ; i < cabinCount ; i++){
-            cabinsList.add(new CabinModel(lowerFloor,higherFloor,cabinSize));
+    public void reset() {
+        synchronized (dispatchLock) {
+            EventJournal eventJournal = journal;
+            EventCapture eventCapture = capture;
+            if ( eventJournal != null || eventCapture != null ){
+                GameSettings settings = GameSettings.of(this);
+                if ( eventJournal != null ) eventJournal.reset(lowerFloor, higherFloor, cabinSize, cabinCount, settings);
+                if ( eventCapture != null ) eventCapture.reset(lowerFloor, higherFloor, cabinSize, cabinCount, settings);
+            }
+
+            score.set(0D);
+            usersWaitingElevator = Lists.newArrayList();
+            pendingCalls.clear();
+            ingestion.clear();
+            resetNumber++;
+            abnormalUserEntring.set(0);
+            abnormalUserExiting.set(0);
+            allUsers.set(0);
+            happyUsers.set(0);
+
+            // A new game starts a new day, what was learnt of the building is kept
+            if ( callDemand == null || !callDemand.covers(lowerFloor, higherFloor) ){
+                callDemand = new CallDemand(lowerFloor, higherFloor);
+            } else {
+                callDemand.restartDay();
+            }
+
+            CommandPolicy policy = commandPolicy;
+            CabinTuning cabinTuning = tuning;
+            List<CabinModel> cabins = Lists.newArrayListWithExpectedSize(cabinCount);
+            for ( int i=0 ; i < cabinCount ; i++){
+                CabinModel cabin = new CabinModel(i, lowerFloor, higherFloor, cabinSize);
+                cabin.setCommandPolicy(policy);
+                cabin.setTuning(cabinTuning);
+                cabins.add(cabin);
+            }
+            cabinsList = cabins;
+            searching = policy == CommandPolicy.SEARCH;
+            publishSnapshot();
+            TransitionLog.reset(resetNumber, lowerFloor, higherFloor, cabinSize, cabinCount);
+        }
+    }
+
+    Queue<User> getPendingCalls() {
+        return pendingCalls;
+    }
+
+    /**
+     * End of a restore from a {@link ModelState} : calls not yet assigned are queued back
+     * and the restored state is published.
+     */
+    void restored(List<User> calls) {
+        pendingCalls.addAll(calls);
+        publishSnapshot();
+    }
+
+    /**
+     * Snapshot published at the end of the last tick (or by the last reset).
+     * Reading it takes no lock, and every reader of a version sees the same object.
+     */
+    public ElevatorModelSnapshot getPublishedSnapshot() {
+        return publishedSnapshot.get();
+    }
+
+    /**
+     * A tick publishes out of the dispatch lock, so it may race with a reset :
+     * a snapshot is only published over an older version, and the readers never go back.
+     */
+    private ElevatorModelSnapshot publishSnapshot() {
+        ElevatorModelSnapshot snapshot = snapshot(snapshotVersion.incrementAndGet());
+        ElevatorModelSnapshot published;
+        do {
+            published = publishedSnapshot.get();
+            if ( published != null && published.getVersion() > snapshot.getVersion() ) break;
+        } while ( !publishedSnapshot.compareAndSet(published, snapshot) );
+        return snapshot;
+    }
+
+    /**
+     * Copy of the model as it is now, with the version of the last published snapshot.
+     * Readers that can live with the state of the last tick should prefer
+     * {@link #getPublishedSnapshot()}, which is not copied again for each of them.
+     */
+    public ElevatorModelSnapshot snapshot() {
+        return snapshot(snapshotVersion.get());
+    }
+
+    /**
+     * Each cabin is copied under its own monitor, so that the copy never walks a list being modified.
+     */
+    private ElevatorModelSnapshot snapshot(long version) {
+        List<User> usersWithoutCabin;
+        synchronized (dispatchLock) {
+            usersWithoutCabin = copyOf(usersWaitingElevator);
+        }
+
+        List<CabinModel> cabins = cabinsList;
+        List<CabinSnapshot> cabinSnapshots = Lists.newArrayListWithExpectedSize(cabins.size());
+        for (CabinModel cabin : cabins) {
+            synchronized (cabin) {
+                cabinSnapshots.add(new CabinSnapshot(cabin, copyOf(cabin.getUsersInCabin()), copyOf(cabin.getUsersWaitingCabin())));
+            }
         }
+        return new ElevatorModelSnapshot(this, version, usersWithoutCabin, ImmutableList.copyOf(cabinSnapshots));
     }
 
-    public synchronized void updateScore(){
-        for (User user : getUsersWaitingElevator()) {
-            user.setWaitTime(user.getWaitTime() + 1);
+    private static List<User> copyOf(List<User> users) {
+        ImmutableList.Builder<User> copies = ImmutableList.builder();
+        for (User user : users) {
+            copies.add(new User(user));
         }
+        return copies.build();
     }
 
     private void updateHappyUsersCount() {
-        happyUsers++;
+        happyUsers.increment();
     }
 
     private void updateAllUsersCount() {
-        allUsers++;
+        allUsers.increment();
     }
 
     public int getResetNumber() {
@@ -311,34 +776,34 @@ public class ElevatorModel {
     }
 
     public int getAbnormalUserEntring() {
-        return abnormalUserEntring;
+        return (int) abnormalUserEntring.sum();
     }
 
     public void setAbnormalUserEntring(int abnormalUserEntring) {
-        this.abnormalUserEntring = abnormalUserEntring;
+        this.abnormalUserEntring.set(abnormalUserEntring);
     }
 
     public int getAbnormalUserExiting() {
-        return abnormalUserExiting;
+        return (int) abnormalUserExiting.sum();
     }
 
     public void setAbnormalUserExiting(int abnormalUserExiting) {
-        this.abnormalUserExiting = abnormalUserExiting;
+        this.abnormalUserExiting.set(abnormalUserExiting);
     }
 
     public int getHappyUsers() {
-        return happyUsers;
+        return (int) happyUsers.sum();
     }
 
     public void setHappyUsers(int happyUsers) {
-        this.happyUsers = happyUsers;
+        this.happyUsers.set(happyUsers);
     }
 
     public int getAllUsers() {
-        return allUsers;
+        return (int) allUsers.sum();
     }
 
     public void setAllUsers(int allUsers) {
-        this.allUsers = allUsers;
+        this.allUsers.set(allUsers);
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package fr.elevator.model;
+
+import fr.elevator.common.User;
+
+import java.util.List;
+
+/**
+ * Read only copy of the elevator model, with the same properties as the model
+ * itself, for the dashboard.
+ *
+ * Immutable once built: lists are immutable and hold copies of the users that
+ * nobody modifies, so a snapshot can be read and serialized without any lock.
+ */
+public class ElevatorModelSnapshot {
+
+    // Number of the tick after which the snapshot was taken
+    private final long version;
+
+    private final List<User> usersWaitingElevator;
+
+    private final List<CabinSnapshot> cabinsList;
+
+    private final Double score;
+
+    private final int lowerFloor;
+    private final int higherFloor;
+    private final int cabinSize;
+    private final int cabinCount;
+    private final int resetNumber;
+
+    private final int abnormalUserEntring;
+    private final int abnormalUserExiting;
+
+    private final int allUsers;
+    private final int happyUsers;
+
+    ElevatorModelSnapshot(ElevatorModel model, long version, List<User> usersWaitingElevator, List<CabinSnapshot> cabinsList) {
+        this.version = version;
+        this.usersWaitingElevator = usersWaitingElevator;
+        this.cabinsList = cabinsList;
+        this.score = model.getScore();
+        this.lowerFloor = model.getLowerFloor();
+        this.higherFloor = model.getHigherFloor();
+        this.cabinSize = model.getCabinSize();
+        this.cabinCount = model.getCabinCount();
+        this.resetNumber = model.getResetNumber();
+        this.abnormalUserEntring = model.getAbnormalUserEntring();
+        this.abnormalUserExiting = model.getAbnormalUserExiting();
+        this.allUsers = model.getAllUsers();
+        this.happyUsers = model.getHappyUsers();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<User> getUsersWaitingElevator() {
+        return usersWaitingElevator;
+    }
+
+    public List<CabinSnapshot> getCabinsList() {
+        return cabinsList;
+    }
+
+    public Double getScore() {
+        return score;
+    }
+
+    public int getLowerFloor() {
+        return lowerFloor;
+    }
+
+    public int getHigherFloor() {
+        return higherFloor;
+    }
+
+    public int getCabinSize() {
+        return cabinSize;
+    }
+
+    public int getCabinCount() {
+        return cabinCount;
+    }
+
+    public int getResetNumber() {
+        return resetNumber;
+    }
+
+    public int getAbnormalUserEntring() {
+        return abnormalUserEntring;
+    }
+
+    public int getAbnormalUserExiting() {
+        return abnormalUserExiting;
+    }
+
+    public int getAllUsers() {
+        return allUsers;
+    }
+
+    public int getHappyUsers() {
+        return happyUsers;
+    }
+}
@@ -0,0 +1,132 @@
+package fr.elevator.model;
+
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import fr.elevator.util.ElevatorMathUtil;
+
+import java.util.List;
+
+/**
+ * Dispatcher predicting, for each cabin, when it would pick the calling user up
+ * if it keeps serving the stops it already committed to : it goes on in its
+ * current direction up to its farthest stop, then turns back, and so on.
+ *
+ * The user score expected from that time of arrival is balanced against what a
+ * new stop costs to the users of the cabin served after it, and the user goes to
+ * the cabin with the best balance.
+ */
+public class EtaCostDispatcher implements Dispatcher {
+
+    // Ticks lost at each stop : open then close
+    static final int STOP_TICKS = 2;
+
+    // Enough for a cabin to reach any floor in any direction
+    private static final int MAX_SWEEPS = 3;
+
+    @Override
+    public CabinModel findCabinForUser(User user, List<CabinModel> cabins, ElevatorModel model) {
+        CabinModel bestCabin = null;
+        double bestGain = Double.NEGATIVE_INFINITY;
+
+        for (CabinModel cabin : cabins) {
+            double gain;
+            synchronized (cabin) {
+                if ( cabin.isFull() ) continue;
+                gain = expectedGain(cabin, user);
+            }
+            if ( gain > bestGain ){
+                bestGain = gain;
+                bestCabin = cabin;
+            }
+        }
+        return bestCabin;
+    }
+
+    /**
+     * Score the user can expect from this cabin minus the score lost by the users
+     * of the cabin because of the extra stop.
+     */
+    double expectedGain(CabinModel cabin, User user) {
+        RouteEstimate estimate = estimatePickUp(cabin, user.getComingFrom(), user.getDirection());
+
+        double userScore = ElevatorMathUtil.waitingScore(user.getWaitTime() + estimate.ticks);
+        if ( !estimate.newStop ){
+            return userScore;
+        }
+        // Riders lose the whole stop on their travel time, waiting users half of it on their wait time
+        return userScore - STOP_TICKS * (estimate.ridersAfter + estimate.waitingAfter / 2d);
+    }
+
+    RouteEstimate estimatePickUp(CabinModel cabin, int userFloor, Direction userDirection) {
+        RouteEstimate estimate = new RouteEstimate();
+        estimate.newStop = cabin.countUsersWaitingAt(userFloor) == 0 && cabin.countUsersGoingTo(userFloor) == 0;
+
+        int floor = cabin.getCurrentFloor();
+        int ticks = cabin.isDoorOpened() ? 1 : 0;
+
+        if ( cabin.isEmpty() ){
+            estimate.ticks = ticks + Math.abs(floor - userFloor);
+            return estimate;
+        }
+
+        int riders = cabin.getUsersInCabin().size();
+        int waiting = cabin.getUsersWaitingCabin().size();
+        Direction direction = cabin.getElevatorDirection();
+
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            int step = (direction == Direction.UP) ? 1 : -1;
+            int end = sweepEnd(cabin, floor, userFloor, direction);
+
+            // The turning floor of the previous sweep has already been served
+            for (int f = (sweep == 0) ? floor : floor + step; step * (end - f) >= 0; f += step) {
+                if ( f != floor ) ticks++;
+
+                if ( f == userFloor && (direction == userDirection || f == end) ){
+                    estimate.ticks = ticks;
+                    estimate.ridersAfter = riders;
+                    estimate.waitingAfter = waiting;
+                    return estimate;
+                }
+
+                int dropped = cabin.countUsersGoingTo(f);
+                int pickedUp = cabin.countUsersWaitingAt(f);
+                if ( dropped + pickedUp > 0 ){
+                    ticks += STOP_TICKS;
+                    riders -= dropped;
+                    waiting -= pickedUp;
+                }
+            }
+
+            floor = end;
+            direction = (direction == Direction.UP) ? Direction.DOWN : Direction.UP;
+        }
+
+        // Not reachable with the known stops, should not happen
+        estimate.ticks = ticks + Math.abs(floor - userFloor);
+        return estimate;
+    }
+
+    /**
+     * Farthest floor the cabin goes to in this direction, the user floor included.
+     */
+    private int sweepEnd(CabinModel cabin, int floor, int userFloor, Direction direction) {
+        Integer farthestFloor = cabin.farthestPendingFloor(direction);
+        int end = floor;
+        if (direction == Direction.UP) {
+            if ( farthestFloor != null ) end = Math.max(end, farthestFloor);
+            return Math.max(end, userFloor);
+        }
+        if ( farthestFloor != null ) end = Math.min(end, farthestFloor);
+        return Math.min(end, userFloor);
+    }
+
+    static class RouteEstimate {
+        // Ticks before the user is picked up
+        int ticks;
+        // Nobody else to drop or pick up at the user floor
+        boolean newStop;
+        // Users of the cabin still riding / waiting when the user is picked up
+        int ridersAfter;
+        int waitingAfter;
+    }
+}
@@ -0,0 +1,303 @@
+package fr.elevator.model;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.elevator.common.CabinCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capture of the events received by a model and of the commands it answered,
+ * to reproduce a game offline, see {@link #replay(File, ElevatorModel)}.
+ *
+ * A capture file holds the {@link ModelEvent} longs in the order the model applied
+ * them, as in the {@link EventJournal}, and after each tick a COMMANDS record with
+ * the command of each cabin. A RESET record is followed by the building and the
+ * {@link GameSettings} of the game, which the commands depend on. Each reset starts a new file, capture-[time]-[n].bin,
+ * so that a file replays one game from its reset.
+ *
+ * The cabin commands are computed out of the dispatch lock, so events of the request
+ * threads may be recorded between a TICK and its COMMANDS, and the COMMANDS of two
+ * overlapping ticks may be swapped : both records hold the number of the tick, and
+ * the replay compares the commands with the ones of the tick of the same number.
+ *
+ * The records are queued and written by one writer thread, so that the request
+ * threads do not wait on the disk ; they only wait when the queue is full. The file
+ * is flushed each time the writer has caught up with the queue.
+ */
+public final class EventCapture implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventCapture.class);
+
+    private static final int MAGIC = 0x454C5643;
+    private static final int VERSION = 4;
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+
+    // Queued by close, after the last record
+    private static final byte[] CLOSED = new byte[0];
+
+    private final File directory;
+    private final ElevatorModel model;
+
+    private final BlockingQueue<byte[]> records = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final ExecutorService writer;
+    private volatile boolean closed;
+
+    // Only written by the ticks, under the dispatch lock
+    private int ticks;
+
+    // Only used by the writer thread, once the constructor returned
+    private volatile File file;
+    private DataOutputStream out;
+    private int files;
+
+    // False until the current file holds a record
+    private boolean recorded;
+
+    private EventCapture(File directory, ElevatorModel model) throws IOException {
+        this.directory = directory;
+        this.model = model;
+        if ( !directory.isDirectory() && !directory.mkdirs() ){
+            throw new IOException("Cannot create capture directory " + directory);
+        }
+        nextFile();
+        writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("capture-writer").setDaemon(true).build());
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        });
+    }
+
+    /**
+     * Capture the events of the model from now on, in files of the directory.
+     */
+    public static EventCapture start(File directory, ElevatorModel model) throws IOException {
+        EventCapture capture = new EventCapture(directory, model);
+        model.setCapture(capture);
+        logger.info("Capturing model events in {}", directory);
+        return capture;
+    }
+
+    void append(long event) {
+        queue(ByteBuffer.allocate(8).putLong(event).array());
+    }
+
+    void reset(int lowerFloor, int higherFloor, int cabinSize, int cabinCount, GameSettings settings) {
+        ByteBuffer record = ByteBuffer.allocate(8 * (3 + GameSettings.LONGS));
+        record.putLong(ModelEvent.reset());
+        record.putLong(ModelEvent.pack(lowerFloor, higherFloor));
+        record.putLong(ModelEvent.pack(cabinSize, cabinCount));
+        for (int i = 0; i < GameSettings.LONGS; i++) {
+            record.putLong(settings.get(i));
+        }
+        queue(record.array());
+    }
+
+    /**
+     * Called under the dispatch lock.
+     *
+     * @return number of the tick, to give back to {@link #commands(int, List)}
+     */
+    int tick() {
+        int tick = ++ticks;
+        append(ModelEvent.tick(tick));
+        return tick;
+    }
+
+    void commands(int tick, List<CabinCommand> commands) {
+        ByteBuffer record = ByteBuffer.allocate(8 + commands.size());
+        record.putLong(ModelEvent.commands(tick, commands.size()));
+        for (CabinCommand command : commands) {
+            record.put((byte) command.ordinal());
+        }
+        queue(record.array());
+    }
+
+    private void queue(byte[] record) {
+        if ( closed ) return;
+        try {
+            records.put(record);
+        } catch (InterruptedException e) {
+            logger.warn("Capture record lost, {} may not replay", file);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        try {
+            while ( true ){
+                byte[] record = records.take();
+                if ( record == CLOSED ) break;
+                write(record);
+                if ( records.isEmpty() ) flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            closeFile();
+        } catch (IOException e) {
+            logger.error("Capture in {} not closed", file, e);
+        }
+    }
+
+    private void write(byte[] record) {
+        try {
+            if ( ModelEvent.type(ByteBuffer.wrap(record).getLong()) == ModelEvent.RESET ){
+                if ( recorded || out == null ) nextFile();
+            }
+            if ( out == null ) return;
+            out.write(record);
+            recorded = true;
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void flush() {
+        try {
+            if ( out != null ) out.flush();
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    private void nextFile() throws IOException {
+        closeFile();
+        file = new File(directory, "capture-" + System.currentTimeMillis() + "-" + (files++) + ".bin");
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        recorded = false;
+    }
+
+    private void closeFile() throws IOException {
+        if ( out != null ){
+            out.close();
+            out = null;
+        }
+    }
+
+    // Capture is a debugging aid : an I/O error stops it, until the next reset, rather than the model
+    private void failed(IOException e) {
+        logger.error("Capture in {} stopped", file, e);
+        try {
+            closeFile();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * @return file the writer is on, the last one once closed
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Stop capturing, write the queued records and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        model.setCapture(null);
+        closed = true;
+        writer.shutdown();
+        try {
+            records.put(CLOSED);
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Feed the events of a capture file to the model, at full speed, with the settings
+     * of the captured game, and compare the commands of each tick with the captured ones.
+     */
+    public static ReplayReport replay(File file, ElevatorModel model) throws IOException {
+        return replay(file, model, null);
+    }
+
+    /**
+     * Same as {@link #replay(File, ElevatorModel)}, with another dispatcher than the captured one.
+     *
+     * @param dispatcher dispatcher of the replay, null for the captured one
+     */
+    public static ReplayReport replay(File file, ElevatorModel model, DispatcherType dispatcher) throws IOException {
+        ReplayReport report = new ReplayReport(file);
+        CabinCommand[] values = CabinCommand.values();
+        Map<Integer, List<CabinCommand>> commandsOfTicks = new HashMap<>();
+
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if ( in.readInt() != MAGIC || in.readInt() != VERSION ){
+                throw new IOException("Not a capture file " + file);
+            }
+
+            while ( true ){
+                long event = in.readLong();
+                switch (ModelEvent.type(event)) {
+                    case ModelEvent.COMMANDS:
+                        CabinCommand[] captured = new CabinCommand[ModelEvent.cabin(event)];
+                        for (int i = 0; i < captured.length; i++) {
+                            captured[i] = values[in.readUnsignedByte()];
+                        }
+                        // Unknown when its tick was captured before the reset of the file
+                        List<CabinCommand> replayed = commandsOfTicks.remove(ModelEvent.floor(event));
+                        if ( replayed != null ) report.compared(captured, replayed);
+                        break;
+                    case ModelEvent.TICK:
+                        commandsOfTicks.put(ModelEvent.floor(event), model.findNextCommand());
+                        report.event();
+                        break;
+                    case ModelEvent.RESET:
+                        long floors = in.readLong();
+                        long cabins = in.readLong();
+                        GameSettings settings = GameSettings.read(in).withDispatcher(dispatcher);
+                        EventJournal.apply(event, floors, cabins, settings, model);
+                        report.event();
+                        break;
+                    default:
+                        apply(event, model, report);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the capture, may be in the middle of the last record when the server stopped
+        }
+        report.finish(System.nanoTime() - start, model);
+        return report;
+    }
+
+    // An event the model refuses, as a GO to a cabin it does not have, is reported, not thrown
+    private static void apply(long event, ElevatorModel model, ReplayReport report) {
+        try {
+            EventJournal.apply(event, 0, 0, null, model);
+            report.event();
+        } catch (RuntimeException e) {
+            logger.warn("Replay of {} skipped {}", report.getFile(), Long.toHexString(event), e);
+            report.unapplied(event);
+        }
+    }
+}
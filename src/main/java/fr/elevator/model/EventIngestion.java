@@ -0,0 +1,229 @@
+package fr.elevator.model;
+
+import fr.elevator.common.Direction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entry point for the events coming from the game server (call, go, exit).
+ *
+ * In DIRECT mode events are applied to the model in the request thread.
+ * In QUEUED mode they are pushed on a bounded lock free queue and the request
+ * returns at once; the model applies them in order, in one batch, at the start
+ * of the next findNextCommand. When the queue is full, the overflow policy decides:
+ * - REJECT : the event is refused, the caller should answer 503,
+ * - DROP : the event is lost (and counted),
+ * - DRAIN : the caller drains the queue itself then applies its event, which
+ *   keeps the order of events at the price of blocking like the DIRECT mode.
+ *
+ * Events naming a floor or a cabin the building does not have are refused with an
+ * IllegalArgumentException, before they are applied or queued.
+ */
+public class EventIngestion {
+
+    public enum Mode {
+        DIRECT,
+        QUEUED
+    }
+
+    public enum OverflowPolicy {
+        REJECT,
+        DROP,
+        DRAIN
+    }
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final ElevatorModel model;
+
+    // Lock of the model under which the queue is consumed
+    private final Object dispatchLock;
+
+    private volatile Mode mode = Mode.DIRECT;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DRAIN;
+    private volatile ModelEventQueue queue = new ModelEventQueue(DEFAULT_CAPACITY);
+
+    // Capacity of the queue created on next reset, producers keep offering to the current one until then
+    private volatile int requestedCapacity = DEFAULT_CAPACITY;
+
+    // Backpressure metrics
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong drainedByCaller = new AtomicLong();
+
+    // Only written under dispatchLock
+    private volatile long applied;
+    private volatile long batches;
+    private volatile int largestBatch;
+
+    private final ModelEventQueue.Consumer applier = new ModelEventQueue.Consumer() {
+        @Override
+        public void accept(long event) {
+            apply(event);
+        }
+    };
+
+    EventIngestion(ElevatorModel model, Object dispatchLock) {
+        this.model = model;
+        this.dispatchLock = dispatchLock;
+    }
+
+    /**
+     * Change the ingestion settings, to be called before a reset : a new capacity
+     * only applies from the reset, which forgets the queued events anyway.
+     */
+    public void configure(Mode mode, Integer capacity, OverflowPolicy overflowPolicy) {
+        synchronized (dispatchLock) {
+            if ( mode != null ) this.mode = mode;
+            if ( overflowPolicy != null ) this.overflowPolicy = overflowPolicy;
+            if ( capacity != null ) this.requestedCapacity = capacity;
+        }
+    }
+
+    /**
+     * @return false when the event is rejected, see {@link OverflowPolicy#REJECT}
+     */
+    public boolean call(int floor, Direction direction) {
+        checkFloor(floor);
+        if ( mode == Mode.DIRECT ){
+            model.callAtFloor(floor, direction);
+            return true;
+        }
+        return submit(ModelEvent.call(floor, direction));
+    }
+
+    public boolean go(int floor, int cabin) {
+        checkFloor(floor);
+        checkCabin(cabin);
+        if ( mode == Mode.DIRECT ){
+            model.floorToGo(floor, cabin);
+            return true;
+        }
+        return submit(ModelEvent.go(floor, cabin));
+    }
+
+    public boolean exited(int cabin) {
+        checkCabin(cabin);
+        if ( mode == Mode.DIRECT ){
+            model.userHasExited(cabin);
+            return true;
+        }
+        return submit(ModelEvent.exited(cabin));
+    }
+
+    private void checkFloor(int floor) {
+        if ( !model.hasFloor(floor) ) throw new IllegalArgumentException("No floor " + floor + " in the building");
+    }
+
+    private void checkCabin(int cabin) {
+        if ( !model.hasCabin(cabin) ) throw new IllegalArgumentException("No cabin " + cabin + " in the building");
+    }
+
+    private boolean submit(long event) {
+        if ( queue.offer(event) ){
+            queued.incrementAndGet();
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case REJECT:
+                rejected.incrementAndGet();
+                return false;
+            case DROP:
+                dropped.incrementAndGet();
+                return true;
+            default:
+                drainedByCaller.incrementAndGet();
+                synchronized (dispatchLock) {
+                    drain();
+                    apply(event);
+                }
+                return true;
+        }
+    }
+
+    /**
+     * Apply every queued event, in order. Called with the dispatch lock held.
+     */
+    void drain() {
+        int batch = queue.drain(applier, Integer.MAX_VALUE);
+        if ( batch > 0 ){
+            batches++;
+            largestBatch = Math.max(largestBatch, batch);
+        }
+    }
+
+    /**
+     * Forget every queued event, and take the capacity asked by configure. Called with the dispatch lock held,
+     * by reset : an event still offered to the replaced queue belongs to the previous game, it is forgotten too.
+     */
+    void clear() {
+        queue.drain(new ModelEventQueue.Consumer() {
+            @Override
+            public void accept(long event) {
+            }
+        }, Integer.MAX_VALUE);
+        int capacity = ModelEventQueue.capacityFor(requestedCapacity);
+        if ( capacity != queue.capacity() ) queue = new ModelEventQueue(capacity);
+    }
+
+    private void apply(long event) {
+        applied++;
+        switch (ModelEvent.type(event)) {
+            case ModelEvent.CALL:
+                model.assignCall(ModelEvent.floor(event), ModelEvent.direction(event));
+                break;
+            case ModelEvent.GO:
+                model.floorToGo(ModelEvent.floor(event), ModelEvent.cabin(event));
+                break;
+            case ModelEvent.EXITED:
+                model.userHasExited(ModelEvent.cabin(event));
+                break;
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getCapacity() {
+        return queue.capacity();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getDrainedByCaller() {
+        return drainedByCaller.get();
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public int getLargestBatch() {
+        return largestBatch;
+    }
+}
@@ -0,0 +1,530 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append only journal of the inbound events of a model (call, go, exit, tick, reset),
+ * so that its state survives a restart of the server.
+ *
+ * Events are {@link ModelEvent} longs written in memory mapped segments of fixed size,
+ * journal-N.log. A writer claims its slot with a CAS on the segment position and
+ * writes it, without lock nor system call ; a full segment is replaced by the next one.
+ * The segments are forced to disk by a background thread every flush interval
+ * (group commit) : a request never waits for the disk, and a crash of the machine
+ * loses at most the last interval. A reset is journaled with the building and the
+ * {@link GameSettings} of the game, which the replay applies first.
+ *
+ * Every snapshotEveryTicks ticks a new segment is started and the older ones are
+ * compacted in the background : the last snapshot and the segments that follow are
+ * replayed on a private model, whose {@link ModelState} is written as snapshot-N.bin
+ * before the replayed files are deleted.
+ *
+ * On open, the last snapshot is read into the model and the segments that follow are
+ * replayed, which rebuilds the model as it was when the last event was written.
+ * An event the model cannot apply is skipped and counted, it never stops a replay.
+ *
+ * Replay runs the same code as the live model, but it is not always exact :
+ * - calls are journaled by the tick that takes them, in order, and so are the events of
+ *   the QUEUED ingestion, but in DIRECT mode a go or an exit received while a tick runs
+ *   may be journaled on one side of the tick and applied on the other,
+ * - the batch re-assignment and the command search, bounded by a time budget, may decide differently,
+ * - the ingestion settings are not journaled, they do not change the commands,
+ * - calls not yet assigned, by a tick or a user going to a floor, are lost with the server.
+ */
+public final class EventJournal implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    public static final int DEFAULT_SEGMENT_EVENTS = 1 << 20;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+    public static final int DEFAULT_SNAPSHOT_EVERY_TICKS = 1000;
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("journal-(\\d+)\\.log");
+    private static final Pattern SNAPSHOT_FILE = Pattern.compile("snapshot-(\\d+)\\.bin");
+
+    private final File directory;
+    private final ElevatorModel model;
+    private final int segmentBytes;
+    private final int snapshotEveryTicks;
+
+    private volatile Segment current;
+
+    // Set when a segment cannot be created : journaling stops, the model goes on without it
+    private volatile boolean failed;
+
+    // Segments replaced since the last flush, forced and closed by the flusher once fully written
+    private final List<Segment> retired = Collections.synchronizedList(Lists.<Segment>newArrayList());
+
+    // Sequence of the last snapshot, only written by the compaction
+    private volatile long snapshotSequence;
+
+    // Only written by the tick, under the dispatch lock of the model
+    private int ticks;
+
+    private final ScheduledExecutorService flusher;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final long recoveredEvents;
+
+    // Events of the replays that the model could not apply
+    private final AtomicLong skippedEvents = new AtomicLong();
+
+    private EventJournal(File directory, ElevatorModel model, int segmentEvents, long flushIntervalMillis, int snapshotEveryTicks) throws IOException {
+        this.directory = directory;
+        this.model = model;
+        this.segmentBytes = segmentEvents * 8;
+        this.snapshotEveryTicks = snapshotEveryTicks;
+
+        if ( !directory.isDirectory() && !directory.mkdirs() ){
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        long lastSnapshot = lastSequence(SNAPSHOT_FILE);
+        long lastSegment = lastSequence(SEGMENT_FILE);
+        if ( lastSnapshot < 0 ){
+            // First use of the directory : the model as it is now is the base of the journal
+            lastSnapshot = 0;
+            writeSnapshot(model, 0);
+            recoveredEvents = 0;
+        } else {
+            TransitionLog.mute(true);
+            try {
+                recoveredEvents = restore(model, lastSnapshot, Long.MAX_VALUE);
+            } finally {
+                TransitionLog.mute(false);
+            }
+        }
+        snapshotSequence = lastSnapshot;
+        current = new Segment(Math.max(lastSnapshot, lastSegment + 1));
+
+        flusher = Executors.newSingleThreadScheduledExecutor(daemon("journal-flush"));
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        compactor = Executors.newSingleThreadExecutor(daemon("journal-compaction"));
+    }
+
+    public static EventJournal open(File directory, ElevatorModel model) throws IOException {
+        return open(directory, model, DEFAULT_SEGMENT_EVENTS, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_SNAPSHOT_EVERY_TICKS);
+    }
+
+    /**
+     * Rebuild the model from the journal of the directory, then journal its events.
+     * To be called before the model receives any event.
+     */
+    public static EventJournal open(File directory, ElevatorModel model, int segmentEvents,
+                                    long flushIntervalMillis, int snapshotEveryTicks) throws IOException {
+        EventJournal journal = new EventJournal(directory, model, segmentEvents, flushIntervalMillis, snapshotEveryTicks);
+        model.setJournal(journal);
+        logger.info("Journal {} opened, {} events replayed, {} skipped", new Object[]{directory, journal.recoveredEvents, journal.getSkippedEvents()});
+        return journal;
+    }
+
+    void append(long event) {
+        while ( !failed ){
+            Segment segment = current;
+            int offset = segment.claim(8);
+            if ( offset >= 0 ){
+                segment.buffer.putLong(offset, event);
+                segment.written(8);
+                return;
+            }
+            roll(segment);
+        }
+    }
+
+    void reset(int lowerFloor, int higherFloor, int cabinSize, int cabinCount, GameSettings settings) {
+        int bytes = ModelEvent.length(ModelEvent.reset()) * 8;
+        while ( !failed ){
+            Segment segment = current;
+            int offset = segment.claim(bytes);
+            if ( offset >= 0 ){
+                // Header last : a reader stops on a header not yet written, never reads a partial reset
+                segment.buffer.putLong(offset + 8, ModelEvent.pack(lowerFloor, higherFloor));
+                segment.buffer.putLong(offset + 16, ModelEvent.pack(cabinSize, cabinCount));
+                for (int i = 0; i < GameSettings.LONGS; i++) {
+                    segment.buffer.putLong(offset + 24 + i * 8, settings.get(i));
+                }
+                segment.buffer.putLong(offset, ModelEvent.reset());
+                segment.written(bytes);
+                return;
+            }
+            roll(segment);
+        }
+    }
+
+    /**
+     * Called at each tick with the dispatch lock of the model held.
+     */
+    void tick() {
+        append(ModelEvent.tick());
+        if ( ++ticks % snapshotEveryTicks == 0 && !failed ){
+            long compactUntil = roll(current);
+            if ( compacting.compareAndSet(false, true) ){
+                compactor.execute(compaction(compactUntil));
+            }
+        }
+    }
+
+    /**
+     * Replace the segment by the next one, unless another thread already did.
+     * When the next one cannot be created (disk full, permissions) the journal stops :
+     * the events that follow are not journaled, but requests and ticks go on.
+     * @return sequence of the current segment
+     */
+    private synchronized long roll(Segment full) {
+        if ( current == full && !failed ){
+            try {
+                current = new Segment(full.sequence + 1);
+                retired.add(full);
+            } catch (IOException e) {
+                failed = true;
+                model.setJournal(null);
+                logger.error("Journal {} stopped, the next events are not journaled", directory, e);
+            }
+        }
+        return current.sequence;
+    }
+
+    /**
+     * Force to disk what has been written since the last flush.
+     */
+    void flush() {
+        try {
+            synchronized (retired) {
+                for (Segment segment : Lists.newArrayList(retired)) {
+                    if ( segment.isComplete() ){
+                        segment.close();
+                        retired.remove(segment);
+                    }
+                }
+            }
+            current.force();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Journal flush failed", e);
+        }
+    }
+
+    private Runnable compaction(final long until) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                // Replayed events are not logged again, the thread only replays
+                TransitionLog.mute(true);
+                try {
+                    compact(until);
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Journal compaction failed", e);
+                } finally {
+                    compacting.set(false);
+                }
+            }
+        };
+    }
+
+    /**
+     * Write the state after every segment before the given one as a snapshot,
+     * then delete what it replaces.
+     */
+    private void compact(long until) throws IOException {
+        // Writers of the segments to compact are only finishing their slot. Waited for without
+        // the lock of the list, which the flusher needs meanwhile
+        List<Segment> replaced;
+        synchronized (retired) {
+            replaced = Lists.newArrayList(retired);
+        }
+        for (Segment segment : replaced) {
+            while ( segment.sequence < until && !segment.isComplete() ){
+                Thread.yield();
+            }
+        }
+
+        long from = snapshotSequence;
+        ElevatorModel replica = ElevatorModel.newInstance();
+        restore(replica, from, until);
+        writeSnapshot(replica, until);
+        snapshotSequence = until;
+
+        for (File file : files(SNAPSHOT_FILE)) {
+            if ( sequenceOf(file, SNAPSHOT_FILE) < until ) delete(file);
+        }
+        for (File file : files(SEGMENT_FILE)) {
+            if ( sequenceOf(file, SEGMENT_FILE) < until ) delete(file);
+        }
+        logger.debug("Journal compacted until segment {}", until);
+    }
+
+    /**
+     * Read the snapshot into the target then replay the segments from the snapshot up to the given one, excluded.
+     * @return number of events replayed
+     */
+    private long restore(ElevatorModel target, long snapshot, long until) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile(snapshot))))) {
+            ModelState.read(in, target);
+        }
+
+        long events = 0;
+        for (File file : files(SEGMENT_FILE)) {
+            long sequence = sequenceOf(file, SEGMENT_FILE);
+            if ( sequence >= snapshot && sequence < until ){
+                events += replay(file, target);
+            }
+        }
+        return events;
+    }
+
+    private long replay(File file, ElevatorModel target) throws IOException {
+        long events = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            int offset = 0;
+            while ( offset + 8 <= buffer.limit() ){
+                long event = buffer.getLong(offset);
+                // Never written : end of the journal
+                if ( event == 0 ) break;
+
+                int length = ModelEvent.length(event) * 8;
+                if ( offset + length > buffer.limit() ) break;
+                boolean reset = ModelEvent.type(event) == ModelEvent.RESET;
+                try {
+                    GameSettings settings = null;
+                    if ( ModelEvent.hasSettings(event) ){
+                        long[] longs = new long[GameSettings.LONGS];
+                        for (int i = 0; i < longs.length; i++) {
+                            longs[i] = buffer.getLong(offset + 24 + i * 8);
+                        }
+                        settings = GameSettings.of(longs);
+                    }
+                    apply(event, reset ? buffer.getLong(offset + 8) : 0, reset ? buffer.getLong(offset + 16) : 0, settings, target);
+                } catch (RuntimeException e) {
+                    skippedEvents.incrementAndGet();
+                    logger.warn("Journal event {} of {} skipped", Long.toHexString(event), file.getName(), e);
+                }
+                offset += length;
+                events++;
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Apply the event to the target as the live model did, floors, cabins and settings are only
+     * read for a reset, settings may be null.
+     */
+    static void apply(long event, long floors, long cabins, GameSettings settings, ElevatorModel target) {
+        switch (ModelEvent.type(event)) {
+            case ModelEvent.CALL:
+                target.callAtFloor(ModelEvent.floor(event), ModelEvent.direction(event));
+                break;
+            case ModelEvent.ASSIGN:
+                target.assignCall(ModelEvent.floor(event), ModelEvent.direction(event));
+                break;
+            case ModelEvent.GO:
+                target.floorToGo(ModelEvent.floor(event), ModelEvent.cabin(event));
+                break;
+            case ModelEvent.EXITED:
+                target.userHasExited(ModelEvent.cabin(event));
+                break;
+            case ModelEvent.TICK:
+                target.findNextCommand();
+                break;
+            case ModelEvent.RESET:
+                if ( settings != null ) settings.applyTo(target);
+                target.setLowerFloor(ModelEvent.high(floors));
+                target.setHigherFloor(ModelEvent.low(floors));
+                target.setCabinSize(ModelEvent.high(cabins));
+                target.setCabinCount(ModelEvent.low(cabins));
+                target.reset();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal event " + Long.toHexString(event));
+        }
+    }
+
+    private void writeSnapshot(ElevatorModel state, long sequence) throws IOException {
+        File temporary = new File(directory, "snapshot-" + sequence + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            ModelState.write(state, out);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary.toPath(), snapshotFile(sequence).toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private File snapshotFile(long sequence) {
+        return new File(directory, "snapshot-" + sequence + ".bin");
+    }
+
+    private List<File> files(final Pattern pattern) {
+        List<File> files = Lists.newArrayList();
+        File[] all = directory.listFiles();
+        if ( all != null ){
+            for (File file : all) {
+                if ( sequenceOf(file, pattern) >= 0 ) files.add(file);
+            }
+        }
+        Collections.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.compare(sequenceOf(first, pattern), sequenceOf(second, pattern));
+            }
+        });
+        return files;
+    }
+
+    private long lastSequence(Pattern pattern) {
+        long last = -1;
+        for (File file : files(pattern)) {
+            last = Math.max(last, sequenceOf(file, pattern));
+        }
+        return last;
+    }
+
+    private static long sequenceOf(File file, Pattern pattern) {
+        Matcher matcher = pattern.matcher(file.getName());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static void delete(File file) {
+        if ( file.exists() && !file.delete() ){
+            logger.warn("Cannot delete {}", file);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return new ThreadFactoryBuilder().setNameFormat(name).setDaemon(true).build();
+    }
+
+    public long getRecoveredEvents() {
+        return recoveredEvents;
+    }
+
+    /**
+     * @return events of the replays, on open and by the compactions, that the model could not apply
+     */
+    public long getSkippedEvents() {
+        return skippedEvents.get();
+    }
+
+    public long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * @return true when journaling stopped on a segment that could not be created
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public long getSegmentSequence() {
+        return current.sequence;
+    }
+
+    /**
+     * Stop journaling, wait for a running compaction and force the last events to disk.
+     */
+    @Override
+    public void close() throws IOException {
+        model.setJournal(null);
+        compactor.shutdown();
+        flusher.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        current.close();
+    }
+
+    /**
+     * Memory mapped file of segmentBytes bytes, zero filled when created.
+     */
+    private class Segment {
+
+        private final long sequence;
+        private final RandomAccessFile file;
+        private final MappedByteBuffer buffer;
+
+        // Bytes claimed by writers, then bytes they have written
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicInteger written = new AtomicInteger();
+
+        Segment(long sequence) throws IOException {
+            this.sequence = sequence;
+            this.file = new RandomAccessFile(new File(directory, "journal-" + sequence + ".log"), "rw");
+            try {
+                this.buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            } catch (IOException e) {
+                file.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return offset of the slot, -1 when the segment is full
+         */
+        int claim(int bytes) {
+            while ( true ){
+                int offset = claimed.get();
+                if ( offset + bytes > segmentBytes ) return -1;
+                if ( claimed.compareAndSet(offset, offset + bytes) ) return offset;
+            }
+        }
+
+        void written(int bytes) {
+            written.addAndGet(bytes);
+        }
+
+        boolean isComplete() {
+            return written.get() == claimed.get();
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fr.elevator.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Settings of a game chosen on /reset, besides the building, that the commands depend on :
+ * dispatcher, command policy, parking, tuning and time budgets.
+ *
+ * Written as LONGS longs with each reset of the {@link EventJournal} and of the
+ * {@link EventCapture}, and in each {@link ModelState}, so that a replay decides as
+ * the live model did. Ingestion and the parallel cabin threshold do not change the
+ * commands, they are not part of it.
+ */
+final class GameSettings {
+
+    static final int LONGS = 6;
+
+    // Written instead of the dispatcher type when the dispatcher is none of DispatcherType
+    private static final int OTHER_DISPATCHER = -1;
+
+    private static final CommandPolicy[] POLICIES = CommandPolicy.values();
+    private static final DispatcherType[] DISPATCHERS = DispatcherType.values();
+
+    private final int dispatcher;
+    private final CommandPolicy commandPolicy;
+    private final boolean parking;
+    private final CabinTuning tuning;
+    private final long batchAssignmentBudgetMicros;
+    private final long searchBudgetMicros;
+
+    private GameSettings(int dispatcher, CommandPolicy commandPolicy, boolean parking, CabinTuning tuning,
+                         long batchAssignmentBudgetMicros, long searchBudgetMicros) {
+        this.dispatcher = dispatcher;
+        this.commandPolicy = commandPolicy;
+        this.parking = parking;
+        this.tuning = tuning;
+        this.batchAssignmentBudgetMicros = batchAssignmentBudgetMicros;
+        this.searchBudgetMicros = searchBudgetMicros;
+    }
+
+    static GameSettings of(ElevatorModel model) {
+        DispatcherType dispatcher = DispatcherType.of(model.getDispatcher());
+        return new GameSettings(dispatcher == null ? OTHER_DISPATCHER : dispatcher.ordinal(),
+                model.getCommandPolicy(), model.isParking(), model.getTuning(),
+                model.getBatchAssignmentBudgetMicros(), model.getSearchBudgetMicros());
+    }
+
+    /**
+     * @param dispatcher dispatcher to use instead of these settings one, null to keep it
+     */
+    GameSettings withDispatcher(DispatcherType dispatcher) {
+        if ( dispatcher == null ) return this;
+        return new GameSettings(dispatcher.ordinal(), commandPolicy, parking, tuning,
+                batchAssignmentBudgetMicros, searchBudgetMicros);
+    }
+
+    /**
+     * Set on the model, as /reset does, before its reset. A dispatcher that is
+     * none of DispatcherType is left as the model has it.
+     */
+    void applyTo(ElevatorModel model) {
+        if ( dispatcher != OTHER_DISPATCHER ) model.setDispatcher(DISPATCHERS[dispatcher].create());
+        model.setCommandPolicy(commandPolicy);
+        model.setParking(parking);
+        model.setTuning(tuning);
+        model.setBatchAssignmentBudgetMicros(batchAssignmentBudgetMicros);
+        model.setSearchBudgetMicros(searchBudgetMicros);
+    }
+
+    long get(int index) {
+        switch (index) {
+            case 0: return ModelEvent.pack(dispatcher, commandPolicy.ordinal() << 1 | (parking ? 1 : 0));
+            case 1: return Double.doubleToLongBits(tuning.getAlmostFullRatio());
+            case 2: return Double.doubleToLongBits(tuning.getRiderMinScore());
+            case 3: return Double.doubleToLongBits(tuning.getWaitingMinScore());
+            case 4: return batchAssignmentBudgetMicros;
+            case 5: return searchBudgetMicros;
+            default: throw new IndexOutOfBoundsException("No settings long " + index);
+        }
+    }
+
+    /**
+     * @param longs the LONGS longs of {@link #get(int)}, in order
+     */
+    static GameSettings of(long[] longs) {
+        int policyAndParking = ModelEvent.low(longs[0]);
+        return new GameSettings(ModelEvent.high(longs[0]),
+                POLICIES[policyAndParking >>> 1],
+                (policyAndParking & 1) != 0,
+                new CabinTuning(Double.longBitsToDouble(longs[1]), Double.longBitsToDouble(longs[2]), Double.longBitsToDouble(longs[3])),
+                longs[4], longs[5]);
+    }
+
+    void write(DataOutput out) throws IOException {
+        for (int i = 0; i < LONGS; i++) {
+            out.writeLong(get(i));
+        }
+    }
+
+    static GameSettings read(DataInput in) throws IOException {
+        long[] longs = new long[LONGS];
+        for (int i = 0; i < LONGS; i++) {
+            longs[i] = in.readLong();
+        }
+        return of(longs);
+    }
+}
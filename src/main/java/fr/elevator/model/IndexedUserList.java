@@ -0,0 +1,120 @@
+package fr.elevator.model;
+
+import com.google.common.collect.ForwardingList;
+import com.google.common.collect.Lists;
+import fr.elevator.common.User;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * User list that reports every addition and removal to a listener, so that
+ * the cabin indexes stay in sync whichever way the list is mutated
+ * (add, remove, iterator, sub list...).
+ */
+class IndexedUserList extends ForwardingList<User> {
+
+    interface Listener {
+        void userAdded(User user);
+        void userRemoved(User user);
+    }
+
+    private final List<User> users = Lists.newArrayList();
+
+    private final Listener listener;
+
+    IndexedUserList(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    protected List<User> delegate() {
+        return users;
+    }
+
+    @Override
+    public boolean add(User user) {
+        users.add(user);
+        listener.userAdded(user);
+        return true;
+    }
+
+    @Override
+    public void add(int index, User user) {
+        users.add(index, user);
+        listener.userAdded(user);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends User> collection) {
+        return standardAddAll(collection);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends User> elements) {
+        return standardAddAll(index, elements);
+    }
+
+    @Override
+    public User set(int index, User user) {
+        User previous = users.set(index, user);
+        listener.userRemoved(previous);
+        listener.userAdded(user);
+        return previous;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        int index = users.indexOf(object);
+        if ( index < 0 ) return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public User remove(int index) {
+        User user = users.remove(index);
+        listener.userRemoved(user);
+        return user;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> collection) {
+        return standardRemoveAll(collection);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> collection) {
+        return standardRetainAll(collection);
+    }
+
+    @Override
+    public void clear() {
+        for (User user : users) {
+            listener.userRemoved(user);
+        }
+        users.clear();
+    }
+
+    @Override
+    public Iterator<User> iterator() {
+        return standardIterator();
+    }
+
+    @Override
+    public ListIterator<User> listIterator() {
+        return standardListIterator();
+    }
+
+    @Override
+    public ListIterator<User> listIterator(int index) {
+        return standardListIterator(index);
+    }
+
+    @Override
+    public List<User> subList(int fromIndex, int toIndex) {
+        return standardSubList(fromIndex, toIndex);
+    }
+}
@@ -0,0 +1,111 @@
+package fr.elevator.model;
+
+import fr.elevator.common.Direction;
+
+/**
+ * Inbound events packed in a long, so that they can be queued without allocation :
+ * type on the high byte, second argument (cabin or direction) on the next 24 bits
+ * and the floor on the low 32 bits.
+ *
+ * ASSIGN, TICK and RESET are only written to the {@link EventJournal} and the
+ * {@link EventCapture} : ASSIGN is a call applied at once by the queued ingestion,
+ * RESET is followed by two longs holding the floors and the cabins of the building,
+ * then by the {@link GameSettings} when its argument is WITH_SETTINGS (older journals have none).
+ * COMMANDS, only captured, holds the number of its tick as floor and the cabin count
+ * as second argument, and is followed by one byte per cabin ; the captured TICK holds
+ * the same number as floor.
+ */
+final class ModelEvent {
+
+    static final int CALL = 1;
+    static final int GO = 2;
+    static final int EXITED = 3;
+    static final int ASSIGN = 4;
+    static final int TICK = 5;
+    static final int RESET = 6;
+    static final int COMMANDS = 7;
+
+    // Argument of a RESET followed by the game settings
+    static final int WITH_SETTINGS = 1;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private ModelEvent() {
+    }
+
+    static long call(int floor, Direction direction) {
+        return encode(CALL, floor, direction.ordinal());
+    }
+
+    static long go(int floor, int cabin) {
+        return encode(GO, floor, cabin);
+    }
+
+    static long exited(int cabin) {
+        return encode(EXITED, 0, cabin);
+    }
+
+    static long assign(int floor, Direction direction) {
+        return encode(ASSIGN, floor, direction.ordinal());
+    }
+
+    static long tick() {
+        return tick(0);
+    }
+
+    static long tick(int number) {
+        return encode(TICK, number, 0);
+    }
+
+    static long reset() {
+        return encode(RESET, 0, WITH_SETTINGS);
+    }
+
+    static long commands(int tick, int cabinCount) {
+        return encode(COMMANDS, tick, cabinCount);
+    }
+
+    /**
+     * @return number of longs of the event, header included
+     */
+    static int length(long event) {
+        if ( type(event) != RESET ) return 1;
+        return hasSettings(event) ? 3 + GameSettings.LONGS : 3;
+    }
+
+    static boolean hasSettings(long event) {
+        return type(event) == RESET && cabin(event) == WITH_SETTINGS;
+    }
+
+    static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    static int high(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    static int low(long packed) {
+        return (int) packed;
+    }
+
+    static int type(long event) {
+        return (int) (event >>> 56);
+    }
+
+    static int floor(long event) {
+        return (int) event;
+    }
+
+    static int cabin(long event) {
+        return (int) ((event >>> 32) & 0xFFFFFF);
+    }
+
+    static Direction direction(long event) {
+        return DIRECTIONS[cabin(event)];
+    }
+
+    private static long encode(int type, int floor, int argument) {
+        return ((long) type << 56) | ((long) (argument & 0xFFFFFF) << 32) | (floor & 0xFFFFFFFFL);
+    }
+}
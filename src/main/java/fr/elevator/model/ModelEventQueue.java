@@ -0,0 +1,113 @@
+package fr.elevator.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock free, multi producer / single consumer queue of encoded events
+ * (see {@link ModelEvent}).
+ *
+ * Events are plain longs stored in a ring, so that offering one allocates
+ * nothing. Each slot carries a sequence number telling whether it is free for
+ * the producer of a given position or ready for the consumer.
+ */
+class ModelEventQueue {
+
+    interface Consumer {
+        void accept(long event);
+    }
+
+    private final int capacity;
+    private final int mask;
+
+    private final long[] events;
+    private final AtomicLongArray sequences;
+
+    // Next position to claim for producers
+    private final AtomicLong tail = new AtomicLong();
+
+    // Next position to consume, only touched by the consumer
+    private final AtomicLong head = new AtomicLong();
+
+    ModelEventQueue(int requestedCapacity) {
+        this.capacity = capacityFor(requestedCapacity);
+        this.mask = capacity - 1;
+        this.events = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @return the capacity of a queue created with the requested one : the next power of two
+     */
+    static int capacityFor(int requestedCapacity) {
+        return (requestedCapacity <= 2) ? 2 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+    }
+
+    /**
+     * @return false when the queue is full
+     */
+    boolean offer(long event) {
+        long position = tail.get();
+        for (;;) {
+            int slot = (int) (position & mask);
+            long delta = sequences.get(slot) - position;
+
+            if ( delta == 0 ){
+                if ( tail.compareAndSet(position, position + 1) ){
+                    events[slot] = event;
+                    // Publish the event to the consumer
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            }
+            else if ( delta < 0 ){
+                // Slot not consumed yet for the previous lap : full
+                return false;
+            }
+            else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Consume at most maxEvents events, in order. Only one thread at a time may drain.
+     *
+     * @return number of events consumed
+     */
+    int drain(Consumer consumer, int maxEvents) {
+        long position = head.get();
+        int drained = 0;
+        try {
+            while ( drained < maxEvents ){
+                int slot = (int) (position & mask);
+                if ( sequences.get(slot) != position + 1 ){
+                    break;
+                }
+                long event = events[slot];
+                // Free the slot for the next lap
+                sequences.set(slot, position + capacity);
+                position++;
+                drained++;
+                consumer.accept(event);
+            }
+        } finally {
+            // Also when the consumer throws : the freed slots must stay behind head
+            head.set(position);
+        }
+        return drained;
+    }
+
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
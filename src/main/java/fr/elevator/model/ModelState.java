@@ -0,0 +1,134 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary image of the whole state of a model : building, game settings, score and
+ * counters, learnt call demand, users without cabin, calls not yet assigned and
+ * every cabin with its users.
+ *
+ * Written at the end of an {@link EventJournal} segment, read back before the
+ * following segments are replayed. Users get new ids when read.
+ */
+final class ModelState {
+
+    private static final int MAGIC = 0x454C5653;
+    private static final int VERSION = 3;
+
+    private static final CabinCommand[] COMMANDS = CabinCommand.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private ModelState() {
+    }
+
+    /**
+     * To be called while nothing else uses the model.
+     */
+    static void write(ElevatorModel model, DataOutput out) throws IOException {
+        List<CabinModel> cabins = model.getCabinsList();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(model.getLowerFloor());
+        out.writeInt(model.getHigherFloor());
+        out.writeInt(model.getCabinSize());
+        out.writeInt(cabins.size());
+        GameSettings.of(model).write(out);
+        out.writeInt(model.getResetNumber());
+        out.writeDouble(model.getScore());
+        out.writeInt(model.getAllUsers());
+        out.writeInt(model.getHappyUsers());
+        out.writeInt(model.getAbnormalUserEntring());
+        out.writeInt(model.getAbnormalUserExiting());
+        model.getCallDemand().write(out);
+
+        writeUsers(model.getUsersWaitingElevator(), out);
+        writeUsers(model.getPendingCalls(), out);
+
+        for (CabinModel cabin : cabins) {
+            out.writeInt(cabin.getCurrentFloor());
+            out.writeBoolean(cabin.isDoorOpened());
+            out.writeByte(cabin.getLastCommand() == null ? -1 : cabin.getLastCommand().ordinal());
+            out.writeByte(cabin.getElevatorDirection().ordinal());
+            writeUsers(cabin.getUsersInCabin(), out);
+            writeUsers(cabin.getUsersWaitingCabin(), out);
+        }
+    }
+
+    /**
+     * Replace the state of the model, which must not be used by anybody else meanwhile.
+     */
+    static void read(DataInput in, ElevatorModel model) throws IOException {
+        if ( in.readInt() != MAGIC || in.readInt() != VERSION ){
+            throw new IOException("Not a model state");
+        }
+
+        model.setLowerFloor(in.readInt());
+        model.setHigherFloor(in.readInt());
+        model.setCabinSize(in.readInt());
+        model.setCabinCount(in.readInt());
+        GameSettings.read(in).applyTo(model);
+        model.reset();
+
+        model.setResetNumber(in.readInt());
+        model.setScore(in.readDouble());
+        model.setAllUsers(in.readInt());
+        model.setHappyUsers(in.readInt());
+        model.setAbnormalUserEntring(in.readInt());
+        model.setAbnormalUserExiting(in.readInt());
+        model.setCallDemand(CallDemand.read(in, model.getLowerFloor(), model.getHigherFloor()));
+
+        model.setUsersWaitingElevator(readUsers(in));
+        List<User> pendingCalls = readUsers(in);
+
+        for (CabinModel cabin : model.getCabinsList()) {
+            cabin.setCurrentFloor(in.readInt());
+            cabin.setDoorOpened(in.readBoolean());
+            int lastCommand = in.readByte();
+            cabin.setLastCommand(lastCommand < 0 ? null : COMMANDS[lastCommand]);
+            cabin.setElevatorDirection(DIRECTIONS[in.readByte()]);
+            cabin.getUsersInCabin().addAll(readUsers(in));
+            cabin.getUsersWaitingCabin().addAll(readUsers(in));
+        }
+
+        model.restored(pendingCalls);
+    }
+
+    private static void writeUsers(Collection<User> users, DataOutput out) throws IOException {
+        out.writeInt(users.size());
+        for (User user : users) {
+            out.writeInt(user.getComingFrom());
+            out.writeByte(user.getDirection().ordinal());
+            out.writeInt(user.floorToGo());
+            out.writeInt(user.getWaitTime());
+            out.writeInt(user.getTravelTime());
+            out.writeDouble(user.getStillCanScore());
+            out.writeBoolean(user.isHasElevator());
+        }
+    }
+
+    private static List<User> readUsers(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<User> users = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; i++) {
+            User user = new User(in.readInt(), DIRECTIONS[in.readByte()]);
+            int floorToGo = in.readInt();
+            if ( floorToGo != User.NO_FLOOR ) user.setFloorToGo(floorToGo);
+            user.setWaitTime(in.readInt());
+            user.setTravelTime(in.readInt());
+            user.setStillCanScore(in.readDouble());
+            user.setHasElevator(in.readBoolean());
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,79 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import fr.elevator.common.User;
+
+import java.util.List;
+
+/**
+ * Historical dispatcher : among the cabins that are not full and already go
+ * the user way (or have nothing better to do), take the nearest one.
+ */
+public class NearestCabinDispatcher implements Dispatcher {
+
+    @Override
+    public CabinModel findCabinForUser(User user, List<CabinModel> cabins, ElevatorModel model) {
+        // First find eligible cabin
+        List<CabinModel> cabinInSameUserDirection = findEligibleCabins(user, cabins);
+
+        int cabin = cabinInSameUserDirection.size();
+
+        if ( cabin == 0 ){
+            return null;
+        }
+
+        // Only one cabin, good, will assign this cabin to the user
+        if ( cabin == 1) {
+            return Iterables.getOnlyElement(cabinInSameUserDirection);
+        }
+
+        // Ok, we have to find the nearest one...
+        return findNearestCabinForUser(user, cabinInSameUserDirection, model.getHigherFloor() - model.getLowerFloor());
+    }
+
+    List<CabinModel> findEligibleCabins(User user, List<CabinModel> cabins) {
+        List<CabinModel> eligibleCabins = Lists.newArrayListWithExpectedSize(cabins.size());
+        for (CabinModel cabinModel : cabins) {
+            synchronized (cabinModel) {
+                if ( isCabinEligible(cabinModel, user) ){
+                    eligibleCabins.add(cabinModel);
+                }
+            }
+        }
+        return eligibleCabins;
+    }
+
+    private boolean isCabinEligible(CabinModel cabinModel, User user) {
+        // For full cabin...
+        if (cabinModel.isFull()) {
+            return false;
+        }
+        // For empty cabin or cabin with only users with null score
+        if (cabinModel.isEmpty() || !cabinModel.isThereUsersWithScore()) {
+            return true;
+        }
+        return cabinModel.isUserEligibleForCabin(user);
+    }
+
+    CabinModel findNearestCabinForUser(User user, Iterable<CabinModel> cabinInSameUserDirection, int floorCount) {
+        CabinModel nearestCabin = null;
+
+        int userComingFrom = user.getComingFrom();
+        int minDistance = floorCount;
+
+        for (CabinModel cabin : cabinInSameUserDirection) {
+            int currentFloor;
+            synchronized (cabin) {
+                currentFloor = cabin.getCurrentFloor();
+            }
+            int distance = Math.abs(currentFloor - userComingFrom);
+            if ( distance < minDistance){
+                minDistance = distance;
+                nearestCabin = cabin;
+            }
+        }
+
+        return nearestCabin;
+    }
+}
@@ -0,0 +1,83 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import fr.elevator.common.CabinCommand;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Next command of every cabin, computed concurrently once the assignment is done.
+ *
+ * A cabin decides from its own lists only, under its own monitor, so cabins
+ * are split in ranges run on a fork join pool shared by every model. Commands
+ * are written at the index of their cabin, the result keeps the cabin order.
+ */
+final class ParallelCabinTick {
+
+    // Below this number of cabins, a range is computed by the current task
+    private static final int RANGE_SIZE = 4;
+
+    // Worker threads of a fork join pool are daemon threads
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    private ParallelCabinTick() {
+    }
+
+    static List<CabinCommand> nextCommands(List<CabinModel> cabins) {
+        return nextCommands(cabins, RANGE_SIZE);
+    }
+
+    /**
+     * @param rangeSize cabins computed by a single task, 1 when each cabin is worth a task of its own
+     */
+    static List<CabinCommand> nextCommands(List<CabinModel> cabins, int rangeSize) {
+        CabinCommand[] commands = new CabinCommand[cabins.size()];
+        POOL.invoke(new CabinRange(cabins, commands, 0, commands.length, rangeSize));
+        return Lists.newArrayList(commands);
+    }
+
+    /**
+     * @return number of cabins computed at the same time
+     */
+    static int parallelism() {
+        return POOL.getParallelism();
+    }
+
+    static CabinCommand nextCommand(CabinModel cabin) {
+        synchronized (cabin) {
+            return cabin.findNextCommand();
+        }
+    }
+
+    private static class CabinRange extends RecursiveAction {
+
+        private final List<CabinModel> cabins;
+        private final CabinCommand[] commands;
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+
+        CabinRange(List<CabinModel> cabins, CabinCommand[] commands, int from, int to, int rangeSize) {
+            this.cabins = cabins;
+            this.commands = commands;
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from <= rangeSize ){
+                for (int i = from; i < to; i++) {
+                    commands[i] = nextCommand(cabins.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CabinRange(cabins, commands, from, middle, rangeSize),
+                      new CabinRange(cabins, commands, middle, to, rangeSize));
+        }
+    }
+}
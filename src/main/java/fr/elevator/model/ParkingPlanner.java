@@ -0,0 +1,76 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * Sends idle cabins where calls are expected, so that the next call is answered
+ * by a cabin already near.
+ *
+ * The floors expecting the most calls at this time of the day (see {@link CallDemand})
+ * are taken, best first, one per idle cabin, and each is given to the nearest idle
+ * cabin left. A cabin with users, or without a floor worth moving for, is not parked.
+ * Called with the dispatch lock held, before the cabins decide their command.
+ */
+final class ParkingPlanner {
+
+    // Below this number of calls per tick, a floor is not worth moving for
+    static final double MIN_EXPECTED_CALLS = 0.005;
+
+    private ParkingPlanner() {
+    }
+
+    static void plan(List<CabinModel> cabins, CallDemand demand) {
+        List<CabinModel> idleCabins = Lists.newArrayListWithExpectedSize(cabins.size());
+        for (CabinModel cabin : cabins) {
+            synchronized (cabin) {
+                cabin.parkAt(CabinModel.NO_PARKING);
+                if ( cabin.isEmpty() ) idleCabins.add(cabin);
+            }
+        }
+
+        boolean[] taken = new boolean[demand.higherFloor() - demand.lowerFloor() + 1];
+        while ( !idleCabins.isEmpty() ){
+            int floor = busiestFloor(demand, taken);
+            if ( floor == CabinModel.NO_PARKING ) return;
+            taken[floor - demand.lowerFloor()] = true;
+
+            CabinModel nearest = null;
+            int nearestDistance = Integer.MAX_VALUE;
+            for (CabinModel cabin : idleCabins) {
+                int distance;
+                synchronized (cabin) {
+                    distance = Math.abs(cabin.getCurrentFloor() - floor);
+                }
+                if ( distance < nearestDistance ){
+                    nearestDistance = distance;
+                    nearest = cabin;
+                }
+            }
+
+            idleCabins.remove(nearest);
+            synchronized (nearest) {
+                nearest.parkAt(floor);
+            }
+        }
+    }
+
+    /**
+     * @return floor not yet taken expecting the most calls, NO_PARKING when none is worth it
+     */
+    private static int busiestFloor(CallDemand demand, boolean[] taken) {
+        int busiestFloor = CabinModel.NO_PARKING;
+        double mostCalls = MIN_EXPECTED_CALLS;
+        for (int floor = demand.lowerFloor(); floor <= demand.higherFloor(); floor++) {
+            if ( taken[floor - demand.lowerFloor()] ) continue;
+
+            double expectedCalls = demand.expectedCalls(floor);
+            if ( expectedCalls > mostCalls ){
+                mostCalls = expectedCalls;
+                busiestFloor = floor;
+            }
+        }
+        return busiestFloor;
+    }
+}
@@ -0,0 +1,156 @@
+package fr.elevator.model;
+
+import fr.elevator.common.CabinCommand;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of the replay of a capture, see {@link EventCapture#replay(File, ElevatorModel)}.
+ */
+public class ReplayReport {
+
+    private final File file;
+
+    private long events;
+    private int ticks;
+    private int mismatchedTicks;
+
+    // First tick whose commands differ from the captured ones, -1 when none
+    private int firstMismatchTick = -1;
+    private List<CabinCommand> firstCaptured;
+    private List<CabinCommand> firstReplayed;
+
+    // Events the model could not apply, GO and EXITED are also counted as abnormal
+    private int unappliedEvents;
+    private int unappliedEntring;
+    private int unappliedExiting;
+
+    // Filled at the end of the replay
+    private double score;
+    private int abnormalUserEntring;
+    private int abnormalUserExiting;
+    private long elapsedNanos;
+
+    ReplayReport(File file) {
+        this.file = file;
+    }
+
+    void event() {
+        events++;
+    }
+
+    void unapplied(long event) {
+        events++;
+        unappliedEvents++;
+        switch (ModelEvent.type(event)) {
+            case ModelEvent.GO:
+                unappliedEntring++;
+                break;
+            case ModelEvent.EXITED:
+                unappliedExiting++;
+                break;
+        }
+    }
+
+    void compared(CabinCommand[] captured, List<CabinCommand> replayed) {
+        ticks++;
+        List<CabinCommand> capturedCommands = Arrays.asList(captured);
+        if ( capturedCommands.equals(replayed) ) return;
+
+        mismatchedTicks++;
+        if ( firstMismatchTick < 0 ){
+            firstMismatchTick = ticks;
+            firstCaptured = capturedCommands;
+            firstReplayed = replayed;
+        }
+    }
+
+    void finish(long elapsedNanos, ElevatorModel model) {
+        this.elapsedNanos = elapsedNanos;
+        this.score = model.getScore();
+        this.abnormalUserEntring = model.getAbnormalUserEntring() + unappliedEntring;
+        this.abnormalUserExiting = model.getAbnormalUserExiting() + unappliedExiting;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * @return events of the capture the model could not apply, counted in the events
+     */
+    public int getUnappliedEvents() {
+        return unappliedEvents;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public int getMismatchedTicks() {
+        return mismatchedTicks;
+    }
+
+    public boolean isIdentical() {
+        return mismatchedTicks == 0;
+    }
+
+    public int getFirstMismatchTick() {
+        return firstMismatchTick;
+    }
+
+    public List<CabinCommand> getFirstCaptured() {
+        return firstCaptured;
+    }
+
+    public List<CabinCommand> getFirstReplayed() {
+        return firstReplayed;
+    }
+
+    /**
+     * @return score the replayed model believes it has earned
+     */
+    public double getScore() {
+        return score;
+    }
+
+    public int getAbnormalUserEntring() {
+        return abnormalUserEntring;
+    }
+
+    public int getAbnormalUserExiting() {
+        return abnormalUserExiting;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0 : events * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplayReport{" +
+                "file=" + file +
+                ", events=" + events +
+                ", ticks=" + ticks +
+                ", mismatchedTicks=" + mismatchedTicks +
+                (unappliedEvents == 0 ? "" : ", unappliedEvents=" + unappliedEvents) +
+                (firstMismatchTick < 0 ? "" : ",\n firstMismatchTick=" + firstMismatchTick +
+                        ", captured=" + firstCaptured + ", replayed=" + firstReplayed) +
+                ",\n score=" + score +
+                ", abnormalUserEntring=" + abnormalUserEntring +
+                ", abnormalUserExiting=" + abnormalUserExiting +
+                String.format(", eventsPerSecond=%.0f", getEventsPerSecond()) +
+                '}';
+    }
+}
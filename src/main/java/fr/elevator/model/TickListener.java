@@ -0,0 +1,12 @@
+package fr.elevator.model;
+
+/**
+ * Told at the end of every findNextCommand, once the commands of the tick are known.
+ *
+ * Called in the thread of the tick, without any model lock held : an implementation
+ * must return quickly and hand any slow work (I/O) to another thread.
+ */
+public interface TickListener {
+
+    void tickEnded(ElevatorModel model);
+}
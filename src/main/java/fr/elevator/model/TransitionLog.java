@@ -0,0 +1,81 @@
+package fr.elevator.model;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Structured log of the model transitions, one "event=... key=value" line per
+ * transition, on the fr.elevator.transitions logger.
+ *
+ * Off unless that logger is enabled at INFO (see log4j-transitions.xml) : then each call
+ * costs one level check, and no message nor argument array is built.
+ *
+ * Events replayed from the {@link EventJournal} already happened : the replaying
+ * thread mutes the log so that they are not written twice.
+ */
+final class TransitionLog {
+
+    private static final Logger logger = LoggerFactory.getLogger("fr.elevator.transitions");
+
+    private static final ThreadLocal<Boolean> muted = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
+
+    private TransitionLog() {
+    }
+
+    static void mute(boolean mute) {
+        muted.set(mute);
+    }
+
+    private static boolean enabled() {
+        return logger.isInfoEnabled() && !muted.get();
+    }
+
+    static void called(User user, Direction direction) {
+        if ( enabled() ){
+            logger.info("event=call user={} floor={} direction={}", new Object[]{user.getId(), user.getComingFrom(), direction});
+        }
+    }
+
+    static void assigned(User user, CabinModel cabin) {
+        if ( enabled() ){
+            logger.info("event=assign user={} cabin={} wait={}", new Object[]{user.getId(), cabin.getId(), user.getWaitTime()});
+        }
+    }
+
+    static void entered(User user, int cabin) {
+        if ( enabled() ){
+            logger.info("event=enter user={} cabin={} from={} to={} wait={}",
+                    new Object[]{user.getId(), cabin, user.getComingFrom(), user.floorToGo(), user.getWaitTime()});
+        }
+    }
+
+    static void exited(User user, int cabin, int floor) {
+        if ( enabled() ){
+            logger.info("event=exit user={} cabin={} floor={} travel={} score={}",
+                    new Object[]{user.getId(), cabin, floor, user.getTravelTime(), user.getStillCanScore()});
+        }
+    }
+
+    static void tick(long version, List<CabinCommand> commands) {
+        if ( enabled() ){
+            logger.info("event=tick version={} commands={}", version, commands);
+        }
+    }
+
+    static void reset(int resetNumber, int lowerFloor, int higherFloor, int cabinSize, int cabinCount) {
+        if ( enabled() ){
+            logger.info("event=reset number={} lower={} higher={} cabinSize={} cabinCount={}",
+                    new Object[]{resetNumber, lowerFloor, higherFloor, cabinSize, cabinCount});
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package fr.elevator.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import fr.elevator.common.User;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Users bucketed by floor, so that "who is at this floor" costs one lookup
+ * instead of a scan of the whole user list.
+ *
+ * Buckets keep insertion order, so the first user of a bucket is also the first
+ * one of the backing list for that floor. The floor range grows on demand when
+ * a user is indexed outside of it.
+ *
+ * The lowest and highest non empty floors are maintained on add and remove,
+ * so "is there anybody above / below" is answered without scanning.
+ */
+class UserFloorIndex {
+
+    private final List<List<User>> buckets;
+
+    // Floor of the first bucket
+    private int offset;
+
+    private int size;
+
+    // Lowest and highest floors holding at least one user, meaningless when empty
+    private int lowestFloor;
+    private int highestFloor;
+
+    UserFloorIndex(int lowerFloor, int higherFloor) {
+        this.offset = lowerFloor;
+        this.buckets = new ArrayList<>(Math.max(1, higherFloor - lowerFloor + 1));
+        for (int floor = lowerFloor; floor <= higherFloor; floor++) {
+            buckets.add(null);
+        }
+    }
+
+    /**
+     * Index the user at the given floor, {@link User#NO_FLOOR} is ignored.
+     */
+    void add(int floor, User user) {
+        if ( floor == User.NO_FLOOR ) return;
+
+        int slot = ensureFloor(floor);
+        List<User> bucket = buckets.get(slot);
+        if ( bucket == null ){
+            bucket = Lists.newArrayListWithCapacity(4);
+            buckets.set(slot, bucket);
+        }
+        bucket.add(user);
+
+        if ( size == 0 ){
+            lowestFloor = floor;
+            highestFloor = floor;
+        } else {
+            lowestFloor = Math.min(lowestFloor, floor);
+            highestFloor = Math.max(highestFloor, floor);
+        }
+        size++;
+    }
+
+    boolean remove(int floor, User user) {
+        if ( floor == User.NO_FLOOR ) return false;
+
+        List<User> bucket = bucketAt(floor);
+        if ( bucket != null && bucket.remove(user) ){
+            size--;
+            if ( size > 0 && bucket.isEmpty() ){
+                if ( floor == lowestFloor ) lowestFloor = nextNonEmptyFloor(floor, 1);
+                if ( floor == highestFloor ) highestFloor = nextNonEmptyFloor(floor, -1);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    void clear() {
+        for (int i = 0; i < buckets.size(); i++) {
+            buckets.set(i, null);
+        }
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int countAt(int floor) {
+        List<User> bucket = bucketAt(floor);
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    User firstAt(int floor) {
+        List<User> bucket = bucketAt(floor);
+        return (bucket == null || bucket.isEmpty()) ? null : bucket.get(0);
+    }
+
+    List<User> usersAt(int floor) {
+        List<User> bucket = bucketAt(floor);
+        return bucket == null ? ImmutableList.<User>of() : bucket;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean hasUserAbove(int floor) {
+        return size > 0 && highestFloor > floor;
+    }
+
+    boolean hasUserBelow(int floor) {
+        return size > 0 && lowestFloor < floor;
+    }
+
+    /**
+     * @return lowest floor with a user, only relevant when the index is not empty
+     */
+    int lowestFloor() {
+        return lowestFloor;
+    }
+
+    /**
+     * @return highest floor with a user, only relevant when the index is not empty
+     */
+    int highestFloor() {
+        return highestFloor;
+    }
+
+    int lowestIndexedFloor() {
+        return offset;
+    }
+
+    int highestIndexedFloor() {
+        return offset + buckets.size() - 1;
+    }
+
+    private List<User> bucketAt(int floor) {
+        int slot = floor - offset;
+        if ( slot < 0 || slot >= buckets.size() ) return null;
+        return buckets.get(slot);
+    }
+
+    private int nextNonEmptyFloor(int floor, int step) {
+        int slot = floor - offset + step;
+        while ( !isNotEmpty(buckets.get(slot)) ){
+            slot += step;
+        }
+        return slot + offset;
+    }
+
+    private int ensureFloor(int floor) {
+        if ( floor < offset ){
+            List<List<User>> head = new ArrayList<>(offset - floor);
+            for (int i = floor; i < offset; i++) {
+                head.add(null);
+            }
+            buckets.addAll(0, head);
+            offset = floor;
+        }
+        while ( floor - offset >= buckets.size() ){
+            buckets.add(null);
+        }
+        return floor - offset;
+    }
+
+    private static boolean isNotEmpty(List<User> bucket) {
+        return bucket != null && !bucket.isEmpty();
+    }
+}
@@ -0,0 +1,58 @@
+package fr.elevator.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of small non negative integers (ticks), growing as needed.
+ */
+public class Distribution {
+
+    private long[] counts = new long[64];
+    private long count;
+    private long sum;
+    private int max;
+
+    public void record(int value) {
+        int v = Math.max(0, value);
+        if ( v >= counts.length ){
+            counts = Arrays.copyOf(counts, Math.max(v + 1, counts.length * 2));
+        }
+        counts[v]++;
+        count++;
+        sum += v;
+        max = Math.max(max, v);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     */
+    public int percentile(double percentile) {
+        if ( count == 0 ) return 0;
+
+        long rank = (long) Math.ceil(percentile / 100d * count);
+        long seen = 0;
+        for (int value = 0; value <= max; value++) {
+            seen += counts[value];
+            if ( seen >= Math.max(1, rank) ) return value;
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("mean=%.2f p50=%d p90=%d p99=%d max=%d",
+                getMean(), percentile(50), percentile(90), percentile(99), max);
+    }
+}
@@ -0,0 +1,46 @@
+package fr.elevator.simulation;
+
+import fr.elevator.model.DispatcherType;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.EventCapture;
+import fr.elevator.model.ReplayReport;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Command line entry point :
+ * ReplayMain [dispatcher] captureFile...
+ *
+ * Replays each capture on a fresh model, with the given dispatcher or the captured one,
+ * and reports the ticks whose commands differ from the captured ones.
+ * Exits with 1 when a replay differs, so that captures can be used as regression tests.
+ */
+public class ReplayMain {
+
+    public static void main(String[] args) throws IOException {
+        SimulationLogging.quiet();
+        int first = 0;
+        DispatcherType dispatcher = null;
+        if ( args.length > 0 && isDispatcher(args[0]) ){
+            dispatcher = DispatcherType.valueOf(args[0]);
+            first = 1;
+        }
+
+        boolean identical = true;
+        for (int i = first; i < args.length; i++) {
+            ReplayReport report = EventCapture.replay(new File(args[i]), ElevatorModel.newInstance(), dispatcher);
+            System.out.println(report);
+            identical &= report.isIdentical();
+        }
+
+        if ( !identical ) System.exit(1);
+    }
+
+    private static boolean isDispatcher(String arg) {
+        for (DispatcherType type : DispatcherType.values()) {
+            if ( type.name().equals(arg) ) return true;
+        }
+        return false;
+    }
+}
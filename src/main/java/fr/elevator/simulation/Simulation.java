@@ -0,0 +1,268 @@
+package fr.elevator.simulation;
+
+import com.google.common.collect.Lists;
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.model.CabinTuning;
+import fr.elevator.model.CommandPolicy;
+import fr.elevator.model.Dispatcher;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.util.ElevatorMathUtil;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Headless, in process replacement of the game server.
+ *
+ * At each tick, passengers arrive following the traffic profile and call the
+ * model, the model gives its commands, the simulated cabins execute them and the
+ * passengers exit (userHasExited) then enter (floorToGo) the cabins opened at
+ * their floor, as the game server would do. Nothing waits for the wall clock.
+ */
+public class Simulation {
+
+    private TrafficProfile profile = TrafficProfile.UNIFORM;
+
+    private int lowerFloor = 0;
+    private int higherFloor = 19;
+    private int cabinSize = 10;
+    private int cabinCount = 2;
+
+    // Mean number of new passengers per tick
+    private double arrivalRate = 0.5;
+
+    private long seed = 42;
+
+    private Dispatcher dispatcher;
+
+    private boolean parking;
+
+    private CommandPolicy commandPolicy = CommandPolicy.SCORE;
+
+    private CabinTuning tuning = CabinTuning.DEFAULT;
+
+    private static class Passenger {
+        final int from;
+        final int to;
+        final int callTick;
+        int enterTick;
+
+        Passenger(int from, int to, int callTick) {
+            this.from = from;
+            this.to = to;
+            this.callTick = callTick;
+        }
+
+        Direction direction() {
+            return (to > from) ? Direction.UP : Direction.DOWN;
+        }
+    }
+
+    /**
+     * Simulation of the same building and traffic, to run on another thread : the
+     * dispatcher is not copied, as it may keep state between calls.
+     */
+    Simulation copy() {
+        Simulation copy = new Simulation();
+        copy.profile = profile;
+        copy.lowerFloor = lowerFloor;
+        copy.higherFloor = higherFloor;
+        copy.cabinSize = cabinSize;
+        copy.cabinCount = cabinCount;
+        copy.arrivalRate = arrivalRate;
+        copy.seed = seed;
+        copy.parking = parking;
+        copy.commandPolicy = commandPolicy;
+        copy.tuning = tuning;
+        return copy;
+    }
+
+    public SimulationReport run(int ticks) {
+        return run(ElevatorModel.newInstance(), ticks);
+    }
+
+    /**
+     * Run on the given model, reset with the building of the simulation first.
+     */
+    public SimulationReport run(ElevatorModel model, int ticks) {
+        model.setLowerFloor(lowerFloor);
+        model.setHigherFloor(higherFloor);
+        model.setCabinSize(cabinSize);
+        model.setCabinCount(cabinCount);
+        if ( dispatcher != null ) model.setDispatcher(dispatcher);
+        model.setParking(parking);
+        model.setCommandPolicy(commandPolicy);
+        model.setTuning(tuning);
+        model.reset();
+
+        Random random = new Random(seed);
+        SimulationReport report = new SimulationReport(profile, ticks);
+
+        List<List<Passenger>> waitingAtFloor = Lists.newArrayList();
+        for (int floor = lowerFloor; floor <= higherFloor; floor++) {
+            waitingAtFloor.add(Lists.<Passenger>newArrayList());
+        }
+        List<List<Passenger>> riders = Lists.newArrayList();
+        int[] cabinFloors = new int[cabinCount];
+        for (int cabin = 0; cabin < cabinCount; cabin++) {
+            riders.add(Lists.<Passenger>newArrayList());
+            cabinFloors[cabin] = model.getCabinsList().get(cabin).getCurrentFloor();
+        }
+
+        long start = System.nanoTime();
+        for (int tick = 0; tick < ticks; tick++) {
+
+            int arrivals = (int) arrivalRate + ((random.nextDouble() < arrivalRate - (int) arrivalRate) ? 1 : 0);
+            for (int i = 0; i < arrivals; i++) {
+                int[] trip = profile.nextTrip(random, lowerFloor, higherFloor);
+                Passenger passenger = new Passenger(trip[0], trip[1], tick);
+                waitingAtFloor.get(passenger.from - lowerFloor).add(passenger);
+                model.callAtFloor(passenger.from, passenger.direction());
+                report.passengerCalled();
+            }
+
+            List<CabinCommand> commands = model.findNextCommand();
+
+            for (int cabin = 0; cabin < cabinCount; cabin++) {
+                CabinCommand command = commands.get(cabin);
+                switch (command) {
+                    case UP:
+                        cabinFloors[cabin]++;
+                        break;
+                    case DOWN:
+                        cabinFloors[cabin]--;
+                        break;
+                    case OPEN:
+                    case OPEN_UP:
+                    case OPEN_DOWN:
+                        exit(model, report, tick, cabin, cabinFloors[cabin], riders.get(cabin));
+                        enter(model, tick, cabin, command, riders.get(cabin), waitingAtFloor.get(cabinFloors[cabin] - lowerFloor));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        report.finish(System.nanoTime() - start, model);
+        return report;
+    }
+
+    private void exit(ElevatorModel model, SimulationReport report, int tick, int cabin, int floor, List<Passenger> cabinRiders) {
+        for (Iterator<Passenger> iterator = cabinRiders.iterator(); iterator.hasNext(); ) {
+            Passenger passenger = iterator.next();
+            if ( passenger.to != floor ) continue;
+
+            iterator.remove();
+            model.userHasExited(cabin);
+
+            int waitTime = passenger.enterTick - passenger.callTick;
+            int travelTime = tick - passenger.enterTick;
+            double score = Math.max(0d, ElevatorMathUtil.INITIAL_SCORE - waitTime / 2 - travelTime + Math.abs(passenger.to - passenger.from));
+            report.passengerDelivered(waitTime, travelTime, score);
+        }
+    }
+
+    private void enter(ElevatorModel model, int tick, int cabin, CabinCommand command, List<Passenger> cabinRiders, List<Passenger> waiting) {
+        for (Iterator<Passenger> iterator = waiting.iterator(); iterator.hasNext() && cabinRiders.size() < cabinSize; ) {
+            Passenger passenger = iterator.next();
+            if ( command == CabinCommand.OPEN_UP && passenger.direction() != Direction.UP ) continue;
+            if ( command == CabinCommand.OPEN_DOWN && passenger.direction() != Direction.DOWN ) continue;
+
+            iterator.remove();
+            passenger.enterTick = tick;
+            cabinRiders.add(passenger);
+            model.floorToGo(passenger.to, cabin);
+        }
+    }
+
+    public TrafficProfile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(TrafficProfile profile) {
+        this.profile = profile;
+    }
+
+    public int getLowerFloor() {
+        return lowerFloor;
+    }
+
+    public void setLowerFloor(int lowerFloor) {
+        this.lowerFloor = lowerFloor;
+    }
+
+    public int getHigherFloor() {
+        return higherFloor;
+    }
+
+    public void setHigherFloor(int higherFloor) {
+        this.higherFloor = higherFloor;
+    }
+
+    public int getCabinSize() {
+        return cabinSize;
+    }
+
+    public void setCabinSize(int cabinSize) {
+        this.cabinSize = cabinSize;
+    }
+
+    public int getCabinCount() {
+        return cabinCount;
+    }
+
+    public void setCabinCount(int cabinCount) {
+        this.cabinCount = cabinCount;
+    }
+
+    public double getArrivalRate() {
+        return arrivalRate;
+    }
+
+    public void setArrivalRate(double arrivalRate) {
+        this.arrivalRate = arrivalRate;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public CommandPolicy getCommandPolicy() {
+        return commandPolicy;
+    }
+
+    public void setCommandPolicy(CommandPolicy commandPolicy) {
+        this.commandPolicy = commandPolicy;
+    }
+
+    public CabinTuning getTuning() {
+        return tuning;
+    }
+
+    public void setTuning(CabinTuning tuning) {
+        this.tuning = tuning;
+    }
+
+    public boolean isParking() {
+        return parking;
+    }
+
+    public void setParking(boolean parking) {
+        this.parking = parking;
+    }
+
+    public Dispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    public void setDispatcher(Dispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+}
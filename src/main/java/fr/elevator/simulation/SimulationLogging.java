@@ -0,0 +1,21 @@
+package fr.elevator.simulation;
+
+/**
+ * Logs of the command line entry points : log4j-simulation.xml unless another
+ * configuration is given with -Dlog4j.configuration.
+ *
+ * Must be called before the first logger is created, first thing in main.
+ */
+final class SimulationLogging {
+
+    static final String CONFIGURATION = "log4j-simulation.xml";
+
+    private SimulationLogging() {
+    }
+
+    static void quiet() {
+        if ( System.getProperty("log4j.configuration") == null ){
+            System.setProperty("log4j.configuration", CONFIGURATION);
+        }
+    }
+}
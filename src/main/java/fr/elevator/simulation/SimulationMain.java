@@ -0,0 +1,43 @@
+package fr.elevator.simulation;
+
+import fr.elevator.model.CommandPolicy;
+import fr.elevator.model.DispatcherType;
+
+/**
+ * Command line entry point :
+ * SimulationMain [profile] [ticks] [arrivalRate] [cabinCount] [cabinSize] [lowerFloor] [higherFloor] [dispatcher] [seed] [parking] [commandPolicy]
+ *
+ * Runs one simulation per dispatcher when no dispatcher is given, so that they can be compared.
+ * Only warnings are logged, see {@link SimulationLogging}.
+ */
+public class SimulationMain {
+
+    public static void main(String[] args) {
+        SimulationLogging.quiet();
+        TrafficProfile profile = TrafficProfile.valueOf(arg(args, 0, "UNIFORM"));
+        int ticks = Integer.parseInt(arg(args, 1, "100000"));
+
+        Simulation simulation = new Simulation();
+        simulation.setProfile(profile);
+        simulation.setArrivalRate(Double.parseDouble(arg(args, 2, "0.5")));
+        simulation.setCabinCount(Integer.parseInt(arg(args, 3, "2")));
+        simulation.setCabinSize(Integer.parseInt(arg(args, 4, "10")));
+        simulation.setLowerFloor(Integer.parseInt(arg(args, 5, "0")));
+        simulation.setHigherFloor(Integer.parseInt(arg(args, 6, "19")));
+        String dispatcher = arg(args, 7, null);
+        simulation.setSeed(Long.parseLong(arg(args, 8, "42")));
+        simulation.setParking(Boolean.parseBoolean(arg(args, 9, "false")));
+        simulation.setCommandPolicy(CommandPolicy.valueOf(arg(args, 10, "SCORE")));
+
+        for (DispatcherType type : DispatcherType.values()) {
+            if ( dispatcher != null && !type.name().equals(dispatcher) ) continue;
+
+            simulation.setDispatcher(type.create());
+            System.out.println(type + " " + simulation.run(ticks));
+        }
+    }
+
+    private static String arg(String[] args, int index, String defaultValue) {
+        return (args.length > index) ? args[index] : defaultValue;
+    }
+}
@@ -0,0 +1,121 @@
+package fr.elevator.simulation;
+
+import fr.elevator.model.ElevatorModel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of a simulation run.
+ */
+public class SimulationReport {
+
+    private final TrafficProfile profile;
+    private final int ticks;
+
+    private long called;
+    private long delivered;
+    private double score;
+
+    private final Distribution waitTimes = new Distribution();
+    private final Distribution travelTimes = new Distribution();
+
+    // Filled at the end of the run
+    private double modelScore;
+    private int abnormalUserEntring;
+    private int abnormalUserExiting;
+    private long elapsedNanos;
+
+    SimulationReport(TrafficProfile profile, int ticks) {
+        this.profile = profile;
+        this.ticks = ticks;
+    }
+
+    void passengerCalled() {
+        called++;
+    }
+
+    void passengerDelivered(int waitTime, int travelTime, double passengerScore) {
+        delivered++;
+        score += passengerScore;
+        waitTimes.record(waitTime);
+        travelTimes.record(travelTime);
+    }
+
+    void finish(long elapsedNanos, ElevatorModel model) {
+        this.elapsedNanos = elapsedNanos;
+        this.modelScore = model.getScore();
+        this.abnormalUserEntring = model.getAbnormalUserEntring();
+        this.abnormalUserExiting = model.getAbnormalUserExiting();
+    }
+
+    public TrafficProfile getProfile() {
+        return profile;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public long getCalled() {
+        return called;
+    }
+
+    public long getDelivered() {
+        return delivered;
+    }
+
+    /**
+     * @return score of the delivered passengers, as the game server counts it
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * @return score the model believes it has earned
+     */
+    public double getModelScore() {
+        return modelScore;
+    }
+
+    public Distribution getWaitTimes() {
+        return waitTimes;
+    }
+
+    public Distribution getTravelTimes() {
+        return travelTimes;
+    }
+
+    public int getAbnormalUserEntring() {
+        return abnormalUserEntring;
+    }
+
+    public int getAbnormalUserExiting() {
+        return abnormalUserExiting;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getTicksPerSecond() {
+        return elapsedNanos == 0 ? 0 : ticks * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationReport{" +
+                "profile=" + profile +
+                ", ticks=" + ticks +
+                ", called=" + called +
+                ", delivered=" + delivered +
+                ", score=" + score +
+                ", modelScore=" + modelScore +
+                ",\n wait=" + waitTimes +
+                ",\n travel=" + travelTimes +
+                ",\n abnormalUserEntring=" + abnormalUserEntring +
+                ", abnormalUserExiting=" + abnormalUserExiting +
+                String.format(", ticksPerSecond=%.0f", getTicksPerSecond()) +
+                '}';
+    }
+}
@@ -0,0 +1,88 @@
+package fr.elevator.simulation;
+
+import java.util.Random;
+
+/**
+ * How passengers choose where they come from and where they go.
+ * The lobby is floor 0 when the building has one, its lowest floor otherwise.
+ */
+public enum TrafficProfile {
+
+    /**
+     * Any floor to any other floor.
+     */
+    UNIFORM {
+        @Override
+        int[] nextTrip(Random random, int lowerFloor, int higherFloor) {
+            return randomTrip(random, lowerFloor, higherFloor);
+        }
+    },
+
+    /**
+     * Morning : most passengers go from the lobby up to the other floors.
+     */
+    UP_PEAK {
+        @Override
+        int[] nextTrip(Random random, int lowerFloor, int higherFloor) {
+            if ( random.nextDouble() < PEAK_SHARE ){
+                int lobby = lobby(lowerFloor, higherFloor);
+                return new int[]{lobby, otherFloor(random, lowerFloor, higherFloor, lobby)};
+            }
+            return randomTrip(random, lowerFloor, higherFloor);
+        }
+    },
+
+    /**
+     * Evening : most passengers go from the other floors down to the lobby.
+     */
+    DOWN_PEAK {
+        @Override
+        int[] nextTrip(Random random, int lowerFloor, int higherFloor) {
+            if ( random.nextDouble() < PEAK_SHARE ){
+                int lobby = lobby(lowerFloor, higherFloor);
+                return new int[]{otherFloor(random, lowerFloor, higherFloor, lobby), lobby};
+            }
+            return randomTrip(random, lowerFloor, higherFloor);
+        }
+    },
+
+    /**
+     * Lunch : as many passengers leave to the lobby as come back from it.
+     */
+    LUNCH {
+        @Override
+        int[] nextTrip(Random random, int lowerFloor, int higherFloor) {
+            double draw = random.nextDouble();
+            int lobby = lobby(lowerFloor, higherFloor);
+            if ( draw < PEAK_SHARE / 2 ){
+                return new int[]{otherFloor(random, lowerFloor, higherFloor, lobby), lobby};
+            }
+            if ( draw < PEAK_SHARE ){
+                return new int[]{lobby, otherFloor(random, lowerFloor, higherFloor, lobby)};
+            }
+            return randomTrip(random, lowerFloor, higherFloor);
+        }
+    };
+
+    // Share of passengers following the profile, the others travel between random floors
+    private static final double PEAK_SHARE = 0.85;
+
+    /**
+     * @return {from, to}, two different floors
+     */
+    abstract int[] nextTrip(Random random, int lowerFloor, int higherFloor);
+
+    private static int[] randomTrip(Random random, int lowerFloor, int higherFloor) {
+        int from = lowerFloor + random.nextInt(higherFloor - lowerFloor + 1);
+        return new int[]{from, otherFloor(random, lowerFloor, higherFloor, from)};
+    }
+
+    private static int otherFloor(Random random, int lowerFloor, int higherFloor, int floor) {
+        int other = lowerFloor + random.nextInt(higherFloor - lowerFloor);
+        return (other >= floor) ? other + 1 : other;
+    }
+
+    private static int lobby(int lowerFloor, int higherFloor) {
+        return (lowerFloor <= 0 && 0 <= higherFloor) ? 0 : lowerFloor;
+    }
+}
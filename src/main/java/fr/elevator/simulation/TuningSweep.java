@@ -0,0 +1,206 @@
+package fr.elevator.simulation;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import fr.elevator.model.CabinTuning;
+import fr.elevator.model.DispatcherType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the traffic of a simulation with each tuning of the cabins, on every core,
+ * and ranks the tunings by the score the game server would have given.
+ *
+ * Each tuning is run once per seed, on the same passengers for every tuning, so
+ * that a tuning is not chosen for the luck of one traffic draw.
+ */
+public class TuningSweep {
+
+    private final Simulation traffic;
+
+    // Null for the default dispatcher of the model
+    private DispatcherType dispatcher;
+
+    private int ticks = 10000;
+
+    private int runs = 4;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * @param traffic building and passengers to simulate, its seed is the one of the first run
+     */
+    public TuningSweep(Simulation traffic) {
+        this.traffic = traffic;
+    }
+
+    /**
+     * @return every combination of the values, almost full ratio first
+     */
+    public static List<CabinTuning> grid(double[] almostFullRatios, double[] riderMinScores, double[] waitingMinScores) {
+        List<CabinTuning> tunings = Lists.newArrayListWithExpectedSize(
+                almostFullRatios.length * riderMinScores.length * waitingMinScores.length);
+        for (double almostFullRatio : almostFullRatios) {
+            for (double riderMinScore : riderMinScores) {
+                for (double waitingMinScore : waitingMinScores) {
+                    tunings.add(new CabinTuning(almostFullRatio, riderMinScore, waitingMinScore));
+                }
+            }
+        }
+        return tunings;
+    }
+
+    /**
+     * @return the values from first to last, included, by step
+     */
+    public static double[] range(double first, double last, double step) {
+        int count = (int) Math.floor((last - first) / step + 1e-9) + 1;
+        double[] values = new double[Math.max(0, count)];
+        for (int i = 0; i < values.length; i++) {
+            // Rounded so that the values read as they are written on the command line
+            values[i] = Math.round((first + i * step) * 1e6) / 1e6;
+        }
+        return values;
+    }
+
+    /**
+     * @return a result per tuning, best score first, tunings of equal score in the given order
+     */
+    public List<Result> run(List<CabinTuning> tunings) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+                new ThreadFactoryBuilder().setNameFormat("tuning-sweep-%d").setDaemon(true).build());
+        try {
+            List<Future<Result>> futures = Lists.newArrayListWithExpectedSize(tunings.size());
+            for (final CabinTuning tuning : tunings) {
+                futures.add(pool.submit(new Callable<Result>() {
+                    @Override
+                    public Result call() {
+                        return evaluate(tuning);
+                    }
+                }));
+            }
+
+            List<Result> results = Lists.newArrayListWithExpectedSize(futures.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Simulation of a tuning failed", e.getCause());
+                }
+            }
+            // Stable : equal scores keep the order of the tunings
+            Collections.sort(results);
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    Result evaluate(CabinTuning tuning) {
+        Simulation simulation = traffic.copy();
+        simulation.setTuning(tuning);
+
+        Result result = new Result(tuning);
+        for (int run = 0; run < runs; run++) {
+            simulation.setSeed(traffic.getSeed() + run);
+            simulation.setDispatcher(dispatcher == null ? null : dispatcher.create());
+            SimulationReport report = simulation.run(ticks);
+            result.add(report);
+        }
+        return result;
+    }
+
+    public DispatcherType getDispatcher() {
+        return dispatcher;
+    }
+
+    public void setDispatcher(DispatcherType dispatcher) {
+        this.dispatcher = dispatcher;
+    }
+
+    public int getTicks() {
+        return ticks;
+    }
+
+    public void setTicks(int ticks) {
+        this.ticks = ticks;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @param runs simulations per tuning, with consecutive seeds
+     */
+    public void setRuns(int runs) {
+        this.runs = Math.max(1, runs);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Scores of a tuning, summed over its runs.
+     */
+    public static class Result implements Comparable<Result> {
+
+        private final CabinTuning tuning;
+
+        private double score;
+        private long delivered;
+        private long called;
+
+        Result(CabinTuning tuning) {
+            this.tuning = tuning;
+        }
+
+        void add(SimulationReport report) {
+            score += report.getScore();
+            delivered += report.getDelivered();
+            called += report.getCalled();
+        }
+
+        public CabinTuning getTuning() {
+            return tuning;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+
+        public long getCalled() {
+            return called;
+        }
+
+        @Override
+        public int compareTo(Result other) {
+            return Double.compare(other.score, score);
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "tuning=" + tuning +
+                    ", score=" + score +
+                    ", delivered=" + delivered +
+                    ", called=" + called +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package fr.elevator.simulation;
+
+import fr.elevator.model.CabinTuning;
+import fr.elevator.model.DispatcherType;
+
+import java.util.List;
+
+/**
+ * Command line entry point :
+ * TuningSweepMain [profile] [ticks] [arrivalRate] [cabinCount] [cabinSize] [lowerFloor] [higherFloor] [dispatcher] [seed] [runs]
+ *                 [almostFullRatios] [riderMinScores] [waitingMinScores]
+ *
+ * Values to sweep are given as first:last:step. Prints the best tunings, the default one,
+ * and the /reset query parameters that apply the best.
+ */
+public class TuningSweepMain {
+
+    private static final int SHOWN_RESULTS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        SimulationLogging.quiet();
+        Simulation traffic = new Simulation();
+        traffic.setProfile(TrafficProfile.valueOf(arg(args, 0, "UNIFORM")));
+        int ticks = Integer.parseInt(arg(args, 1, "10000"));
+        traffic.setArrivalRate(Double.parseDouble(arg(args, 2, "0.5")));
+        traffic.setCabinCount(Integer.parseInt(arg(args, 3, "2")));
+        traffic.setCabinSize(Integer.parseInt(arg(args, 4, "10")));
+        traffic.setLowerFloor(Integer.parseInt(arg(args, 5, "0")));
+        traffic.setHigherFloor(Integer.parseInt(arg(args, 6, "19")));
+        String dispatcher = arg(args, 7, "NEAREST");
+        traffic.setSeed(Long.parseLong(arg(args, 8, "42")));
+
+        TuningSweep sweep = new TuningSweep(traffic);
+        sweep.setTicks(ticks);
+        sweep.setDispatcher(DispatcherType.valueOf(dispatcher));
+        sweep.setRuns(Integer.parseInt(arg(args, 9, "4")));
+
+        List<CabinTuning> tunings = TuningSweep.grid(
+                range(arg(args, 10, "0.5:1:0.1")),
+                range(arg(args, 11, "0:6:1")),
+                range(arg(args, 12, "0:10:1")));
+        if ( !tunings.contains(CabinTuning.DEFAULT) ) tunings.add(CabinTuning.DEFAULT);
+
+        long start = System.nanoTime();
+        List<TuningSweep.Result> results = sweep.run(tunings);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        System.out.println(tunings.size() + " tunings x " + sweep.getRuns() + " runs in " + elapsedMillis + " ms on " + sweep.getThreads() + " threads");
+        for (int rank = 0; rank < results.size(); rank++) {
+            TuningSweep.Result result = results.get(rank);
+            if ( rank < SHOWN_RESULTS || result.getTuning().equals(CabinTuning.DEFAULT) ){
+                System.out.println("#" + (rank + 1) + " " + result);
+            }
+        }
+        System.out.println("/reset?" + results.get(0).getTuning().toQuery());
+    }
+
+    private static double[] range(String values) {
+        String[] bounds = values.split(":");
+        double first = Double.parseDouble(bounds[0]);
+        double last = (bounds.length > 1) ? Double.parseDouble(bounds[1]) : first;
+        double step = (bounds.length > 2) ? Double.parseDouble(bounds[2]) : 1;
+        return TuningSweep.range(first, last, step);
+    }
+
+    private static String arg(String[] args, int index, String defaultValue) {
+        return (args.length > index) ? args[index] : defaultValue;
+    }
+}
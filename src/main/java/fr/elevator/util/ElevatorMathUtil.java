@@ -1,7 +1,6 @@
 package fr.elevator.util;
 
 import fr.elevator.common.User;
-import fr.elevator.common.UserStatus;
 
 /**
  * User: zizou
@@ -10,19 +9,24 @@ public class ElevatorMathUtil {
 
     public static final int INITIAL_SCORE = 22;
 
-    public static Double calculateBestScore(User user, int currentFloor){
-        int waitTime = (user.getUserStatus() == UserStatus.IN_ELEVATOR) ?
-                user.getWaitTime() : user.getWaitTime() + Math.abs(user.getComingFrom() - currentFloor);
-
-        if ( user.getUserStatus().equals(UserStatus.WAITING)){
-            return Math.max(0d,INITIAL_SCORE-1-waitTime/2);
+    public static double calculateBestScore(User user, int currentFloor){
+        if ( !user.hasFloorToGo() ){
+            return waitingScore(user.getWaitTime() + Math.abs(user.getComingFrom() - currentFloor));
         }
 
-        int travelTimeAverage = user.getTravelTime() + Math.abs(currentFloor - user.getFloorToGo()) + 1;
+        int floorToGo = user.floorToGo();
+        int travelTimeAverage = user.getTravelTime() + Math.abs(currentFloor - floorToGo) + 1;
 
         return Math.max(0d,
-                INITIAL_SCORE - waitTime/2 - travelTimeAverage + Math.abs(user.getComingFrom()-user.getFloorToGo()));
+                INITIAL_SCORE - user.getWaitTime()/2 - travelTimeAverage + Math.abs(user.getComingFrom()-floorToGo));
+
+    }
 
+    /**
+     * Best score of a user picked up after waitTime ticks and going straight to its floor.
+     */
+    public static double waitingScore(int waitTime){
+        return Math.max(0d,INITIAL_SCORE-1-waitTime/2);
     }
 
 }
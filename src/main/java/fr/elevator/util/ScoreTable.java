@@ -0,0 +1,98 @@
+package fr.elevator.util;
+
+import fr.elevator.common.User;
+
+import java.util.List;
+
+/**
+ * Score engine answering {@link ElevatorMathUtil#calculateBestScore(User, int)}
+ * with table lookups.
+ *
+ * Both branches of the formula only depend on one small integer:
+ * - waiting user : elapsed = wait time + distance to the cabin,
+ * - riding user : penalty = wait time / 2 + travel time + distance left + 1 - trip length.
+ * The tables cover every value that scores for the configured floor range, past
+ * them the score is 0. Values outside (negative times, floors out of the range)
+ * fall back to the formula.
+ *
+ * Tables are built for a floor range and shared by every cabin of that range,
+ * see {@link #forFloors(int, int)}.
+ */
+public final class ScoreTable {
+
+    // Last table built, cabins created by the same reset share it
+    private static volatile ScoreTable lastTable;
+
+    private final int lowerFloor;
+    private final int higherFloor;
+
+    // Longest trip of the range, offset of the riding table
+    private final int maxTrip;
+
+    // waitingScores[elapsed]
+    private final double[] waitingScores;
+
+    // ridingScores[penalty + maxTrip]
+    private final double[] ridingScores;
+
+    private ScoreTable(int lowerFloor, int higherFloor) {
+        this.lowerFloor = lowerFloor;
+        this.higherFloor = higherFloor;
+        this.maxTrip = Math.max(0, higherFloor - lowerFloor);
+
+        waitingScores = new double[2 * (ElevatorMathUtil.INITIAL_SCORE - 1)];
+        for (int elapsed = 0; elapsed < waitingScores.length; elapsed++) {
+            waitingScores[elapsed] = ElevatorMathUtil.waitingScore(elapsed);
+        }
+
+        ridingScores = new double[maxTrip + ElevatorMathUtil.INITIAL_SCORE];
+        for (int i = 0; i < ridingScores.length; i++) {
+            ridingScores[i] = Math.max(0d, ElevatorMathUtil.INITIAL_SCORE - (i - maxTrip));
+        }
+    }
+
+    /**
+     * @return the table of the floor range, built once per range
+     */
+    public static ScoreTable forFloors(int lowerFloor, int higherFloor) {
+        ScoreTable table = lastTable;
+        if ( table == null || table.lowerFloor != lowerFloor || table.higherFloor != higherFloor ){
+            table = new ScoreTable(lowerFloor, higherFloor);
+            lastTable = table;
+        }
+        return table;
+    }
+
+    public double score(User user, int currentFloor) {
+        if ( !user.hasFloorToGo() ){
+            int elapsed = user.getWaitTime() + Math.abs(user.getComingFrom() - currentFloor);
+            if ( elapsed >= waitingScores.length ) return 0d;
+            if ( elapsed < 0 ) return ElevatorMathUtil.calculateBestScore(user, currentFloor);
+            return waitingScores[elapsed];
+        }
+
+        int floorToGo = user.floorToGo();
+        int penalty = user.getWaitTime()/2 + user.getTravelTime() + Math.abs(currentFloor - floorToGo) + 1
+                - Math.abs(user.getComingFrom() - floorToGo);
+        int slot = penalty + maxTrip;
+        if ( slot >= ridingScores.length ) return 0d;
+        if ( slot < 0 ) return ElevatorMathUtil.calculateBestScore(user, currentFloor);
+        return ridingScores[slot];
+    }
+
+    /**
+     * Score a whole list of users seen from the same floor, the score is stored on each user.
+     *
+     * @return number of users that can still score
+     */
+    public int scoreAll(List<User> users, int currentFloor) {
+        int withScore = 0;
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            double score = score(user, currentFloor);
+            user.setStillCanScore(score);
+            if ( score > 0 ) withScore++;
+        }
+        return withScore;
+    }
+}
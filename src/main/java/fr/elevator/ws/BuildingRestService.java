@@ -0,0 +1,70 @@
+package fr.elevator.ws;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import fr.elevator.model.BuildingRegistry;
+import fr.elevator.model.ElevatorModel;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Same routes as {@link ElevatorRestService} and {@link WebAppRestService}, for
+ * one building of the {@link BuildingRegistry} : /building/{buildingId}/elevator/call...
+ *
+ * /building/{buildingId}/elevator/reset creates the building, or answers 503 when the
+ * server already holds {@link BuildingRegistry#MAX_BUILDINGS} ; DELETE /building/{buildingId}
+ * removes it. The other routes answer 404 for a building that has not been reset.
+ */
+@Path("/building/{buildingId}")
+public class BuildingRestService {
+
+    private static final String RESET_PATH = "/elevator/reset";
+
+    // Weak keys : the JSON of a removed building goes with it
+    private static final LoadingCache<ElevatorModel, SnapshotJsonCache> snapshotJson = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build(new CacheLoader<ElevatorModel, SnapshotJsonCache>() {
+                @Override
+                public SnapshotJsonCache load(ElevatorModel model) {
+                    return new SnapshotJsonCache();
+                }
+            });
+
+    @Path("/elevator")
+    public ElevatorRestService elevator(@PathParam("buildingId") String buildingId, @Context UriInfo uriInfo) {
+        BuildingRegistry registry = BuildingRegistry.getInstance();
+        if ( uriInfo.getPath().endsWith(RESET_PATH) ){
+            ElevatorModel model = registry.getOrCreate(buildingId);
+            if ( model == null ) throw new WebApplicationException(Response.Status.SERVICE_UNAVAILABLE);
+            return new ElevatorRestService(model);
+        }
+        return new ElevatorRestService(existing(buildingId));
+    }
+
+    @DELETE
+    public Response remove(@PathParam("buildingId") String buildingId) {
+        if ( !BuildingRegistry.getInstance().remove(buildingId) ){
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        return Response.ok().build();
+    }
+
+    @Path("/webapp")
+    public WebAppRestService webapp(@PathParam("buildingId") String buildingId) {
+        ElevatorModel model = existing(buildingId);
+        return new WebAppRestService(model, snapshotJson.getUnchecked(model));
+    }
+
+    private static ElevatorModel existing(String buildingId) {
+        ElevatorModel model = BuildingRegistry.getInstance().get(buildingId);
+        if ( model == null ) throw new WebApplicationException(Response.Status.NOT_FOUND);
+        return model;
+    }
+}
@@ -0,0 +1,61 @@
+package fr.elevator.ws;
+
+import com.google.common.base.Charsets;
+import fr.elevator.common.CabinCommand;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Response bodies of /nextCommands, written from bytes computed once :
+ * - TEXT : one command name per line, as the game server expects,
+ * - BINARY : one byte per cabin, the ordinal of the command in {@link CabinCommand}
+ *   (NOTHING=0, UP=1, DOWN=2, OPEN=3, OPEN_UP=4, OPEN_DOWN=5, CLOSE=6), for pollers
+ *   sending "Accept: application/octet-stream".
+ */
+enum CabinCommandEncoding {
+
+    TEXT("text/plain"),
+    BINARY("application/octet-stream");
+
+    private static final byte[][] LINES = new byte[CabinCommand.values().length][];
+
+    static {
+        for (CabinCommand command : CabinCommand.values()) {
+            LINES[command.ordinal()] = (command.name() + "\n").getBytes(Charsets.US_ASCII);
+        }
+    }
+
+    private final String mediaType;
+
+    CabinCommandEncoding(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return BINARY when the Accept header asks for it, TEXT otherwise
+     */
+    static CabinCommandEncoding negotiate(String accept) {
+        return ( accept != null && accept.contains(BINARY.mediaType) ) ? BINARY : TEXT;
+    }
+
+    void write(List<CabinCommand> commands, OutputStream out) throws IOException {
+        if ( this == BINARY ){
+            byte[] frame = new byte[commands.size()];
+            for (int i = 0; i < frame.length; i++) {
+                frame[i] = (byte) commands.get(i).ordinal();
+            }
+            out.write(frame);
+            return;
+        }
+
+        for (int i = 0; i < commands.size(); i++) {
+            out.write(LINES[commands.get(i).ordinal()]);
+        }
+    }
+}
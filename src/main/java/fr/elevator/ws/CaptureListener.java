@@ -0,0 +1,52 @@
+package fr.elevator.ws;
+
+import com.google.common.base.Strings;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.EventCapture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Captures the events received by the model and the commands it answers, one file
+ * per game, to be replayed offline with ReplayMain, see {@link EventCapture}.
+ *
+ * The capture directory is the elevator.capture.dir system property, or else the
+ * context parameter of the same name ; the capture is off when neither is set.
+ */
+public class CaptureListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptureListener.class);
+
+    static final String CAPTURE_DIRECTORY = "elevator.capture.dir";
+
+    private EventCapture capture;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        String directory = System.getProperty(CAPTURE_DIRECTORY, event.getServletContext().getInitParameter(CAPTURE_DIRECTORY));
+        if ( Strings.isNullOrEmpty(directory) ){
+            return;
+        }
+
+        try {
+            capture = EventCapture.start(new File(directory), ElevatorModel.getInstance());
+        } catch (IOException e) {
+            logger.error("Capture in {} not started", directory, e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if ( capture == null ) return;
+        try {
+            capture.close();
+        } catch (IOException e) {
+            logger.error("Capture not closed", e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package fr.elevator.ws;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.ElevatorModelSnapshot;
+import fr.elevator.model.TickListener;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Server-Sent Events feed of the model for the dashboards.
+ *
+ * A dashboard gets a "snapshot" event on connect, then one "delta" event per
+ * tick where something changed (see {@link ModelDelta}), or a new "snapshot"
+ * after a reset.
+ *
+ * The tick only hands over the snapshot it published, when a dashboard is connected.
+ * Diffs, serialization and writes happen on a single writer thread, which owns
+ * the connections; a tick arriving while the writer is busy replaces the
+ * pending one, so a slow dashboard delays the deltas but never the ticks.
+ */
+class DashboardFeed implements TickListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardFeed.class);
+
+    private final ElevatorModel model;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "dashboard-feed");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AtomicInteger dashboardCount = new AtomicInteger();
+
+    // Snapshot of the last tick not yet published
+    private final AtomicReference<ElevatorModelSnapshot> pending = new AtomicReference<>();
+
+    // Owned by the writer thread
+    private final List<AsyncContext> dashboards = Lists.newArrayList();
+    private ElevatorModelSnapshot lastPublished;
+
+    private final Runnable publisher = new Runnable() {
+        @Override
+        public void run() {
+            publish();
+        }
+    };
+
+    DashboardFeed(ElevatorModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public void tickEnded(ElevatorModel model) {
+        if ( dashboardCount.get() == 0 ) return;
+
+        if ( pending.getAndSet(model.getPublishedSnapshot()) == null ){
+            writer.execute(publisher);
+        }
+    }
+
+    void connect(final AsyncContext dashboard) {
+        dashboardCount.incrementAndGet();
+        dashboard.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                disconnectLater(dashboard);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                disconnectLater(dashboard);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                disconnectLater(dashboard);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Deltas of the other dashboards are relative to lastPublished
+                if ( dashboards.isEmpty() ) lastPublished = model.getPublishedSnapshot();
+                dashboards.add(dashboard);
+                try {
+                    write(dashboard, event("snapshot", lastPublished));
+                } catch (IOException e) {
+                    disconnect(dashboard);
+                }
+            }
+        });
+    }
+
+    void close() {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (AsyncContext dashboard : dashboards) {
+                    dashboard.complete();
+                }
+                dashboards.clear();
+            }
+        });
+        writer.shutdown();
+    }
+
+    private void publish() {
+        ElevatorModelSnapshot snapshot = pending.getAndSet(null);
+        if ( snapshot == null || dashboards.isEmpty() ) return;
+
+        byte[] event;
+        try {
+            Map<String, Object> delta = ModelDelta.between(lastPublished, snapshot);
+            if ( delta == null ){
+                event = event("snapshot", snapshot);
+            } else if ( delta.isEmpty() ){
+                return;
+            } else {
+                event = event("delta", delta);
+            }
+        } catch (IOException e) {
+            logger.error("Dashboard event not serialized", e);
+            return;
+        }
+        lastPublished = snapshot;
+
+        for (Iterator<AsyncContext> it = dashboards.iterator(); it.hasNext(); ) {
+            AsyncContext dashboard = it.next();
+            try {
+                write(dashboard, event);
+            } catch (IOException e) {
+                it.remove();
+                dashboardCount.decrementAndGet();
+                dashboard.complete();
+            }
+        }
+    }
+
+    private void disconnectLater(final AsyncContext dashboard) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                disconnect(dashboard);
+            }
+        });
+    }
+
+    private void disconnect(AsyncContext dashboard) {
+        if ( dashboards.remove(dashboard) ){
+            dashboardCount.decrementAndGet();
+            dashboard.complete();
+        }
+    }
+
+    private byte[] event(String name, Object data) throws IOException {
+        // Jackson writes JSON on a single line, as a data field requires
+        return ("event: " + name + "\ndata: " + mapper.writeValueAsString(data) + "\n\n").getBytes(Charsets.UTF_8);
+    }
+
+    private static void write(AsyncContext dashboard, byte[] event) throws IOException {
+        OutputStream out = dashboard.getResponse().getOutputStream();
+        out.write(event);
+        out.flush();
+    }
+}
@@ -0,0 +1,43 @@
+package fr.elevator.ws;
+
+import fr.elevator.model.ElevatorModel;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Pushes the model to the dashboard as Server-Sent Events, see {@link DashboardFeed}.
+ * The request is kept open in async mode, so a connected dashboard holds no thread.
+ */
+public class DashboardStreamServlet extends HttpServlet {
+
+    private DashboardFeed feed;
+
+    @Override
+    public void init() throws ServletException {
+        feed = new DashboardFeed(ElevatorModel.getInstance());
+        ElevatorModel.getInstance().addTickListener(feed);
+    }
+
+    @Override
+    public void destroy() {
+        ElevatorModel.getInstance().removeTickListener(feed);
+        feed.close();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.flushBuffer();
+
+        AsyncContext dashboard = request.startAsync();
+        dashboard.setTimeout(0);
+        feed.connect(dashboard);
+    }
+}
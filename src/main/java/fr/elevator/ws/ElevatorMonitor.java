@@ -0,0 +1,123 @@
+package fr.elevator.ws;
+
+import fr.elevator.metrics.ElevatorMetrics;
+import fr.elevator.metrics.Histogram;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.ElevatorModelSnapshot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * See {@link ElevatorMonitorMXBean}. Every attribute is read when asked for,
+ * gauges from the snapshot of the last tick.
+ */
+public class ElevatorMonitor implements ElevatorMonitorMXBean {
+
+    static final String OBJECT_NAME = "fr.elevator:type=ElevatorMonitor";
+
+    private final ElevatorModel model;
+
+    public ElevatorMonitor(ElevatorModel model) {
+        this.model = model;
+    }
+
+    private ElevatorMetrics metrics() {
+        return model.getMetrics();
+    }
+
+    @Override
+    public long getTickCount() {
+        return metrics().getTickDuration().snapshot().count();
+    }
+
+    @Override
+    public double getTickMeanMicros() {
+        return metrics().getTickDuration().snapshot().mean() / TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getTickP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(metrics().getTickDuration().snapshot().quantile(0.99));
+    }
+
+    @Override
+    public double getScore() {
+        return model.getScore();
+    }
+
+    @Override
+    public int getAllUsers() {
+        return model.getAllUsers();
+    }
+
+    @Override
+    public int getHappyUsers() {
+        return model.getHappyUsers();
+    }
+
+    @Override
+    public int getAbnormalUserEntring() {
+        return model.getAbnormalUserEntring();
+    }
+
+    @Override
+    public int getAbnormalUserExiting() {
+        return model.getAbnormalUserExiting();
+    }
+
+    @Override
+    public double getWaitTimeMean() {
+        return metrics().getWaitTime().snapshot().mean();
+    }
+
+    @Override
+    public long getWaitTimeP90() {
+        return metrics().getWaitTime().snapshot().quantile(0.9);
+    }
+
+    @Override
+    public double getTravelTimeMean() {
+        return metrics().getTravelTime().snapshot().mean();
+    }
+
+    @Override
+    public long getTravelTimeP90() {
+        return metrics().getTravelTime().snapshot().quantile(0.9);
+    }
+
+    @Override
+    public double getScorePerTickMean() {
+        Histogram.Snapshot scorePerTick = metrics().getScorePerTick().snapshot();
+        return scorePerTick.mean();
+    }
+
+    @Override
+    public int getUsersWithoutCabin() {
+        return model.getPublishedSnapshot().getUsersWaitingElevator().size();
+    }
+
+    @Override
+    public int[] getCabinUsers() {
+        ElevatorModelSnapshot snapshot = model.getPublishedSnapshot();
+        int[] users = new int[snapshot.getCabinsList().size()];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = snapshot.getCabinsList().get(i).getUsersInCabin().size();
+        }
+        return users;
+    }
+
+    @Override
+    public int[] getCabinWaitingUsers() {
+        ElevatorModelSnapshot snapshot = model.getPublishedSnapshot();
+        int[] users = new int[snapshot.getCabinsList().size()];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = snapshot.getCabinsList().get(i).getUsersWaitingCabin().size();
+        }
+        return users;
+    }
+
+    @Override
+    public int getIngestionQueueDepth() {
+        return model.getIngestion().getQueueDepth();
+    }
+}
@@ -0,0 +1,42 @@
+package fr.elevator.ws;
+
+/**
+ * JMX view of the model metrics, registered as fr.elevator:type=ElevatorMonitor.
+ * Durations are in micro seconds, wait / travel times in ticks.
+ */
+public interface ElevatorMonitorMXBean {
+
+    long getTickCount();
+
+    double getTickMeanMicros();
+
+    long getTickP99Micros();
+
+    double getScore();
+
+    int getAllUsers();
+
+    int getHappyUsers();
+
+    int getAbnormalUserEntring();
+
+    int getAbnormalUserExiting();
+
+    double getWaitTimeMean();
+
+    long getWaitTimeP90();
+
+    double getTravelTimeMean();
+
+    long getTravelTimeP90();
+
+    double getScorePerTickMean();
+
+    int getUsersWithoutCabin();
+
+    int[] getCabinUsers();
+
+    int[] getCabinWaitingUsers();
+
+    int getIngestionQueueDepth();
+}
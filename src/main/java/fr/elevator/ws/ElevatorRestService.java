@@ -2,13 +2,23 @@ package fr.elevator.ws;
 
 import fr.elevator.common.CabinCommand;
 import fr.elevator.common.Direction;
+import fr.elevator.model.CabinTuning;
+import fr.elevator.model.CommandPolicy;
+import fr.elevator.model.DispatcherType;
 import fr.elevator.model.ElevatorModel;
-import org.apache.log4j.Logger;
+import fr.elevator.model.EventIngestion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -17,14 +27,33 @@ import java.util.List;
 @Path("/elevator")
 public class ElevatorRestService {
 
-    private static Logger logger = Logger.getLogger(ElevatorRestService.class);
+    private static final Logger logger = LoggerFactory.getLogger(ElevatorRestService.class);
+
+    private final ElevatorModel model;
+
+    public ElevatorRestService() {
+        this(ElevatorModel.getInstance());
+    }
+
+    /**
+     * Routes of one building, see {@link BuildingRestService}.
+     */
+    ElevatorRestService(ElevatorModel model) {
+        this.model = model;
+    }
 
     @GET
     @Path("/call")
     public Response userCall(@QueryParam("atFloor") int floor,
                              @QueryParam("to") String direction) {
-        logger.info("userCall : floor=" + floor + ",direction= " + direction);
-        ElevatorModel.getInstance().callAtFloor(floor, Direction.valueOf(direction));
+        logger.debug("userCall : floor={}, direction={}", floor, direction);
+        try {
+            if ( !model.getIngestion().call(floor, Direction.valueOf(String.valueOf(direction))) ){
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
         return Response.ok().build();
     }
 
@@ -33,62 +62,155 @@ public class ElevatorRestService {
     public Response userGo(@QueryParam("floorToGo") int floor,
                            @QueryParam("cabin")     int cabin)
     {
-        logger.info("userGo floor=" + floor+ " on cabin "+cabin);
-        ElevatorModel.getInstance().floorToGo(floor,cabin);
+        logger.debug("userGo floor={} on cabin {}", floor, cabin);
+        try {
+            if ( !model.getIngestion().go(floor, cabin) ){
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
         return Response.ok().build();
     }
 
     @GET
     @Path("/userHasEntered")
     public Response userHasEntered(@QueryParam("cabin")int cabin) {
-        logger.info("userHasEntered on cabin " + cabin);
+        logger.debug("userHasEntered on cabin {}", cabin);
         return Response.ok().build();
     }
 
     @GET
     @Path("/userHasExited")
     public Response userHasExited(@QueryParam("cabin") int cabin) {
-        logger.info("userHasExited on cabin "+cabin);
-        ElevatorModel.getInstance().userHasExited(cabin);
+        logger.debug("userHasExited on cabin {}", cabin);
+        try {
+            if ( !model.getIngestion().exited(cabin) ){
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE).build();
+            }
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
         return Response.ok().build();
     }
 
+    /**
+     * Request the model cannot apply : a floor or a cabin the building does not have, an unknown direction,
+     * a setting of reset out of its range.
+     */
+    private static Response badRequest(RuntimeException e) {
+        logger.warn("Request refused : {}", e.getMessage());
+        return Response.status(Response.Status.BAD_REQUEST).build();
+    }
+
     @GET
     @Path("/reset")
     public Response reset(@QueryParam("cause") String informationMessage,
                           @QueryParam("lowerFloor") Integer lowerFloor,
                           @QueryParam("higherFloor") Integer higherFloor,
                           @QueryParam("cabinSize") Integer cabinSize,
-                          @QueryParam("cabinCount") Integer cabinCount) {
-
+                          @QueryParam("cabinCount") Integer cabinCount,
+                          @QueryParam("ingestionMode") String ingestionMode,
+                          @QueryParam("ingestionCapacity") Integer ingestionCapacity,
+                          @QueryParam("overflowPolicy") String overflowPolicy,
+                          @QueryParam("dispatcher") String dispatcher,
+                          @QueryParam("batchAssignmentBudgetMicros") Long batchAssignmentBudgetMicros,
+                          @QueryParam("parallelCabinThreshold") Integer parallelCabinThreshold,
+                          @QueryParam("parking") Boolean parking,
+                          @QueryParam("commandPolicy") String commandPolicy,
+                          @QueryParam("searchBudgetMicros") Long searchBudgetMicros,
+                          @QueryParam("almostFullRatio") Double almostFullRatio,
+                          @QueryParam("riderMinScore") Double riderMinScore,
+                          @QueryParam("waitingMinScore") Double waitingMinScore) {
+
+
+        logger.info("reset cause = {}, lower ={}, higher={}, cabinSize={}, cabinCount={}",
+                new Object[]{informationMessage, lowerFloor, higherFloor, cabinSize, cabinCount});
+
+        // Every parameter is checked before the model changes : a bad one leaves the game as it was
+        EventIngestion.Mode mode;
+        EventIngestion.OverflowPolicy overflow;
+        DispatcherType dispatcherType;
+        CommandPolicy policy;
+        CabinTuning tuning = model.getTuning();
+        try {
+            mode = ingestionMode == null ? null : EventIngestion.Mode.valueOf(ingestionMode);
+            overflow = overflowPolicy == null ? null : EventIngestion.OverflowPolicy.valueOf(overflowPolicy);
+            dispatcherType = dispatcher == null ? null : DispatcherType.valueOf(dispatcher);
+            policy = commandPolicy == null ? null : CommandPolicy.valueOf(commandPolicy);
+            checkBuilding(lowerFloor == null ? model.getLowerFloor() : lowerFloor,
+                    higherFloor == null ? model.getHigherFloor() : higherFloor,
+                    cabinSize == null ? model.getCabinSize() : cabinSize,
+                    cabinCount == null ? model.getCabinCount() : cabinCount);
+            if ( ingestionCapacity != null && ingestionCapacity < 1 ){
+                throw new IllegalArgumentException("ingestionCapacity must be positive : " + ingestionCapacity);
+            }
+            if ( almostFullRatio != null)
+                tuning = tuning.withAlmostFullRatio(almostFullRatio);
+            if ( riderMinScore != null)
+                tuning = tuning.withRiderMinScore(riderMinScore);
+            if ( waitingMinScore != null)
+                tuning = tuning.withWaitingMinScore(waitingMinScore);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e);
+        }
 
-        logger.info(String.format("reset cause = %s, lower =%s, higher=%s, cabinSize=%s, cabinCount=%s",
-                informationMessage,lowerFloor,higherFloor,cabinSize, cabinCount));
+        model.getIngestion().configure(mode, ingestionCapacity, overflow);
 
         if ( lowerFloor != null )
-            ElevatorModel.getInstance().setLowerFloor(lowerFloor);
+            model.setLowerFloor(lowerFloor);
         if ( higherFloor != null)
-            ElevatorModel.getInstance().setHigherFloor(higherFloor);
+            model.setHigherFloor(higherFloor);
         if ( cabinSize != null)
-            ElevatorModel.getInstance().setCabinSize(cabinSize);
+            model.setCabinSize(cabinSize);
         if ( cabinCount != null)
-            ElevatorModel.getInstance().updateCabinCount(cabinCount);
-
-        ElevatorModel.getInstance().reset();
+            model.setCabinCount(cabinCount);
+        if ( dispatcherType != null)
+            model.setDispatcher(dispatcherType.create());
+        if ( batchAssignmentBudgetMicros != null)
+            model.setBatchAssignmentBudgetMicros(batchAssignmentBudgetMicros);
+        if ( parallelCabinThreshold != null)
+            model.setParallelCabinThreshold(parallelCabinThreshold);
+        if ( parking != null)
+            model.setParking(parking);
+        if ( policy != null)
+            model.setCommandPolicy(policy);
+        if ( searchBudgetMicros != null)
+            model.setSearchBudgetMicros(searchBudgetMicros);
+
+        model.setTuning(tuning);
+
+        model.reset();
 
         return Response.ok().build();
     }
 
+    private static void checkBuilding(int lowerFloor, int higherFloor, int cabinSize, int cabinCount) {
+        if ( lowerFloor > higherFloor ){
+            throw new IllegalArgumentException("lowerFloor " + lowerFloor + " above higherFloor " + higherFloor);
+        }
+        if ( cabinSize < 1 || cabinCount < 1 ){
+            throw new IllegalArgumentException("cabinSize and cabinCount must be positive : " + cabinSize + ", " + cabinCount);
+        }
+    }
+
+    /**
+     * Commands of the tick, one per line, or one byte per cabin when the poller
+     * accepts application/octet-stream, see {@link CabinCommandEncoding}.
+     */
     @GET
     @Path("/nextCommands")
-    public String nextCommand() {
-        List<CabinCommand> nextCommand1 = ElevatorModel.getInstance().findNextCommand();
-        StringBuilder result = new StringBuilder();
-        for (CabinCommand CabinCommand : nextCommand1) {
-           result = result.append(CabinCommand.toString()+ "\n");
-        }
-        logger.info("nextCommand : " + result);
-        return result.toString();
+    public Response nextCommand(@HeaderParam(HttpHeaders.ACCEPT) String accept) {
+        final List<CabinCommand> nextCommands = model.findNextCommand();
+        logger.debug("nextCommand : {}", nextCommands);
+
+        final CabinCommandEncoding encoding = CabinCommandEncoding.negotiate(accept);
+        return Response.ok(new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                encoding.write(nextCommands, output);
+            }
+        }, encoding.mediaType()).build();
     }
 
 }
\ No newline at end of file
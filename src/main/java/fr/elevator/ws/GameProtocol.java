@@ -0,0 +1,178 @@
+package fr.elevator.ws;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.model.ElevatorModel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Events of the game protocol (/call, /go, /userHasEntered, /userHasExited) and
+ * /nextCommands, without Jersey : the query string is read in place, the model is
+ * called directly, and the answer is a status code, with no body but the commands.
+ * A floor or a cabin the building does not have is a BAD_REQUEST, as in {@link ElevatorRestService}.
+ *
+ * The parameters are stricter than Jersey's, which a game server sending well formed
+ * requests does not see :
+ * <ul>
+ * <li>a missing atFloor, floorToGo or cabin is a BAD_REQUEST, where Jersey reads 0
+ * and answers OK when the building has that floor or cabin ;</li>
+ * <li>a value that is not a number is a BAD_REQUEST, where Jersey answers NOT_FOUND ;</li>
+ * <li>names and values are not URL-decoded : atFloor=%2D1 is not a number here,
+ * and to=UP must be written as such.</li>
+ * </ul>
+ *
+ * Nothing is allocated per event. Served by {@link GameProtocolServlet}.
+ */
+public final class GameProtocol {
+
+    public static final int OK = 200;
+    public static final int BAD_REQUEST = 400;
+    public static final int NOT_FOUND = 404;
+    public static final int SERVICE_UNAVAILABLE = 503;
+
+    static final String CALL = "/call";
+    static final String GO = "/go";
+    static final String USER_HAS_ENTERED = "/userHasEntered";
+    static final String USER_HAS_EXITED = "/userHasExited";
+    static final String NEXT_COMMANDS = "/nextCommands";
+
+    // Read from a query string when a parameter is missing or is not a number
+    static final int NO_VALUE = Integer.MIN_VALUE;
+
+    // More digits may overflow an int, no floor or cabin needs them
+    private static final int MAX_DIGITS = 9;
+
+    private final ElevatorModel model;
+
+    public GameProtocol(ElevatorModel model) {
+        this.model = model;
+    }
+
+    /**
+     * @param path  path of the event, as /call
+     * @param query query string of the request, null when it has none
+     * @return the status of the answer, NOT_FOUND when the path is not an event of the protocol
+     */
+    public int event(String path, String query) {
+        if ( path == null ) return NOT_FOUND;
+
+        try {
+            switch (path) {
+                case CALL: {
+                    int floor = intParam(query, "atFloor");
+                    Direction direction = directionParam(query, "to");
+                    if ( !model.hasFloor(floor) || direction == null ) return BAD_REQUEST;
+                    return model.getIngestion().call(floor, direction) ? OK : SERVICE_UNAVAILABLE;
+                }
+                case GO: {
+                    int floor = intParam(query, "floorToGo");
+                    int cabin = intParam(query, "cabin");
+                    if ( !model.hasFloor(floor) || !model.hasCabin(cabin) ) return BAD_REQUEST;
+                    return model.getIngestion().go(floor, cabin) ? OK : SERVICE_UNAVAILABLE;
+                }
+                case USER_HAS_ENTERED:
+                    return OK;
+                case USER_HAS_EXITED: {
+                    int cabin = intParam(query, "cabin");
+                    if ( !model.hasCabin(cabin) ) return BAD_REQUEST;
+                    return model.getIngestion().exited(cabin) ? OK : SERVICE_UNAVAILABLE;
+                }
+                default:
+                    return NOT_FOUND;
+            }
+        } catch (IllegalArgumentException e) {
+            // The building changed with a reset between the checks above and the ingestion
+            return BAD_REQUEST;
+        }
+    }
+
+    /**
+     * Tick of the model, commands written as /nextCommands does.
+     *
+     * @param accept Accept header of the request, see {@link #mediaType(String)}
+     */
+    public void nextCommands(String accept, OutputStream out) throws IOException {
+        List<CabinCommand> commands = model.findNextCommand();
+        CabinCommandEncoding.negotiate(accept).write(commands, out);
+    }
+
+    /**
+     * @return media type of the commands written for the Accept header
+     */
+    public static String mediaType(String accept) {
+        return CabinCommandEncoding.negotiate(accept).mediaType();
+    }
+
+    /**
+     * @return the endpoint of the path as the metrics name it, null when the protocol does not serve it
+     */
+    static String endpointOf(String path) {
+        if ( path == null ) return null;
+
+        switch (path) {
+            case CALL: return "call";
+            case GO: return "go";
+            case USER_HAS_ENTERED: return "userHasEntered";
+            case USER_HAS_EXITED: return "userHasExited";
+            case NEXT_COMMANDS: return "nextCommands";
+            default: return null;
+        }
+    }
+
+    /**
+     * @return the decimal value of the parameter, NO_VALUE when it is missing or is not a number
+     */
+    static int intParam(String query, String name) {
+        int start = valueStart(query, name);
+        if ( start < 0 ) return NO_VALUE;
+
+        int end = valueEnd(query, start);
+        boolean negative = start < end && query.charAt(start) == '-';
+        int first = negative ? start + 1 : start;
+        if ( first == end || end - first > MAX_DIGITS ) return NO_VALUE;
+
+        int value = 0;
+        for (int i = first; i < end; i++) {
+            char c = query.charAt(i);
+            if ( c < '0' || c > '9' ) return NO_VALUE;
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @return UP or DOWN, null when the parameter is missing or is neither
+     */
+    static Direction directionParam(String query, String name) {
+        int start = valueStart(query, name);
+        if ( start < 0 ) return null;
+
+        int length = valueEnd(query, start) - start;
+        if ( length == 2 && query.startsWith("UP", start) ) return Direction.UP;
+        if ( length == 4 && query.startsWith("DOWN", start) ) return Direction.DOWN;
+        return null;
+    }
+
+    /**
+     * @return index of the first character of the value of the parameter, -1 when it is missing
+     */
+    private static int valueStart(String query, String name) {
+        if ( query == null ) return -1;
+
+        int length = name.length();
+        for (int start = 0; start < query.length(); start = valueEnd(query, start) + 1) {
+            if ( query.startsWith(name, start) && start + length < query.length() && query.charAt(start + length) == '=' ){
+                return start + length + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int valueEnd(String query, int start) {
+        int end = query.indexOf('&', start);
+        return (end < 0) ? query.length() : end;
+    }
+}
@@ -0,0 +1,62 @@
+package fr.elevator.ws;
+
+import fr.elevator.model.ElevatorModel;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Game protocol of the default building on /elevator/*, see {@link GameProtocol},
+ * for game servers sending thousands of events per second : the events of
+ * /rest/elevator/*, without going through Jersey, with the stricter parameters
+ * that {@link GameProtocol} lists.
+ *
+ * The other requests (/reset, ...) are forwarded to /rest/elevator/*.
+ */
+public class GameProtocolServlet extends HttpServlet {
+
+    private static final String REST_PATH = "/rest/elevator";
+
+    private ElevatorModel model;
+    private GameProtocol protocol;
+
+    @Override
+    public void init() throws ServletException {
+        model = ElevatorModel.getInstance();
+        protocol = new GameProtocol(model);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        long start = System.nanoTime();
+        String path = request.getPathInfo();
+        String endpoint = GameProtocol.endpointOf(path);
+        if ( endpoint == null ){
+            forwardToRest(request, response, path);
+            return;
+        }
+
+        if ( GameProtocol.NEXT_COMMANDS.equals(path) ){
+            String accept = request.getHeader("Accept");
+            response.setContentType(GameProtocol.mediaType(accept));
+            protocol.nextCommands(accept, response.getOutputStream());
+        } else {
+            response.setStatus(protocol.event(path, request.getQueryString()));
+            response.setContentLength(0);
+        }
+        model.getMetrics().endpointCalled(endpoint, System.nanoTime() - start);
+    }
+
+    private void forwardToRest(HttpServletRequest request, HttpServletResponse response, String path) throws ServletException, IOException {
+        if ( path == null ){
+            response.setStatus(GameProtocol.NOT_FOUND);
+            return;
+        }
+        RequestDispatcher rest = request.getServletContext().getRequestDispatcher(REST_PATH + path);
+        rest.forward(request, response);
+    }
+}
@@ -0,0 +1,54 @@
+package fr.elevator.ws;
+
+import com.google.common.base.Strings;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.EventJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Rebuilds the model from its journal when the application starts, then journals
+ * every event it receives, see {@link EventJournal}.
+ *
+ * The journal directory is the elevator.journal.dir system property, or else the
+ * context parameter of the same name ; the journal is off when neither is set.
+ */
+public class JournalListener implements ServletContextListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalListener.class);
+
+    static final String JOURNAL_DIRECTORY = "elevator.journal.dir";
+
+    private EventJournal journal;
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        String directory = System.getProperty(JOURNAL_DIRECTORY, event.getServletContext().getInitParameter(JOURNAL_DIRECTORY));
+        if ( Strings.isNullOrEmpty(directory) ){
+            logger.info("No journal, the model is lost on restart");
+            return;
+        }
+
+        try {
+            journal = EventJournal.open(new File(directory), ElevatorModel.getInstance());
+        } catch (IOException | RuntimeException e) {
+            // The application starts anyway, with an empty model
+            logger.error("Journal {} not opened, the model is lost on restart", directory, e);
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if ( journal == null ) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("Journal not closed", e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package fr.elevator.ws;
+
+import com.google.common.collect.ImmutableSet;
+import fr.elevator.model.BuildingRegistry;
+import fr.elevator.model.ElevatorModel;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Records the duration of each REST request, by endpoint (last segment of the path),
+ * in the metrics of the building of the request. Requests to a building that does
+ * not exist are not recorded, so that they create nothing.
+ * Unknown paths share the "other" endpoint, so that the metrics stay bounded.
+ */
+public class MetricsFilter implements Filter {
+
+    private static final String BUILDING_PREFIX = "/building/";
+
+    private static final Set<String> ENDPOINTS = ImmutableSet.of(
+            "call", "go", "userHasEntered", "userHasExited", "reset", "nextCommands", "model", "ingestion");
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            ElevatorModel building = buildingOf(httpRequest);
+            if ( building != null ) building.getMetrics().endpointCalled(endpointOf(httpRequest), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return the model of the building of the request, null when the building does not exist
+     */
+    static ElevatorModel buildingOf(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int prefix = uri.indexOf(BUILDING_PREFIX);
+        if ( prefix < 0 ) return ElevatorModel.getInstance();
+
+        int start = prefix + BUILDING_PREFIX.length();
+        int end = uri.indexOf('/', start);
+        return BuildingRegistry.getInstance().get(end < 0 ? uri.substring(start) : uri.substring(start, end));
+    }
+
+    static String endpointOf(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        String endpoint = uri.substring(uri.lastIndexOf('/') + 1);
+        return ENDPOINTS.contains(endpoint) ? endpoint : "other";
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,64 @@
+package fr.elevator.ws;
+
+import fr.elevator.model.BuildingRegistry;
+import fr.elevator.model.ElevatorModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Serves the metrics of the model to Prometheus on /metrics, those of another
+ * building of the {@link BuildingRegistry} on /metrics?building=id, and registers
+ * the metrics of the default building in JMX, see {@link ElevatorMonitorMXBean}.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsServlet.class);
+
+    private ObjectName monitorName;
+
+    @Override
+    public void init() throws ServletException {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(ElevatorMonitor.OBJECT_NAME);
+            if ( !server.isRegistered(name) ){
+                server.registerMBean(new ElevatorMonitor(ElevatorModel.getInstance()), name);
+                monitorName = name;
+            }
+        } catch (JMException e) {
+            logger.error("Elevator monitor not registered in JMX", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if ( monitorName == null ) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(monitorName);
+        } catch (JMException e) {
+            logger.error("Elevator monitor not unregistered from JMX", e);
+        }
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        String building = request.getParameter("building");
+        ElevatorModel model = (building == null) ? ElevatorModel.getInstance() : BuildingRegistry.getInstance().get(building);
+        if ( model == null ){
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown building " + building);
+            return;
+        }
+        response.setContentType(PrometheusFormat.CONTENT_TYPE);
+        PrometheusFormat.write(model, response.getWriter());
+    }
+}
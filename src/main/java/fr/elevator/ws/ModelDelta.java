@@ -0,0 +1,102 @@
+package fr.elevator.ws;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import fr.elevator.common.User;
+import fr.elevator.model.CabinSnapshot;
+import fr.elevator.model.ElevatorModelSnapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What changed on the model between two snapshots, as pushed to the dashboard :
+ * - score and user counters that changed,
+ * - for each cabin that changed, its id and the floor, door and direction when they changed,
+ * - for each user list that changed, the users added or updated and the ids of users removed.
+ *
+ * Users are matched by id. Property names are the ones of the snapshot, so that
+ * the dashboard can apply a delta on the snapshot it received on connect.
+ */
+final class ModelDelta {
+
+    private ModelDelta() {
+    }
+
+    /**
+     * @return the delta, empty when nothing changed, or null when the model was
+     * reset or reconfigured in between and a full snapshot is needed
+     */
+    static Map<String, Object> between(ElevatorModelSnapshot previous, ElevatorModelSnapshot current) {
+        if ( previous.getResetNumber() != current.getResetNumber()
+                || previous.getLowerFloor() != current.getLowerFloor()
+                || previous.getHigherFloor() != current.getHigherFloor()
+                || previous.getCabinSize() != current.getCabinSize()
+                || previous.getCabinsList().size() != current.getCabinsList().size() ){
+            return null;
+        }
+
+        Map<String, Object> delta = Maps.newLinkedHashMap();
+        putIfChanged(delta, "score", previous.getScore(), current.getScore());
+        putIfChanged(delta, "allUsers", previous.getAllUsers(), current.getAllUsers());
+        putIfChanged(delta, "happyUsers", previous.getHappyUsers(), current.getHappyUsers());
+        putIfChanged(delta, "abnormalUserEntring", previous.getAbnormalUserEntring(), current.getAbnormalUserEntring());
+        putIfChanged(delta, "abnormalUserExiting", previous.getAbnormalUserExiting(), current.getAbnormalUserExiting());
+        putUsersIfChanged(delta, "usersWaitingElevator", previous.getUsersWaitingElevator(), current.getUsersWaitingElevator());
+
+        List<Map<String, Object>> cabins = Lists.newArrayList();
+        for (int i = 0; i < current.getCabinsList().size(); i++) {
+            CabinSnapshot before = previous.getCabinsList().get(i);
+            CabinSnapshot after = current.getCabinsList().get(i);
+            if ( before.getId() != after.getId() ) return null;
+
+            Map<String, Object> cabin = Maps.newLinkedHashMap();
+            putIfChanged(cabin, "currentFloor", before.getCurrentFloor(), after.getCurrentFloor());
+            putIfChanged(cabin, "doorOpened", before.isDoorOpened(), after.isDoorOpened());
+            putIfChanged(cabin, "lastCommand", before.getLastCommand(), after.getLastCommand());
+            putIfChanged(cabin, "elevatorDirection", before.getElevatorDirection(), after.getElevatorDirection());
+            putUsersIfChanged(cabin, "usersInCabin", before.getUsersInCabin(), after.getUsersInCabin());
+            putUsersIfChanged(cabin, "usersWaitingCabin", before.getUsersWaitingCabin(), after.getUsersWaitingCabin());
+            if ( !cabin.isEmpty() ){
+                cabin.put("id", after.getId());
+                cabins.add(cabin);
+            }
+        }
+        if ( !cabins.isEmpty() ) delta.put("cabinsList", cabins);
+
+        return delta;
+    }
+
+    private static void putIfChanged(Map<String, Object> delta, String property, Object before, Object after) {
+        if ( before == null ? after != null : !before.equals(after) ){
+            delta.put(property, after);
+        }
+    }
+
+    private static void putUsersIfChanged(Map<String, Object> delta, String property, List<User> before, List<User> after) {
+        Map<Long, User> usersBefore = Maps.newHashMapWithExpectedSize(before.size());
+        for (User user : before) {
+            usersBefore.put(user.getId(), user);
+        }
+
+        List<User> changed = Lists.newArrayList();
+        for (User user : after) {
+            User previous = usersBefore.remove(user.getId());
+            if ( previous == null || !sameState(previous, user) ) changed.add(user);
+        }
+
+        if ( changed.isEmpty() && usersBefore.isEmpty() ) return;
+
+        Map<String, Object> users = Maps.newLinkedHashMap();
+        users.put("changed", changed);
+        users.put("removed", usersBefore.keySet());
+        delta.put(property, users);
+    }
+
+    private static boolean sameState(User before, User after) {
+        return before.getWaitTime() == after.getWaitTime()
+                && before.getTravelTime() == after.getTravelTime()
+                && before.floorToGo() == after.floorToGo()
+                && before.getStillCanScore() == after.getStillCanScore();
+    }
+}
@@ -18,6 +18,7 @@ public class MyApplication extends Application {
         // register root resource
         classes.add(ElevatorRestService.class);
         classes.add(WebAppRestService.class);
+        classes.add(BuildingRestService.class);
 
         return classes;
     }
@@ -0,0 +1,124 @@
+package fr.elevator.ws;
+
+import fr.elevator.metrics.ElevatorMetrics;
+import fr.elevator.metrics.Histogram;
+import fr.elevator.model.CabinSnapshot;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.ElevatorModelSnapshot;
+import fr.elevator.model.EventIngestion;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Model metrics in the Prometheus text format (version 0.0.4).
+ * Durations are exported in seconds, wait / travel times in ticks.
+ */
+final class PrometheusFormat {
+
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final Writer out;
+
+    private PrometheusFormat(Writer out) {
+        this.out = out;
+    }
+
+    static void write(ElevatorModel model, Writer out) throws IOException {
+        new PrometheusFormat(out).write(model);
+    }
+
+    private void write(ElevatorModel model) throws IOException {
+        ElevatorMetrics metrics = model.getMetrics();
+        ElevatorModelSnapshot snapshot = model.getPublishedSnapshot();
+        EventIngestion ingestion = model.getIngestion();
+
+        header("elevator_tick_duration_seconds", "histogram", "Duration of findNextCommand");
+        histogram("elevator_tick_duration_seconds", "", metrics.getTickDuration().snapshot(), NANOS_PER_SECOND);
+
+        header("elevator_request_duration_seconds", "histogram", "Duration of the REST requests, by endpoint");
+        for (Map.Entry<String, Histogram> endpoint : new TreeMap<>(metrics.getEndpointDurations()).entrySet()) {
+            histogram("elevator_request_duration_seconds", "endpoint=\"" + endpoint.getKey() + "\",",
+                    endpoint.getValue().snapshot(), NANOS_PER_SECOND);
+        }
+
+        header("elevator_user_wait_ticks", "histogram", "Ticks users waited before entering, recorded at exit");
+        histogram("elevator_user_wait_ticks", "", metrics.getWaitTime().snapshot(), 1);
+
+        header("elevator_user_travel_ticks", "histogram", "Ticks users spent in a cabin, recorded at exit");
+        histogram("elevator_user_travel_ticks", "", metrics.getTravelTime().snapshot(), 1);
+
+        header("elevator_score_per_tick", "histogram", "Score accrued between two ticks");
+        histogram("elevator_score_per_tick", "", metrics.getScorePerTick().snapshot(), 1);
+
+        header("elevator_score", "gauge", "Score since the last reset");
+        sample("elevator_score", "", model.getScore());
+
+        header("elevator_users_total", "counter", "Users that called since the last reset");
+        sample("elevator_users_total", "", model.getAllUsers());
+
+        header("elevator_happy_users_total", "counter", "Users that exited since the last reset");
+        sample("elevator_happy_users_total", "", model.getHappyUsers());
+
+        header("elevator_abnormal_entries_total", "counter", "Users entering that the model did not expect");
+        sample("elevator_abnormal_entries_total", "", model.getAbnormalUserEntring());
+
+        header("elevator_abnormal_exits_total", "counter", "Users exiting that the model did not expect");
+        sample("elevator_abnormal_exits_total", "", model.getAbnormalUserExiting());
+
+        header("elevator_users_without_cabin", "gauge", "Users waiting for a cabin to be assigned, at the last tick");
+        sample("elevator_users_without_cabin", "", snapshot.getUsersWaitingElevator().size());
+
+        header("elevator_cabin_users", "gauge", "Users in the cabin, at the last tick");
+        for (CabinSnapshot cabin : snapshot.getCabinsList()) {
+            sample("elevator_cabin_users", "cabin=\"" + cabin.getId() + "\"", cabin.getUsersInCabin().size());
+        }
+
+        header("elevator_cabin_waiting_users", "gauge", "Users waiting the cabin, at the last tick");
+        for (CabinSnapshot cabin : snapshot.getCabinsList()) {
+            sample("elevator_cabin_waiting_users", "cabin=\"" + cabin.getId() + "\"", cabin.getUsersWaitingCabin().size());
+        }
+
+        header("elevator_ingestion_queue_depth", "gauge", "Events queued for the next tick");
+        sample("elevator_ingestion_queue_depth", "", ingestion.getQueueDepth());
+
+        header("elevator_ingestion_rejected_total", "counter", "Events refused because the ingestion queue was full");
+        sample("elevator_ingestion_rejected_total", "", ingestion.getRejected());
+
+        header("elevator_ingestion_dropped_total", "counter", "Events lost because the ingestion queue was full");
+        sample("elevator_ingestion_dropped_total", "", ingestion.getDropped());
+
+        out.flush();
+    }
+
+    private void header(String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " " + type + "\n");
+    }
+
+    /**
+     * @param labels labels of the series followed by a comma, or empty
+     */
+    private void histogram(String name, String labels, Histogram.Snapshot histogram, double unit) throws IOException {
+        long cumulated = 0;
+        for (int bucket = 0; bucket < histogram.bucketCount(); bucket++) {
+            cumulated += histogram.countAt(bucket);
+            long bound = histogram.upperBound(bucket);
+            String le = (bound == Long.MAX_VALUE) ? "+Inf" : String.valueOf(bound / unit);
+            sample(name + "_bucket", labels + "le=\"" + le + "\"", cumulated);
+        }
+        String seriesLabels = labels.isEmpty() ? "" : labels.substring(0, labels.length() - 1);
+        sample(name + "_sum", seriesLabels, histogram.sum() / unit);
+        sample(name + "_count", seriesLabels, histogram.count());
+    }
+
+    private void sample(String name, String labels, Number value) throws IOException {
+        out.write(name);
+        if ( !labels.isEmpty() ) out.write("{" + labels + "}");
+        out.write(" " + value + "\n");
+    }
+}
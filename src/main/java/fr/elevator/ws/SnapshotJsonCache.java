@@ -0,0 +1,45 @@
+package fr.elevator.ws;
+
+import fr.elevator.model.ElevatorModelSnapshot;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * JSON of the last published snapshot, serialized once per version whatever
+ * the number of readers asking for it.
+ */
+class SnapshotJsonCache {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile SerializedSnapshot last;
+
+    static final class SerializedSnapshot {
+        final long version;
+        final byte[] json;
+
+        private SerializedSnapshot(long version, byte[] json) {
+            this.version = version;
+            this.json = json;
+        }
+    }
+
+    /**
+     * @return the JSON of the snapshot, or of a newer one when a reader already serialized it
+     */
+    SerializedSnapshot jsonOf(ElevatorModelSnapshot snapshot) throws IOException {
+        SerializedSnapshot serialized = last;
+        if ( serialized != null && serialized.version >= snapshot.getVersion() ) return serialized;
+
+        // Readers of a new version wait for the first one to serialize it
+        synchronized (this) {
+            serialized = last;
+            if ( serialized == null || serialized.version < snapshot.getVersion() ){
+                serialized = new SerializedSnapshot(snapshot.getVersion(), mapper.writeValueAsBytes(snapshot));
+                last = serialized;
+            }
+            return serialized;
+        }
+    }
+}
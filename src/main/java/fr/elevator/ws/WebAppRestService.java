@@ -1,11 +1,20 @@
 package fr.elevator.ws;
 
+import fr.elevator.common.Direction;
 import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.EventIngestion;
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * User: zizou
@@ -13,11 +22,55 @@ import javax.ws.rs.core.MediaType;
 @Path("/webapp")
 public class WebAppRestService {
 
+    // JSON of the default building
+    private static final SnapshotJsonCache defaultSnapshotJson = new SnapshotJsonCache();
+
+    private final ElevatorModel model;
+    private final SnapshotJsonCache snapshotJson;
+
+    public WebAppRestService() {
+        this(ElevatorModel.getInstance(), defaultSnapshotJson);
+    }
+
+    /**
+     * Routes of one building, see {@link BuildingRestService}.
+     */
+    WebAppRestService(ElevatorModel model, SnapshotJsonCache snapshotJson) {
+        this.model = model;
+        this.snapshotJson = snapshotJson;
+    }
+
+    /**
+     * Snapshot of the last tick, tagged with its version so that a poller
+     * gets a 304 until the next tick.
+     */
     @GET
     @Path("/model")
     @Produces(MediaType.APPLICATION_JSON)
-    public ElevatorModel model() {
-        return ElevatorModel.getInstance();
+    public Response model(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) throws IOException {
+        SnapshotJsonCache.SerializedSnapshot snapshot = snapshotJson.jsonOf(model.getPublishedSnapshot());
+        EntityTag tag = new EntityTag(String.valueOf(snapshot.version));
+        if ( tag.toString().equals(ifNoneMatch) ){
+            return Response.notModified(tag).build();
+        }
+        return Response.ok(snapshot.json).tag(tag).build();
+    }
+
+    @GET
+    @Path("/ingestion")
+    @Produces(MediaType.APPLICATION_JSON)
+    public EventIngestion ingestion() {
+        return model.getIngestion();
+    }
+
+    /**
+     * Ticks each cabin needs to answer a call at the floor, as planned by its route.
+     */
+    @GET
+    @Path("/eta")
+    @Produces(MediaType.APPLICATION_JSON)
+    public List<Integer> eta(@QueryParam("floor") int floor, @QueryParam("direction") Direction direction) {
+        return model.estimatedArrivals(floor, direction);
     }
 
 }
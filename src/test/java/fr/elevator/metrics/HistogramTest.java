@@ -0,0 +1,79 @@
+package fr.elevator.metrics;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class HistogramTest {
+
+    @Test
+    public void should_count_values_in_their_bucket(){
+        Histogram histogram = new Histogram(1, 5, 10);
+
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(4);
+        histogram.record(10);
+        histogram.record(11);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.countAt(0)).isEqualTo(2);
+        assertThat(snapshot.countAt(1)).isEqualTo(1);
+        assertThat(snapshot.countAt(2)).isEqualTo(1);
+        assertThat(snapshot.countAt(3)).isEqualTo(1);
+        assertThat(snapshot.upperBound(3)).isEqualTo(Long.MAX_VALUE);
+        assertThat(snapshot.count()).isEqualTo(5);
+        assertThat(snapshot.sum()).isEqualTo(26);
+        assertThat(snapshot.quantile(0.4)).isEqualTo(1);
+        assertThat(snapshot.quantile(0.5)).isEqualTo(5);
+        assertThat(snapshot.quantile(0.8)).isEqualTo(10);
+    }
+
+    @Test
+    public void should_build_one_two_five_bounds(){
+        assertThat(Histogram.oneTwoFive(1, 100)).isEqualTo(new long[]{1, 2, 5, 10, 20, 50, 100});
+    }
+
+    @Test
+    public void should_not_lose_counts_of_concurrent_threads() throws Exception {
+        final StripedCounter counter = new StripedCounter();
+        final Histogram histogram = new Histogram(10);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        for (int t = 0; t < 4; t++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        counter.increment();
+                        histogram.record(i % 20);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertThat(counter.sum()).isEqualTo(40000);
+        assertThat(histogram.snapshot().count()).isEqualTo(40000);
+        assertThat(histogram.snapshot().countAt(0)).isEqualTo(22000);
+    }
+
+    @Test
+    public void should_replace_the_sum_of_a_striped_counter(){
+        StripedCounter counter = new StripedCounter();
+        counter.add(5);
+
+        counter.set(0);
+        counter.increment();
+
+        assertThat(counter.sum()).isEqualTo(1);
+    }
+}
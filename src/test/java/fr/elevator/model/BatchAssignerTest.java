@@ -0,0 +1,81 @@
+package fr.elevator.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class BatchAssignerTest {
+
+    private final BatchAssigner assigner = new BatchAssigner(TimeUnit.SECONDS.toNanos(1));
+
+    @Test
+    public void should_move_waiting_user_to_strictly_better_cabin(){
+        // Given
+        CabinModel farCabin = new CabinModel(0, 10, 5);
+        farCabin.setCurrentFloor(10);
+        CabinModel nearCabin = new CabinModel(0, 10, 5);
+        nearCabin.setCurrentFloor(3);
+
+        User user = new User(2, Direction.UP);
+        farCabin.getUsersWaitingCabin().add(user);
+
+        // When
+        List<User> withoutCabin = assigner.reassign(ImmutableList.of(farCabin, nearCabin), Lists.<User>newArrayList());
+
+        // Then
+        assertThat(withoutCabin).isEmpty();
+        assertThat(farCabin.getUsersWaitingCabin()).isEmpty();
+        assertThat(nearCabin.getUsersWaitingCabin()).containsOnly(user);
+    }
+
+    @Test
+    public void should_not_move_user_when_cabins_are_as_good(){
+        // Given
+        CabinModel firstCabin = new CabinModel(0, 10, 5);
+        firstCabin.setCurrentFloor(4);
+        CabinModel secondCabin = new CabinModel(0, 10, 5);
+        secondCabin.setCurrentFloor(4);
+
+        User user = new User(2, Direction.UP);
+        secondCabin.getUsersWaitingCabin().add(user);
+
+        // When
+        assigner.reassign(ImmutableList.of(firstCabin, secondCabin), Lists.<User>newArrayList());
+
+        // Then
+        assertThat(secondCabin.getUsersWaitingCabin()).containsOnly(user);
+    }
+
+    @Test
+    public void should_not_give_more_users_than_spare_seats(){
+        // Given
+        CabinModel nearCabin = new CabinModel(0, 10, 2);
+        nearCabin.setCurrentFloor(2);
+        User rider = new User(0, Direction.UP);
+        rider.setFloorToGo(2);
+        nearCabin.getUsersInCabin().add(rider);
+
+        CabinModel farCabin = new CabinModel(0, 10, 5);
+        farCabin.setCurrentFloor(8);
+
+        List<User> withoutCabin = Lists.newArrayList(new User(2, Direction.UP), new User(3, Direction.UP));
+
+        // When
+        List<User> stillWithoutCabin = assigner.reassign(ImmutableList.of(nearCabin, farCabin), withoutCabin);
+
+        // Then
+        assertThat(stillWithoutCabin).isEmpty();
+        assertThat(nearCabin.getUsersWaitingCabin()).hasSize(1);
+        assertThat(farCabin.getUsersWaitingCabin()).hasSize(1);
+    }
+}
@@ -0,0 +1,67 @@
+package fr.elevator.model;
+
+import fr.elevator.common.Direction;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class BuildingRegistryTest {
+
+    private final ElevatorModel defaultBuilding = ElevatorModel.newInstance();
+
+    private final BuildingRegistry registry = new BuildingRegistry(defaultBuilding, 3);
+
+    @Test
+    public void should_keep_buildings_independent(){
+        ElevatorModel first = registry.getOrCreate("first");
+        ElevatorModel second = registry.getOrCreate("second");
+
+        first.setCabinCount(3);
+        first.reset();
+        first.callAtFloor(2, Direction.UP);
+
+        assertThat(registry.get("first")).isSameAs(first);
+        assertThat(registry.get(BuildingRegistry.DEFAULT_BUILDING)).isSameAs(defaultBuilding);
+        assertThat(first.getAllUsers()).isEqualTo(1);
+        assertThat(second.getAllUsers()).isEqualTo(0);
+
+        // Cabin ids are counted per building
+        assertThat(first.getCabinsList().get(2).getId()).isEqualTo(2);
+        assertThat(second.getCabinsList().get(0).getId()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_not_create_more_buildings_than_its_maximum(){
+        registry.getOrCreate("first");
+        registry.getOrCreate("second");
+
+        assertThat(registry.getOrCreate("third")).isNull();
+        assertThat(registry.getOrCreate("first")).isNotNull();
+
+        registry.remove("first");
+        assertThat(registry.getOrCreate("third")).isNotNull();
+    }
+
+    @Test
+    public void should_only_create_buildings_explicitly(){
+        assertThat(registry.get("unknown")).isNull();
+        assertThat(registry.getBuildings().keySet()).containsOnly(BuildingRegistry.DEFAULT_BUILDING);
+
+        ElevatorModel created = registry.getOrCreate("unknown");
+
+        assertThat(registry.get("unknown")).isSameAs(created);
+        assertThat(registry.getOrCreate("unknown")).isSameAs(created);
+    }
+
+    @Test
+    public void should_not_remove_default_building(){
+        registry.getOrCreate("first");
+
+        assertThat(registry.remove("first")).isTrue();
+        assertThat(registry.remove(BuildingRegistry.DEFAULT_BUILDING)).isFalse();
+        assertThat(registry.getBuildings().keySet()).containsOnly(BuildingRegistry.DEFAULT_BUILDING);
+    }
+}
@@ -5,6 +5,8 @@ import fr.elevator.common.Direction;
 import fr.elevator.common.User;
 import org.junit.Test;
 
+import java.util.Iterator;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 /**
@@ -237,4 +239,95 @@ public class CabinModelTest {
         assertThat(userGoingDown).isNotNull();
     }
 
+    @Test
+    public void should_not_find_user_removed_from_waiting_list() throws Exception {
+        // GIVEN
+        CabinModel cabinModel = new CabinModel(0, 5, 5);
+        cabinModel.setCurrentFloor(2);
+
+        User user = new User(2, Direction.DOWN);
+        cabinModel.getUsersWaitingCabin().add(user);
+        Iterator<User> iterator = cabinModel.getUsersWaitingCabin().iterator();
+        iterator.next();
+        iterator.remove();
+
+        // When
+        User userGoingDown = cabinModel.findUserCallingFromWithDirection(Direction.DOWN);
+
+        // Then
+        assertThat(userGoingDown).isNull();
+    }
+
+    @Test
+    public void should_find_first_user_that_can_leave_on_current_floor() throws Exception {
+        // GIVEN
+        CabinModel cabinModel = new CabinModel(0, 5, 5);
+        cabinModel.setCurrentFloor(3);
+
+        User first = new User(0, Direction.UP);
+        first.setFloorToGo(3);
+        User second = new User(1, Direction.UP);
+        second.setFloorToGo(3);
+        User other = new User(1, Direction.UP);
+        other.setFloorToGo(4);
+
+        cabinModel.getUsersInCabin().add(other);
+        cabinModel.getUsersInCabin().add(first);
+        cabinModel.getUsersInCabin().add(second);
+
+        // When
+        User userThatCanLeave = cabinModel.findUserThatCanLeave();
+
+        // Then
+        assertThat(userThatCanLeave).isSameAs(first);
+        assertThat(cabinModel.isThereUserInElevatorDirection(Direction.UP)).isTrue();
+        assertThat(cabinModel.isThereUserInElevatorDirection(Direction.DOWN)).isFalse();
+    }
+
+    @Test
+    public void should_keep_cabin_aggregates_when_users_leave() throws Exception {
+        // GIVEN
+        CabinModel cabinModel = new CabinModel(0, 5, 5);
+        cabinModel.setCurrentFloor(2);
+
+        User userInCabin = new User(0, Direction.UP);
+        userInCabin.setFloorToGo(5);
+        userInCabin.setStillCanScore(10D);
+        User userWaiting = new User(1, Direction.UP);
+
+        cabinModel.getUsersInCabin().add(userInCabin);
+        cabinModel.getUsersWaitingCabin().add(userWaiting);
+
+        assertThat(cabinModel.isThereUsersWithScore()).isTrue();
+        assertThat(cabinModel.farthestPendingFloor(Direction.UP)).isEqualTo(5);
+        assertThat(cabinModel.farthestPendingFloor(Direction.DOWN)).isEqualTo(1);
+
+        // When
+        cabinModel.getUsersInCabin().remove(userInCabin);
+
+        // Then
+        assertThat(cabinModel.isThereUsersWithScore()).isFalse();
+        assertThat(cabinModel.farthestPendingFloor(Direction.UP)).isEqualTo(1);
+        assertThat(cabinModel.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void should_move_towards_waiting_users_above_tuned_score() throws Exception {
+        // GIVEN
+        CabinModel cabinModel = new CabinModel(0, 5, 5);
+        cabinModel.setCurrentFloor(2);
+
+        User userWaiting = new User(4, Direction.UP);
+        userWaiting.setStillCanScore(6D);
+        cabinModel.getUsersWaitingCabin().add(userWaiting);
+
+        assertThat(cabinModel.isThereUserInElevatorDirection(Direction.UP)).isTrue();
+
+        // When
+        cabinModel.setTuning(CabinTuning.DEFAULT.withWaitingMinScore(8));
+
+        // Then
+        assertThat(cabinModel.isThereUserInElevatorDirection(Direction.UP)).isFalse();
+    }
+
 }
@@ -0,0 +1,91 @@
+package fr.elevator.model;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class CabinRouteTest {
+
+    @Test
+    public void should_keep_stops_of_each_direction_in_sweep_order(){
+        // Given
+        CabinModel cabin = lookCabinAt(5);
+        cabin.getUsersInCabin().add(rider(5, 8));
+        cabin.getUsersWaitingCabin().add(new User(2, Direction.UP));
+        cabin.getUsersWaitingCabin().add(new User(7, Direction.DOWN));
+        User leaving = new User(3, Direction.DOWN);
+        cabin.getUsersWaitingCabin().add(leaving);
+
+        // When
+        cabin.getUsersWaitingCabin().remove(leaving);
+
+        // Then
+        assertThat(cabin.plannedStops(Direction.UP)).containsExactly(2, 8);
+        assertThat(cabin.plannedStops(Direction.DOWN)).containsExactly(8, 7);
+    }
+
+    @Test
+    public void should_serve_stops_ahead_before_turning_back(){
+        // Given
+        CabinModel cabin = lookCabinAt(5);
+        cabin.getUsersInCabin().add(rider(5, 7));
+        cabin.getUsersWaitingCabin().add(new User(4, Direction.DOWN));
+
+        // When / Then
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.UP);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.UP);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.OPEN_UP);
+        cabin.getUsersInCabin().clear();
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.CLOSE);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.DOWN);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.DOWN);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.DOWN);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.OPEN_DOWN);
+        assertThat(cabin.getCurrentFloor()).isEqualTo(4);
+    }
+
+    @Test
+    public void should_do_nothing_without_stops(){
+        // Given
+        CabinModel cabin = lookCabinAt(5);
+
+        // When / Then
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.NOTHING);
+    }
+
+    @Test
+    public void should_estimate_arrival_along_the_route(){
+        // Given
+        CabinModel cabin = lookCabinAt(5);
+        cabin.getUsersInCabin().add(rider(5, 8));
+
+        // When / Then
+        // Up to 6 without stop
+        assertThat(cabin.estimatedArrival(6, Direction.UP)).isEqualTo(1);
+        // Up to 8, stop, then down to 6
+        assertThat(cabin.estimatedArrival(6, Direction.DOWN)).isEqualTo(3 + CabinRoute.STOP_TICKS + 2);
+        // Up to 8, stop, then down to 2
+        assertThat(cabin.estimatedArrival(2, Direction.UP)).isEqualTo(3 + CabinRoute.STOP_TICKS + 6);
+        // Empty cabin goes straight
+        assertThat(lookCabinAt(5).estimatedArrival(0, Direction.UP)).isEqualTo(5);
+    }
+
+    private static CabinModel lookCabinAt(int floor) {
+        CabinModel cabin = new CabinModel(0, 0, 10, 5);
+        cabin.setCommandPolicy(CommandPolicy.LOOK);
+        cabin.setCurrentFloor(floor);
+        return cabin;
+    }
+
+    private static User rider(int from, int to) {
+        User user = new User(from, to > from ? Direction.UP : Direction.DOWN);
+        user.setFloorToGo(to);
+        return user;
+    }
+}
@@ -0,0 +1,113 @@
+package fr.elevator.model;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class CommandSearchTest {
+
+    @Test
+    public void should_go_and_drop_rider_at_its_floor(){
+        // Given
+        CabinModel cabin = searchingCabinAt(5);
+        cabin.getUsersInCabin().add(rider(5, 7));
+
+        // When / Then
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.UP);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.UP);
+        assertThat(cabin.findNextCommand()).isIn(CabinCommand.OPEN_UP, CabinCommand.OPEN_DOWN);
+        cabin.getUsersInCabin().clear();
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.CLOSE);
+        assertThat(cabin.getCurrentFloor()).isEqualTo(7);
+    }
+
+    @Test
+    public void should_serve_nearest_users_first_whatever_the_direction(){
+        // Given
+        CabinModel cabin = searchingCabinAt(5);
+        cabin.getUsersInCabin().add(rider(8, 4));
+        cabin.getUsersWaitingCabin().add(new User(9, Direction.DOWN));
+
+        // When
+        CabinCommand command = cabin.findNextCommand();
+
+        // Then
+        assertThat(command).isEqualTo(CabinCommand.DOWN);
+        assertThat(cabin.getElevatorDirection()).isEqualTo(Direction.DOWN);
+    }
+
+    @Test
+    public void should_pick_up_user_waiting_at_cabin_floor(){
+        // Given
+        CabinModel cabin = searchingCabinAt(5);
+        cabin.getUsersWaitingCabin().add(new User(5, Direction.DOWN));
+
+        // When
+        CabinCommand command = cabin.findNextCommand();
+
+        // Then
+        assertThat(command).isEqualTo(CabinCommand.OPEN_DOWN);
+        assertThat(cabin.isDoorOpened()).isTrue();
+    }
+
+    @Test
+    public void should_follow_route_when_no_time_is_left(){
+        // Given
+        CabinModel cabin = searchingCabinAt(5);
+        cabin.getUsersInCabin().add(rider(5, 2));
+        cabin.searchWithin(System.nanoTime() - 1, CabinModel.DEFAULT_SEARCH_SLICE_NANOS);
+
+        // When
+        CabinCommand command = cabin.findNextCommand();
+
+        // Then
+        assertThat(command).isEqualTo(CabinCommand.DOWN);
+        assertThat(cabin.getCurrentFloor()).isEqualTo(4);
+    }
+
+    @Test
+    public void should_search_commands_of_every_cabin_within_the_tick_budget(){
+        // Given
+        ElevatorModel model = ElevatorModel.newInstance();
+        model.setLowerFloor(0);
+        model.setHigherFloor(19);
+        model.setCabinCount(8);
+        model.setCommandPolicy(CommandPolicy.SEARCH);
+        model.setSearchBudgetMicros(500);
+        model.reset();
+        for (int floor = 1; floor < 19; floor += 2) {
+            model.callAtFloor(floor, Direction.UP);
+            model.callAtFloor(floor + 1, Direction.DOWN);
+        }
+
+        // When
+        model.findNextCommand();
+        model.findNextCommand();
+
+        // Then
+        assertThat(model.findNextCommand()).hasSize(8).excludes((Object) null);
+    }
+
+    private static CabinModel searchingCabinAt(int floor) {
+        CabinModel cabin = new CabinModel(0, 0, 10, 5);
+        cabin.setCommandPolicy(CommandPolicy.SEARCH);
+        // Room enough for a cold JVM to complete the search
+        cabin.searchWithin(CabinModel.NO_DEADLINE, TimeUnit.SECONDS.toNanos(10));
+        cabin.setCurrentFloor(floor);
+        return cabin;
+    }
+
+    private static User rider(int from, int to) {
+        User user = new User(from, to > from ? Direction.UP : Direction.DOWN);
+        user.setFloorToGo(to);
+        return user;
+    }
+}
@@ -5,6 +5,10 @@ import fr.elevator.common.Direction;
 import fr.elevator.common.User;
 import org.junit.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 import static org.fest.assertions.Assertions.assertThat;
 
 /**
@@ -102,6 +106,156 @@ public class ElevatorModelTest {
         assertThat(nearestCabinForUser).isEqualTo(firstCabin);
     }
 
+    @Test
+    public void should_assign_waiting_user_on_next_command_when_cabin_becomes_eligible(){
+        // Given
+        ElevatorModel model = createElevator(1, 1, 0, 10);
+
+        CabinModel cabin = Iterables.get(model.getCabinsList(), 0);
+        User userInCabin = createUserWithFloorToGo(0, 10, Direction.UP);
+        cabin.getUsersInCabin().add(userInCabin);
+
+        model.callAtFloor(5, Direction.DOWN);
+        model.findNextCommand();
+        assertThat(model.getUsersWaitingElevator()).hasSize(1);
+        User waitingUser = model.getUsersWaitingElevator().get(0);
+
+        // When
+        cabin.getUsersInCabin().remove(userInCabin);
+        model.findNextCommand();
+
+        // Then
+        assertThat(model.getUsersWaitingElevator()).isEmpty();
+        assertThat(cabin.getUsersWaitingCabin()).containsOnly(waitingUser);
+        assertThat(waitingUser.getWaitTime()).isEqualTo(3);
+    }
+
+
+    @Test
+    public void should_take_into_account_concurrent_calls_on_next_command() throws Exception {
+        // Given
+        final ElevatorModel model = createElevator(2, 50, 0, 10);
+        int threads = 4;
+        final int callsPerThread = 250;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When
+        for (int t = 0; t < threads; t++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < callsPerThread; i++) {
+                        model.callAtFloor(i % 10, Direction.UP);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        model.findNextCommand();
+
+        // Then
+        int assignedUsers = model.getUsersWaitingElevator().size();
+        for (CabinModel cabin : model.getCabinsList()) {
+            assignedUsers += cabin.getUsersWaitingCabin().size();
+        }
+        assertThat(model.getAllUsers()).isEqualTo(threads * callsPerThread);
+        assertThat(assignedUsers).isEqualTo(threads * callsPerThread);
+    }
+
+    @Test
+    public void should_find_user_who_called_since_last_tick_when_going_to_a_floor(){
+        // Given
+        ElevatorModel model = createElevator(1, 10, 0, 10);
+        model.callAtFloor(0, Direction.UP);
+
+        // When
+        model.floorToGo(5, 0);
+
+        // Then
+        CabinModel cabin = model.getCabinsList().get(0);
+        assertThat(model.getAbnormalUserEntring()).isEqualTo(0);
+        assertThat(cabin.getUsersInCabin()).hasSize(1);
+        assertThat(cabin.getUsersInCabin().get(0).floorToGo()).isEqualTo(5);
+    }
+
+    @Test
+    public void should_publish_snapshot_of_the_tick_when_tick_ends(){
+        // Given
+        ElevatorModel model = createElevator(1, 10, 0, 10);
+        ElevatorModelSnapshot beforeTick = model.getPublishedSnapshot();
+        model.callAtFloor(4, Direction.UP);
+
+        // When
+        model.findNextCommand();
+
+        // Then
+        ElevatorModelSnapshot afterTick = model.getPublishedSnapshot();
+        assertThat(afterTick.getVersion()).isEqualTo(beforeTick.getVersion() + 1);
+        assertThat(afterTick.getCabinsList().get(0).getUsersWaitingCabin()).hasSize(1);
+        assertThat(beforeTick.getCabinsList().get(0).getUsersWaitingCabin()).isEmpty();
+
+        // Calls between ticks are only seen by the next tick's snapshot
+        model.callAtFloor(6, Direction.UP);
+        assertThat(model.getPublishedSnapshot()).isSameAs(afterTick);
+    }
+
+    @Test
+    public void should_never_publish_an_older_snapshot_when_ticks_and_resets_race() throws InterruptedException {
+        // Given
+        final ElevatorModel model = createElevator(4, 10, 0, 20);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    model.callAtFloor(i % 20, Direction.UP);
+                    model.findNextCommand();
+                }
+            }
+        });
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 200; i++) {
+                    model.reset();
+                }
+            }
+        });
+        executor.shutdown();
+
+        // When
+        long lastVersion = 0;
+        boolean wentBack = false;
+        while ( !executor.isTerminated() ){
+            long version = model.getPublishedSnapshot().getVersion();
+            wentBack |= version < lastVersion;
+            lastVersion = version;
+        }
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+
+        // Then
+        assertThat(wentBack).isFalse();
+        assertThat(model.getPublishedSnapshot().getVersion()).isGreaterThanOrEqualTo(lastVersion);
+    }
+
+    @Test
+    public void should_compute_same_commands_in_cabin_order_when_cabins_are_computed_concurrently(){
+        // Given
+        ElevatorModel sequential = createIndependentElevator(40, 0);
+        ElevatorModel parallel = createIndependentElevator(40, 1);
+
+        for (int tick = 0; tick < 30; tick++) {
+            // When
+            for (ElevatorModel model : new ElevatorModel[]{sequential, parallel}) {
+                model.callAtFloor((tick * 7) % 20, Direction.UP);
+                model.callAtFloor(20 - (tick * 3) % 20, Direction.DOWN);
+            }
+
+            // Then
+            assertThat(parallel.findNextCommand()).isEqualTo(sequential.findNextCommand());
+        }
+    }
 
     /*
     @Test
@@ -218,6 +372,18 @@ public class ElevatorModelTest {
         return instance;
     }
 
+    private ElevatorModel createIndependentElevator(int cabinCount, int parallelCabinThreshold){
+        ElevatorModel instance = ElevatorModel.newInstance();
+        instance.setHigherFloor(20);
+        instance.setCabinSize(5);
+        instance.setCabinCount(cabinCount);
+        instance.setParallelCabinThreshold(parallelCabinThreshold);
+
+        instance.reset();
+
+        return instance;
+    }
+
     private User createUser(int comingFrom, Direction direction) {
         return new User(comingFrom,direction);
     }
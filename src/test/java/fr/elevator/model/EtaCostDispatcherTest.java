@@ -0,0 +1,75 @@
+package fr.elevator.model;
+
+import com.google.common.collect.ImmutableList;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class EtaCostDispatcherTest {
+
+    private final EtaCostDispatcher dispatcher = new EtaCostDispatcher();
+
+    @Test
+    public void should_estimate_distance_for_empty_cabin(){
+        // Given
+        CabinModel cabin = new CabinModel(0, 10, 5);
+        cabin.setCurrentFloor(2);
+
+        // When
+        EtaCostDispatcher.RouteEstimate estimate = dispatcher.estimatePickUp(cabin, 7, Direction.DOWN);
+
+        // Then
+        assertThat(estimate.ticks).isEqualTo(5);
+        assertThat(estimate.newStop).isTrue();
+    }
+
+    @Test
+    public void should_pick_up_user_going_the_other_way_on_the_way_back(){
+        // Given
+        CabinModel cabin = new CabinModel(0, 10, 5);
+        cabin.setCurrentFloor(2);
+        cabin.setElevatorDirection(Direction.UP);
+        cabin.getUsersInCabin().add(userGoingTo(0, 8));
+
+        // When
+        EtaCostDispatcher.RouteEstimate estimate = dispatcher.estimatePickUp(cabin, 5, Direction.DOWN);
+
+        // Then : 6 floors up, stop at 8, 3 floors down
+        assertThat(estimate.ticks).isEqualTo(6 + EtaCostDispatcher.STOP_TICKS + 3);
+        assertThat(estimate.ridersAfter).isEqualTo(0);
+    }
+
+    @Test
+    public void should_prefer_cabin_passing_by_to_nearest_cabin_going_away(){
+        // Given
+        ElevatorModel model = ElevatorModel.getInstance();
+
+        CabinModel goingAway = new CabinModel(0, 10, 5);
+        goingAway.setCurrentFloor(5);
+        goingAway.setElevatorDirection(Direction.UP);
+        goingAway.getUsersInCabin().add(userGoingTo(0, 10));
+
+        CabinModel passingBy = new CabinModel(0, 10, 5);
+        passingBy.setCurrentFloor(1);
+        passingBy.setElevatorDirection(Direction.UP);
+        passingBy.getUsersInCabin().add(userGoingTo(0, 9));
+
+        // When
+        CabinModel cabin = dispatcher.findCabinForUser(new User(4, Direction.UP), ImmutableList.of(goingAway, passingBy), model);
+
+        // Then
+        assertThat(cabin).isSameAs(passingBy);
+    }
+
+    private User userGoingTo(int comingFrom, int floorToGo) {
+        User user = new User(comingFrom, Direction.UP);
+        user.setFloorToGo(floorToGo);
+        user.setStillCanScore(10D);
+        return user;
+    }
+}
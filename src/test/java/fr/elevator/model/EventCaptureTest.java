@@ -0,0 +1,159 @@
+package fr.elevator.model;
+
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.simulation.Simulation;
+import fr.elevator.simulation.TrafficProfile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class EventCaptureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void should_replay_a_capture_with_the_same_commands() throws IOException {
+        // Given
+        ElevatorModel captured = ElevatorModel.newInstance();
+        EventCapture capture = EventCapture.start(folder.newFolder(), captured);
+        simulation().run(captured, 300);
+        capture.close();
+
+        // When
+        ReplayReport report = EventCapture.replay(capture.getFile(), ElevatorModel.newInstance());
+
+        // Then
+        assertThat(report.getTicks()).isEqualTo(300);
+        assertThat(report.isIdentical()).isTrue();
+        assertThat(report.getFirstMismatchTick()).isEqualTo(-1);
+        assertThat(report.getScore()).isEqualTo(captured.getScore());
+    }
+
+    @Test
+    public void should_report_first_tick_whose_commands_differ() throws IOException {
+        // Given
+        ElevatorModel captured = ElevatorModel.newInstance();
+        EventCapture capture = EventCapture.start(folder.newFolder(), captured);
+        simulation().run(captured, 300);
+        capture.close();
+
+        // When
+        ReplayReport report = EventCapture.replay(capture.getFile(), ElevatorModel.newInstance(), DispatcherType.ETA);
+
+        // Then
+        assertThat(report.isIdentical()).isFalse();
+        assertThat(report.getFirstMismatchTick()).isGreaterThan(0);
+        assertThat(report.getFirstReplayed()).isNotEqualTo(report.getFirstCaptured());
+    }
+
+    @Test
+    public void should_replay_a_game_with_the_settings_it_was_captured_with() throws IOException {
+        // Given
+        Simulation simulation = simulation();
+        simulation.setDispatcher(DispatcherType.ETA.create());
+        simulation.setCommandPolicy(CommandPolicy.LOOK);
+        simulation.setParking(true);
+        simulation.setTuning(CabinTuning.DEFAULT.withRiderMinScore(0));
+        ElevatorModel captured = ElevatorModel.newInstance();
+        EventCapture capture = EventCapture.start(folder.newFolder(), captured);
+        simulation.run(captured, 300);
+        capture.close();
+
+        // When
+        ElevatorModel replayed = ElevatorModel.newInstance();
+        ReplayReport report = EventCapture.replay(capture.getFile(), replayed);
+
+        // Then
+        assertThat(report.isIdentical()).isTrue();
+        assertThat(replayed.getDispatcher()).isInstanceOf(EtaCostDispatcher.class);
+        assertThat(replayed.getCommandPolicy()).isEqualTo(CommandPolicy.LOOK);
+        assertThat(replayed.isParking()).isTrue();
+        assertThat(replayed.getTuning()).isEqualTo(CabinTuning.DEFAULT.withRiderMinScore(0));
+    }
+
+    @Test
+    public void should_report_events_out_of_the_building_as_abnormal() throws IOException {
+        // Given
+        ElevatorModel captured = ElevatorModel.newInstance();
+        EventCapture capture = EventCapture.start(folder.newFolder(), captured);
+        simulation().run(captured, 10);
+        int abnormalEntring = captured.getAbnormalUserEntring();
+        int abnormalExiting = captured.getAbnormalUserExiting();
+        capture.append(ModelEvent.go(3, 99));
+        capture.append(ModelEvent.exited(99));
+        capture.close();
+
+        // When
+        ReplayReport report = EventCapture.replay(capture.getFile(), ElevatorModel.newInstance());
+
+        // Then
+        assertThat(report.getTicks()).isEqualTo(10);
+        assertThat(report.getAbnormalUserEntring()).isEqualTo(abnormalEntring + 1);
+        assertThat(report.getAbnormalUserExiting()).isEqualTo(abnormalExiting + 1);
+    }
+
+    @Test
+    public void should_start_a_new_file_on_each_reset() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        ElevatorModel captured = ElevatorModel.newInstance();
+        EventCapture capture = EventCapture.start(directory, captured);
+
+        // When
+        simulation().run(captured, 10);
+        File firstGame = capture.getFile();
+        simulation().run(captured, 10);
+        capture.close();
+
+        // Then
+        assertThat(capture.getFile()).isNotEqualTo(firstGame);
+        assertThat(directory.listFiles()).hasSize(2);
+        assertThat(EventCapture.replay(firstGame, ElevatorModel.newInstance()).getTicks()).isEqualTo(10);
+    }
+
+    @Test
+    public void should_compare_the_commands_of_overlapping_ticks_with_their_own_tick() throws IOException {
+        // Given
+        ElevatorModel captured = ElevatorModel.newInstance();
+        EventCapture capture = EventCapture.start(folder.newFolder(), captured);
+        captured.reset();
+        capture.append(ModelEvent.call(0, Direction.UP));
+        // Commands of the two ticks, computed one after the other
+        ElevatorModel ticked = ElevatorModel.newInstance();
+        ticked.reset();
+        ticked.callAtFloor(0, Direction.UP);
+        List<CabinCommand> firstCommands = ticked.findNextCommand();
+        List<CabinCommand> secondCommands = ticked.findNextCommand();
+
+        // When
+        int firstTick = capture.tick();
+        int secondTick = capture.tick();
+        capture.commands(secondTick, secondCommands);
+        capture.commands(firstTick, firstCommands);
+        capture.close();
+        ReplayReport report = EventCapture.replay(capture.getFile(), ElevatorModel.newInstance());
+
+        // Then
+        assertThat(firstCommands).isNotEqualTo(secondCommands);
+        assertThat(report.getTicks()).isEqualTo(2);
+        assertThat(report.isIdentical()).isTrue();
+    }
+
+    private static Simulation simulation() {
+        Simulation simulation = new Simulation();
+        simulation.setProfile(TrafficProfile.UP_PEAK);
+        simulation.setCabinCount(3);
+        return simulation;
+    }
+}
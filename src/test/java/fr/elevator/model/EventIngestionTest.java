@@ -0,0 +1,193 @@
+package fr.elevator.model;
+
+import com.google.common.collect.Lists;
+import fr.elevator.common.Direction;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class EventIngestionTest {
+
+    @After
+    public void backToDirectMode() {
+        ElevatorModel.getInstance().getIngestion().configure(EventIngestion.Mode.DIRECT, EventIngestion.DEFAULT_CAPACITY, EventIngestion.OverflowPolicy.DRAIN);
+        ElevatorModel.getInstance().reset();
+    }
+
+    @Test
+    public void should_drain_events_in_order_until_queue_is_empty(){
+        // Given
+        ModelEventQueue queue = new ModelEventQueue(4);
+        assertThat(queue.offer(ModelEvent.go(3, 1))).isTrue();
+        assertThat(queue.offer(ModelEvent.call(-2, Direction.DOWN))).isTrue();
+        assertThat(queue.offer(ModelEvent.exited(7))).isTrue();
+        assertThat(queue.offer(ModelEvent.exited(8))).isTrue();
+        assertThat(queue.offer(ModelEvent.exited(9))).isFalse();
+
+        // When
+        final List<Long> events = Lists.newArrayList();
+        int drained = queue.drain(new ModelEventQueue.Consumer() {
+            @Override
+            public void accept(long event) {
+                events.add(event);
+            }
+        }, Integer.MAX_VALUE);
+
+        // Then
+        assertThat(drained).isEqualTo(4);
+        assertThat(queue.size()).isEqualTo(0);
+        assertThat(ModelEvent.type(events.get(0))).isEqualTo(ModelEvent.GO);
+        assertThat(ModelEvent.floor(events.get(0))).isEqualTo(3);
+        assertThat(ModelEvent.cabin(events.get(0))).isEqualTo(1);
+        assertThat(ModelEvent.floor(events.get(1))).isEqualTo(-2);
+        assertThat(ModelEvent.direction(events.get(1))).isEqualTo(Direction.DOWN);
+        assertThat(ModelEvent.cabin(events.get(3))).isEqualTo(8);
+        assertThat(queue.offer(ModelEvent.exited(9))).isTrue();
+    }
+
+    @Test
+    public void should_apply_queued_events_on_next_command(){
+        // Given
+        ElevatorModel model = ElevatorModel.getInstance();
+        EventIngestion ingestion = model.getIngestion();
+        ingestion.configure(EventIngestion.Mode.QUEUED, 16, EventIngestion.OverflowPolicy.REJECT);
+        model.reset();
+
+        // When
+        ingestion.call(0, Direction.UP);
+        ingestion.go(3, 0);
+
+        // Then
+        assertThat(model.getAllUsers()).isEqualTo(0);
+        assertThat(ingestion.getQueueDepth()).isEqualTo(2);
+
+        model.findNextCommand();
+
+        assertThat(model.getAllUsers()).isEqualTo(1);
+        assertThat(model.getCabinsList().get(0).getUsersInCabin()).hasSize(1);
+        assertThat(model.getAbnormalUserEntring()).isEqualTo(0);
+        assertThat(ingestion.getApplied()).isEqualTo(2);
+    }
+
+    @Test
+    public void should_reject_events_when_queue_is_full(){
+        // Given
+        ElevatorModel model = ElevatorModel.getInstance();
+        EventIngestion ingestion = model.getIngestion();
+        ingestion.configure(EventIngestion.Mode.QUEUED, 2, EventIngestion.OverflowPolicy.REJECT);
+        model.reset();
+
+        // When
+        ingestion.call(0, Direction.UP);
+        ingestion.call(1, Direction.UP);
+        boolean accepted = ingestion.call(2, Direction.UP);
+
+        // Then
+        assertThat(accepted).isFalse();
+        assertThat(ingestion.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_keep_events_order_when_caller_drains_full_queue(){
+        // Given
+        ElevatorModel model = ElevatorModel.getInstance();
+        EventIngestion ingestion = model.getIngestion();
+        ingestion.configure(EventIngestion.Mode.QUEUED, 2, EventIngestion.OverflowPolicy.DRAIN);
+        model.reset();
+
+        // When
+        ingestion.call(0, Direction.UP);
+        ingestion.call(0, Direction.UP);
+        boolean accepted = ingestion.go(4, 0);
+
+        // Then
+        assertThat(accepted).isTrue();
+        assertThat(ingestion.getDrainedByCaller()).isEqualTo(1);
+        assertThat(ingestion.getQueueDepth()).isEqualTo(0);
+        assertThat(model.getCabinsList().get(0).getUsersInCabin()).hasSize(1);
+    }
+
+    @Test
+    public void should_keep_draining_after_a_consumer_failure(){
+        // Given
+        ModelEventQueue queue = new ModelEventQueue(4);
+        queue.offer(ModelEvent.exited(1));
+        queue.offer(ModelEvent.exited(2));
+        try {
+            queue.drain(new ModelEventQueue.Consumer() {
+                @Override
+                public void accept(long event) {
+                    throw new IllegalStateException("bad event");
+                }
+            }, Integer.MAX_VALUE);
+        } catch (IllegalStateException expected) {
+        }
+
+        // When
+        queue.offer(ModelEvent.exited(3));
+        final List<Long> events = Lists.newArrayList();
+        queue.drain(new ModelEventQueue.Consumer() {
+            @Override
+            public void accept(long event) {
+                events.add(event);
+            }
+        }, Integer.MAX_VALUE);
+
+        // Then
+        assertThat(events).hasSize(2);
+        assertThat(ModelEvent.cabin(events.get(0))).isEqualTo(2);
+        assertThat(ModelEvent.cabin(events.get(1))).isEqualTo(3);
+        assertThat(queue.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_refuse_events_out_of_the_building_before_queuing_them(){
+        // Given
+        ElevatorModel model = ElevatorModel.getInstance();
+        EventIngestion ingestion = model.getIngestion();
+        ingestion.configure(EventIngestion.Mode.QUEUED, 16, EventIngestion.OverflowPolicy.REJECT);
+        model.reset();
+
+        // When
+        int refused = 0;
+        try {
+            ingestion.go(3, 99);
+        } catch (IllegalArgumentException e) {
+            refused++;
+        }
+        try {
+            ingestion.call(model.getHigherFloor() + 1, Direction.DOWN);
+        } catch (IllegalArgumentException e) {
+            refused++;
+        }
+
+        // Then
+        assertThat(refused).isEqualTo(2);
+        assertThat(ingestion.getQueueDepth()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_change_capacity_on_reset_only(){
+        // Given
+        ElevatorModel model = ElevatorModel.getInstance();
+        EventIngestion ingestion = model.getIngestion();
+        ingestion.configure(EventIngestion.Mode.QUEUED, 16, EventIngestion.OverflowPolicy.REJECT);
+        model.reset();
+        ingestion.call(0, Direction.UP);
+
+        // When
+        ingestion.configure(null, 64, null);
+
+        // Then
+        assertThat(ingestion.getCapacity()).isEqualTo(16);
+        assertThat(ingestion.getQueueDepth()).isEqualTo(1);
+        model.reset();
+        assertThat(ingestion.getCapacity()).isEqualTo(64);
+    }
+}
@@ -0,0 +1,168 @@
+package fr.elevator.model;
+
+import fr.elevator.simulation.Simulation;
+import fr.elevator.simulation.TrafficProfile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class EventJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void should_rebuild_the_model_from_its_journal_after_restart() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        ElevatorModel beforeRestart = ElevatorModel.newInstance();
+        EventJournal journal = EventJournal.open(directory, beforeRestart);
+        simulation().run(beforeRestart, 300);
+        journal.close();
+
+        // When
+        ElevatorModel afterRestart = ElevatorModel.newInstance();
+        EventJournal recovered = EventJournal.open(directory, afterRestart);
+        recovered.close();
+
+        // Then
+        assertThat(recovered.getRecoveredEvents()).isGreaterThan(300);
+        assertThat(afterRestart.getScore()).isGreaterThan(0D);
+        assertThat(stateOf(afterRestart)).isEqualTo(stateOf(beforeRestart));
+    }
+
+    @Test
+    public void should_compact_old_segments_into_a_snapshot_and_recover_from_it() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        ElevatorModel beforeRestart = ElevatorModel.newInstance();
+        EventJournal journal = EventJournal.open(directory, beforeRestart, 64, 1, 50);
+
+        // When
+        simulation().run(beforeRestart, 500);
+        journal.close();
+
+        // Then
+        assertThat(journal.getSnapshotSequence()).isGreaterThan(0);
+        assertThat(new File(directory, "snapshot-0.bin").exists()).isFalse();
+        assertThat(new File(directory, "journal-0.log").exists()).isFalse();
+
+        ElevatorModel afterRestart = ElevatorModel.newInstance();
+        EventJournal.open(directory, afterRestart).close();
+        assertThat(stateOf(afterRestart)).isEqualTo(stateOf(beforeRestart));
+    }
+
+    @Test
+    public void should_rebuild_a_game_with_the_settings_of_its_reset() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        Simulation simulation = simulation();
+        simulation.setDispatcher(DispatcherType.ETA.create());
+        simulation.setCommandPolicy(CommandPolicy.LOOK);
+        simulation.setParking(true);
+        simulation.setTuning(CabinTuning.DEFAULT.withWaitingMinScore(1));
+        ElevatorModel beforeRestart = ElevatorModel.newInstance();
+        EventJournal journal = EventJournal.open(directory, beforeRestart, 64, 1, 50);
+
+        // When
+        simulation.run(beforeRestart, 500);
+        journal.close();
+        ElevatorModel afterRestart = ElevatorModel.newInstance();
+        EventJournal.open(directory, afterRestart).close();
+
+        // Then
+        assertThat(journal.getSnapshotSequence()).isGreaterThan(0);
+        assertThat(afterRestart.getDispatcher()).isInstanceOf(EtaCostDispatcher.class);
+        assertThat(afterRestart.getCommandPolicy()).isEqualTo(CommandPolicy.LOOK);
+        assertThat(afterRestart.isParking()).isTrue();
+        assertThat(afterRestart.getTuning()).isEqualTo(CabinTuning.DEFAULT.withWaitingMinScore(1));
+        assertThat(stateOf(afterRestart)).isEqualTo(stateOf(beforeRestart));
+    }
+
+    @Test
+    public void should_continue_the_journal_of_a_recovered_model() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        ElevatorModel first = ElevatorModel.newInstance();
+        EventJournal.open(directory, first).close();
+        ElevatorModel second = ElevatorModel.newInstance();
+        EventJournal journal = EventJournal.open(directory, second);
+
+        // When
+        simulation().run(second, 100);
+        journal.close();
+
+        // Then
+        ElevatorModel third = ElevatorModel.newInstance();
+        EventJournal.open(directory, third).close();
+        assertThat(stateOf(third)).isEqualTo(stateOf(second));
+    }
+
+    @Test
+    public void should_skip_events_the_model_cannot_apply() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        ElevatorModel beforeRestart = ElevatorModel.newInstance();
+        EventJournal journal = EventJournal.open(directory, beforeRestart);
+        beforeRestart.floorToGo(3, 99);
+        // As written by a server that did not check the cabin, and an event the journal does not replay
+        journal.append(ModelEvent.exited(99));
+        journal.append(ModelEvent.commands(1, 2));
+        journal.close();
+
+        // When
+        ElevatorModel afterRestart = ElevatorModel.newInstance();
+        EventJournal recovered = EventJournal.open(directory, afterRestart);
+        recovered.close();
+
+        // Then
+        assertThat(beforeRestart.getAbnormalUserEntring()).isEqualTo(1);
+        assertThat(recovered.getRecoveredEvents()).isEqualTo(2);
+        assertThat(recovered.getSkippedEvents()).isEqualTo(1);
+        assertThat(afterRestart.getAbnormalUserEntring()).isEqualTo(0);
+        assertThat(afterRestart.getAbnormalUserExiting()).isEqualTo(1);
+    }
+
+    @Test
+    public void should_stop_journaling_and_keep_serving_when_a_segment_cannot_be_created() throws IOException {
+        // Given
+        File directory = folder.newFolder();
+        ElevatorModel model = ElevatorModel.newInstance();
+        EventJournal journal = EventJournal.open(directory, model, 64, 1, 1000);
+        for (File file : directory.listFiles()) {
+            assertThat(file.delete()).isTrue();
+        }
+        assertThat(directory.delete()).isTrue();
+
+        // When
+        simulation().run(model, 300);
+        journal.close();
+
+        // Then
+        assertThat(journal.isFailed()).isTrue();
+        assertThat(model.getAllUsers()).isGreaterThan(0);
+    }
+
+    private static Simulation simulation() {
+        Simulation simulation = new Simulation();
+        simulation.setProfile(TrafficProfile.LUNCH);
+        simulation.setCabinCount(3);
+        return simulation;
+    }
+
+    private static byte[] stateOf(ElevatorModel model) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ModelState.write(model, new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+}
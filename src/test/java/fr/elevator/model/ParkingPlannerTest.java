@@ -0,0 +1,108 @@
+package fr.elevator.model;
+
+import com.google.common.collect.ImmutableList;
+import fr.elevator.common.CabinCommand;
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class ParkingPlannerTest {
+
+    @Test
+    public void should_learn_calls_of_the_current_time_of_the_day(){
+        // Given
+        CallDemand demand = new CallDemand(0, 19, 100, 2);
+
+        // When
+        for (int tick = 0; tick < 200; tick++) {
+            if ( tick < 100 ) demand.called(0, Direction.UP);
+            else demand.called(10, Direction.DOWN);
+            demand.tickEnded();
+        }
+
+        // Then
+        assertThat(demand.slot()).isEqualTo(0);
+        assertThat(demand.rate(0, Direction.UP)).isGreaterThan(0.8);
+        assertThat(demand.expectedCalls(10)).isEqualTo(0D);
+
+        demand.restartDay();
+        assertThat(demand.expectedCalls(0)).isGreaterThan(0.8);
+    }
+
+    @Test
+    public void should_send_nearest_idle_cabin_to_busiest_floor(){
+        // Given
+        CallDemand demand = new CallDemand(0, 19, 1000, 1);
+        for (int tick = 0; tick < 100; tick++) {
+            demand.called(0, Direction.UP);
+            demand.called(0, Direction.UP);
+            demand.called(12, Direction.DOWN);
+            demand.tickEnded();
+        }
+
+        CabinModel high = cabinAt(0, 15);
+        CabinModel low = cabinAt(1, 3);
+        CabinModel busy = cabinAt(2, 1);
+        busy.getUsersInCabin().add(userGoingTo(1, 8));
+        List<CabinModel> cabins = ImmutableList.of(high, low, busy);
+
+        // When
+        ParkingPlanner.plan(cabins, demand);
+
+        // Then
+        assertThat(low.getParkingFloor()).isEqualTo(0);
+        assertThat(high.getParkingFloor()).isEqualTo(12);
+        assertThat(busy.getParkingFloor()).isEqualTo(CabinModel.NO_PARKING);
+    }
+
+    @Test
+    public void should_not_park_without_expected_calls(){
+        // Given
+        CabinModel cabin = cabinAt(0, 7);
+
+        // When
+        ParkingPlanner.plan(ImmutableList.of(cabin), new CallDemand(0, 19));
+
+        // Then
+        assertThat(cabin.getParkingFloor()).isEqualTo(CabinModel.NO_PARKING);
+        assertThat(cabin.findNextCommand()).isEqualTo(CabinCommand.NOTHING);
+    }
+
+    @Test
+    public void should_move_empty_cabin_to_its_parking_floor(){
+        // Given
+        CabinModel cabin = cabinAt(0, 7);
+        cabin.parkAt(5);
+
+        // When
+        CabinCommand first = cabin.findNextCommand();
+        CabinCommand second = cabin.findNextCommand();
+        CabinCommand third = cabin.findNextCommand();
+
+        // Then
+        assertThat(first).isEqualTo(CabinCommand.DOWN);
+        assertThat(second).isEqualTo(CabinCommand.DOWN);
+        assertThat(third).isEqualTo(CabinCommand.NOTHING);
+        assertThat(cabin.getCurrentFloor()).isEqualTo(5);
+    }
+
+    private static CabinModel cabinAt(int id, int floor) {
+        CabinModel cabin = new CabinModel(id, 0, 19, 10);
+        cabin.setCurrentFloor(floor);
+        return cabin;
+    }
+
+    private static User userGoingTo(int from, int to) {
+        User user = new User(from, Direction.UP);
+        user.setFloorToGo(to);
+        user.setStillCanScore(10D);
+        return user;
+    }
+}
@@ -0,0 +1,60 @@
+package fr.elevator.simulation;
+
+import fr.elevator.model.DispatcherType;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class SimulationTest {
+
+    @Test
+    public void should_deliver_passengers(){
+        // Given
+        Simulation simulation = new Simulation();
+        simulation.setProfile(TrafficProfile.LUNCH);
+        simulation.setArrivalRate(0.2);
+
+        // When
+        SimulationReport report = simulation.run(2000);
+
+        // Then
+        assertThat(report.getCalled()).isGreaterThan(0);
+        assertThat(report.getDelivered()).isGreaterThan(report.getCalled() / 2);
+        assertThat(report.getWaitTimes().getCount()).isEqualTo(report.getDelivered());
+        assertThat(report.getScore()).isGreaterThan(0);
+    }
+
+    @Test
+    public void should_give_same_report_for_same_seed(){
+        // Given
+        Simulation simulation = new Simulation();
+        simulation.setProfile(TrafficProfile.UP_PEAK);
+        simulation.setDispatcher(DispatcherType.ETA.create());
+
+        // When
+        SimulationReport first = simulation.run(1000);
+        SimulationReport second = simulation.run(1000);
+
+        // Then
+        assertThat(second.getDelivered()).isEqualTo(first.getDelivered());
+        assertThat(second.getScore()).isEqualTo(first.getScore());
+    }
+
+    @Test
+    public void should_compute_percentiles(){
+        // Given
+        Distribution distribution = new Distribution();
+        for (int i = 1; i <= 100; i++) {
+            distribution.record(i);
+        }
+
+        // Then
+        assertThat(distribution.percentile(50)).isEqualTo(50);
+        assertThat(distribution.percentile(99)).isEqualTo(99);
+        assertThat(distribution.getMax()).isEqualTo(100);
+        assertThat(distribution.getMean()).isEqualTo(50.5);
+    }
+}
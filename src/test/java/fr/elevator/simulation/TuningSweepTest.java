@@ -0,0 +1,45 @@
+package fr.elevator.simulation;
+
+import fr.elevator.model.CabinTuning;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class TuningSweepTest {
+
+    @Test
+    public void should_rank_every_tuning_best_score_first() throws Exception {
+        // Given
+        Simulation traffic = new Simulation();
+        traffic.setArrivalRate(0.3);
+        TuningSweep sweep = new TuningSweep(traffic);
+        sweep.setTicks(500);
+        sweep.setRuns(2);
+        sweep.setThreads(2);
+        List<CabinTuning> tunings = TuningSweep.grid(new double[]{0.5, 0.8}, new double[]{2}, new double[]{0, 4});
+
+        // When
+        List<TuningSweep.Result> results = sweep.run(tunings);
+
+        // Then
+        assertThat(results).hasSize(4);
+        for (int i = 1; i < results.size(); i++) {
+            assertThat(results.get(i).getScore()).isLessThanOrEqualTo(results.get(i - 1).getScore());
+        }
+        TuningSweep.Result again = sweep.evaluate(results.get(0).getTuning());
+        assertThat(again.getScore()).isEqualTo(results.get(0).getScore());
+    }
+
+    @Test
+    public void should_sweep_values_from_first_to_last(){
+        // Then
+        assertThat(TuningSweep.range(0.5, 1, 0.1)).isEqualTo(new double[]{0.5, 0.6, 0.7, 0.8, 0.9, 1});
+        assertThat(TuningSweep.range(4, 4, 1)).isEqualTo(new double[]{4});
+        assertThat(TuningSweep.grid(new double[]{0.8}, new double[]{2}, new double[]{4})).containsExactly(CabinTuning.DEFAULT);
+    }
+}
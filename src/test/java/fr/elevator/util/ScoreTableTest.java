@@ -0,0 +1,62 @@
+package fr.elevator.util;
+
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class ScoreTableTest {
+
+    @Test
+    public void should_give_same_score_as_formula(){
+        ScoreTable table = ScoreTable.forFloors(0, 9);
+
+        // Floors and times a bit outside of the tables too
+        for (int from = -2; from <= 11; from++) {
+            for (int current = -2; current <= 11; current++) {
+                for (int time = -3; time <= 60; time++) {
+                    User waiting = new User(from, Direction.UP);
+                    waiting.setWaitTime(time);
+                    assertThat(table.score(waiting, current))
+                            .isEqualTo(ElevatorMathUtil.calculateBestScore(waiting, current));
+
+                    for (int to = -2; to <= 11; to++) {
+                        User riding = new User(from, Direction.UP);
+                        riding.setFloorToGo(to);
+                        riding.setWaitTime(time);
+                        riding.setTravelTime(time / 3);
+                        assertThat(table.score(riding, current))
+                                .isEqualTo(ElevatorMathUtil.calculateBestScore(riding, current));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void should_score_all_users_and_count_those_still_scoring(){
+        User nearUser = new User(3, Direction.UP);
+        User lateUser = new User(3, Direction.UP);
+        lateUser.setWaitTime(50);
+
+        int withScore = ScoreTable.forFloors(0, 9).scoreAll(Arrays.asList(nearUser, lateUser), 3);
+
+        assertThat(withScore).isEqualTo(1);
+        assertThat(nearUser.getStillCanScore()).isEqualTo(21);
+        assertThat(lateUser.getStillCanScore()).isEqualTo(0);
+    }
+
+    @Test
+    public void should_reuse_table_of_same_floor_range(){
+        ScoreTable table = ScoreTable.forFloors(0, 19);
+
+        assertThat(ScoreTable.forFloors(0, 19)).isSameAs(table);
+        assertThat(ScoreTable.forFloors(0, 29)).isNotSameAs(table);
+    }
+}
@@ -0,0 +1,36 @@
+package fr.elevator.ws;
+
+import fr.elevator.common.CabinCommand;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class CabinCommandEncodingTest {
+
+    private final List<CabinCommand> commands = Arrays.asList(CabinCommand.UP, CabinCommand.OPEN_DOWN, CabinCommand.NOTHING);
+
+    @Test
+    public void should_write_one_command_per_line_by_default() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        CabinCommandEncoding.negotiate("*/*").write(commands, out);
+
+        assertThat(out.toString("US-ASCII")).isEqualTo("UP\nOPEN_DOWN\nNOTHING\n");
+    }
+
+    @Test
+    public void should_write_one_byte_per_cabin_when_binary_is_accepted() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        CabinCommandEncoding.negotiate("application/octet-stream").write(commands, out);
+
+        assertThat(out.toByteArray()).isEqualTo(new byte[]{1, 5, 0});
+    }
+}
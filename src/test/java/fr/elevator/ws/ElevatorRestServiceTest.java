@@ -0,0 +1,70 @@
+package fr.elevator.ws;
+
+import fr.elevator.model.CabinTuning;
+import fr.elevator.model.DispatcherType;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.NearestCabinDispatcher;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class ElevatorRestServiceTest {
+
+    private final ElevatorModel model = ElevatorModel.newInstance();
+
+    private final ElevatorRestService service = new ElevatorRestService(model);
+
+    @Test
+    public void should_leave_the_game_as_it_was_when_a_reset_parameter_is_wrong(){
+        // Given
+        int cabins = model.getCabinsList().size();
+
+        // When
+        Response unknownDispatcher = reset(4, "bogus", null);
+        Response unknownPolicy = reset(4, null, "bogus");
+        Response noCabin = reset(0, null, null);
+
+        // Then
+        assertThat(unknownDispatcher.getStatus()).isEqualTo(400);
+        assertThat(unknownPolicy.getStatus()).isEqualTo(400);
+        assertThat(noCabin.getStatus()).isEqualTo(400);
+        assertThat(model.getCabinCount()).isEqualTo(cabins);
+        assertThat(model.getCabinsList()).hasSize(cabins);
+        assertThat(model.getDispatcher()).isInstanceOf(NearestCabinDispatcher.class);
+        assertThat(model.findNextCommand()).hasSize(cabins);
+    }
+
+    @Test
+    public void should_refuse_a_tuning_out_of_range_before_changing_the_model(){
+        // When
+        Response response = service.reset("test", null, null, null, 4, null, null, null, DispatcherType.ETA.name(),
+                null, null, null, "LOOK", null, 1.5, null, null);
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(model.getCabinsList()).hasSize(2);
+        assertThat(model.getDispatcher()).isInstanceOf(NearestCabinDispatcher.class);
+        assertThat(model.getTuning()).isEqualTo(CabinTuning.DEFAULT);
+    }
+
+    @Test
+    public void should_apply_every_reset_parameter_when_all_are_right(){
+        // When
+        Response response = reset(4, DispatcherType.ETA.name(), "LOOK");
+
+        // Then
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(model.getCabinsList()).hasSize(4);
+        assertThat(DispatcherType.of(model.getDispatcher())).isEqualTo(DispatcherType.ETA);
+    }
+
+    private Response reset(Integer cabinCount, String dispatcher, String commandPolicy) {
+        return service.reset("test", null, null, null, cabinCount, null, null, null, dispatcher,
+                null, null, null, commandPolicy, null, null, null, null);
+    }
+}
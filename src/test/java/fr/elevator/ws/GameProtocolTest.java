@@ -0,0 +1,73 @@
+package fr.elevator.ws;
+
+import fr.elevator.common.Direction;
+import fr.elevator.model.CabinModel;
+import fr.elevator.model.ElevatorModel;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class GameProtocolTest {
+
+    @Test
+    public void should_read_parameters_in_place(){
+        String query = "floorToGo=12&cabin=3&to=DOWN&atFloor=-1";
+
+        assertThat(GameProtocol.intParam(query, "floorToGo")).isEqualTo(12);
+        assertThat(GameProtocol.intParam(query, "cabin")).isEqualTo(3);
+        assertThat(GameProtocol.intParam(query, "atFloor")).isEqualTo(-1);
+        assertThat(GameProtocol.directionParam(query, "to")).isEqualTo(Direction.DOWN);
+        assertThat(GameProtocol.directionParam("to=UP", "to")).isEqualTo(Direction.UP);
+    }
+
+    @Test
+    public void should_tell_missing_or_malformed_parameters(){
+        assertThat(GameProtocol.intParam(null, "cabin")).isEqualTo(GameProtocol.NO_VALUE);
+        assertThat(GameProtocol.intParam("cabins=1", "cabin")).isEqualTo(GameProtocol.NO_VALUE);
+        assertThat(GameProtocol.intParam("cabin=", "cabin")).isEqualTo(GameProtocol.NO_VALUE);
+        assertThat(GameProtocol.intParam("cabin=1x", "cabin")).isEqualTo(GameProtocol.NO_VALUE);
+        assertThat(GameProtocol.intParam("cabin=12345678901", "cabin")).isEqualTo(GameProtocol.NO_VALUE);
+        assertThat(GameProtocol.directionParam("to=UPPER", "to")).isNull();
+        // Not URL-decoded, unlike Jersey
+        assertThat(GameProtocol.intParam("atFloor=%2D1", "atFloor")).isEqualTo(GameProtocol.NO_VALUE);
+    }
+
+    @Test
+    public void should_call_the_model_and_answer_with_a_status() throws Exception {
+        // Given
+        ElevatorModel model = ElevatorModel.newInstance();
+        GameProtocol protocol = new GameProtocol(model);
+
+        // When
+        int call = protocol.event("/call", "atFloor=3&to=UP");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        protocol.nextCommands(null, out);
+
+        // Then
+        assertThat(call).isEqualTo(GameProtocol.OK);
+        int waiting = 0;
+        for (CabinModel cabin : model.getCabinsList()) {
+            waiting += cabin.getUsersWaitingCabin().size();
+        }
+        assertThat(waiting).isEqualTo(1);
+        assertThat(out.toString("US-ASCII").split("\n")).hasSize(model.getCabinCount());
+        assertThat(GameProtocol.mediaType(null)).isEqualTo("text/plain");
+        assertThat(protocol.event("/userHasEntered", "cabin=0")).isEqualTo(GameProtocol.OK);
+        assertThat(protocol.event("/call", "atFloor=3")).isEqualTo(GameProtocol.BAD_REQUEST);
+        // Jersey would read floor 0 and answer OK
+        assertThat(protocol.event("/go", "cabin=0")).isEqualTo(GameProtocol.BAD_REQUEST);
+        assertThat(protocol.event("/call", "atFloor=99&to=UP")).isEqualTo(GameProtocol.BAD_REQUEST);
+        assertThat(protocol.event("/go", "floorToGo=3&cabin=99")).isEqualTo(GameProtocol.BAD_REQUEST);
+        assertThat(protocol.event("/go", "floorToGo=3&cabin=-1")).isEqualTo(GameProtocol.BAD_REQUEST);
+        assertThat(protocol.event("/go", "floorToGo=99&cabin=0")).isEqualTo(GameProtocol.BAD_REQUEST);
+        assertThat(protocol.event("/userHasExited", "cabin=" + model.getCabinCount())).isEqualTo(GameProtocol.BAD_REQUEST);
+        assertThat(model.getAbnormalUserEntring()).isEqualTo(0);
+        assertThat(model.getAbnormalUserExiting()).isEqualTo(0);
+        assertThat(protocol.event("/reset", null)).isEqualTo(GameProtocol.NOT_FOUND);
+    }
+}
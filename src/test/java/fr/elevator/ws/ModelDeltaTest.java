@@ -0,0 +1,61 @@
+package fr.elevator.ws;
+
+import fr.elevator.common.Direction;
+import fr.elevator.common.User;
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.ElevatorModelSnapshot;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class ModelDeltaTest {
+
+    @Test
+    public void should_be_empty_when_nothing_changed(){
+        ElevatorModel model = ElevatorModel.newInstance();
+
+        Map<String, Object> delta = ModelDelta.between(model.snapshot(), model.snapshot());
+
+        assertThat(delta).isEmpty();
+    }
+
+    @Test
+    public void should_only_hold_what_changed_during_the_tick(){
+        ElevatorModel model = ElevatorModel.newInstance();
+        model.callAtFloor(3, Direction.UP);
+        ElevatorModelSnapshot before = model.snapshot();
+
+        model.findNextCommand();
+        Map<String, Object> delta = ModelDelta.between(before, model.snapshot());
+
+        assertThat(delta.keySet()).containsOnly("cabinsList");
+
+        List<Map<String, Object>> cabins = (List<Map<String, Object>>) delta.get("cabinsList");
+        Map<String, Object> firstCabin = cabins.get(0);
+        assertThat(firstCabin.get("id")).isEqualTo(0);
+        assertThat(firstCabin.get("currentFloor")).isEqualTo(1);
+
+        Map<String, Object> waiting = (Map<String, Object>) firstCabin.get("usersWaitingCabin");
+        List<User> changed = (List<User>) waiting.get("changed");
+        assertThat(changed).hasSize(1);
+        assertThat(changed.get(0).getComingFrom()).isEqualTo(3);
+        assertThat((Collection<?>) waiting.get("removed")).isEmpty();
+    }
+
+    @Test
+    public void should_ask_for_full_snapshot_after_reset(){
+        ElevatorModel model = ElevatorModel.newInstance();
+        ElevatorModelSnapshot before = model.snapshot();
+
+        model.reset();
+
+        assertThat(ModelDelta.between(before, model.snapshot())).isNull();
+    }
+}
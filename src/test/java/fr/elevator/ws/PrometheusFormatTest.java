@@ -0,0 +1,36 @@
+package fr.elevator.ws;
+
+import fr.elevator.common.Direction;
+import fr.elevator.model.ElevatorModel;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class PrometheusFormatTest {
+
+    @Test
+    public void should_export_histograms_and_cabin_gauges() throws Exception {
+        ElevatorModel model = ElevatorModel.newInstance();
+        model.callAtFloor(3, Direction.UP);
+        model.findNextCommand();
+        model.getMetrics().endpointCalled("call", 2000);
+
+        StringWriter out = new StringWriter();
+        PrometheusFormat.write(model, out);
+
+        String metrics = out.toString();
+        assertThat(metrics).contains("# TYPE elevator_tick_duration_seconds histogram\n");
+        assertThat(metrics).contains("elevator_tick_duration_seconds_bucket{le=\"+Inf\"} 1\n");
+        assertThat(metrics).contains("elevator_tick_duration_seconds_count 1\n");
+        assertThat(metrics).contains("elevator_request_duration_seconds_bucket{endpoint=\"call\",le=\"2.0E-6\"} 1\n");
+        assertThat(metrics).contains("elevator_request_duration_seconds_count{endpoint=\"call\"} 1\n");
+        assertThat(metrics).contains("elevator_users_total 1\n");
+        assertThat(metrics).contains("elevator_cabin_waiting_users{cabin=\"0\"} 1\n");
+        assertThat(metrics).contains("elevator_cabin_users{cabin=\"1\"} 0\n");
+    }
+}
@@ -0,0 +1,33 @@
+package fr.elevator.ws;
+
+import fr.elevator.model.ElevatorModel;
+import fr.elevator.model.ElevatorModelSnapshot;
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+/**
+ * User: zizou
+ */
+public class SnapshotJsonCacheTest {
+
+    @Test
+    public void should_serialize_each_version_once() throws Exception {
+        ElevatorModel model = ElevatorModel.newInstance();
+        SnapshotJsonCache cache = new SnapshotJsonCache();
+
+        model.findNextCommand();
+        ElevatorModelSnapshot firstTick = model.getPublishedSnapshot();
+        byte[] json = cache.jsonOf(firstTick).json;
+
+        assertThat(cache.jsonOf(firstTick).json).isSameAs(json);
+
+        model.findNextCommand();
+        SnapshotJsonCache.SerializedSnapshot secondTick = cache.jsonOf(model.getPublishedSnapshot());
+        assertThat(secondTick.json).isNotSameAs(json);
+        assertThat(secondTick.version).isEqualTo(firstTick.getVersion() + 1);
+
+        // A late reader of the first tick gets the newer version
+        assertThat(cache.jsonOf(firstTick)).isSameAs(secondTick);
+    }
+}